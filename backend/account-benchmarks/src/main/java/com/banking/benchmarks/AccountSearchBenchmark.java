@@ -0,0 +1,73 @@
+package com.banking.benchmarks;
+
+import com.banking.account.service.AccountSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Name search over five million synthetic holders: the trigram index against the linear
+// lower-cased substring scan it replaces. A selective query hits a few hundred names and is
+// answered from the posting lists, a broad one a large share of the book and stops walking
+// once the page is filled. A two-letter query has no trigram of its own.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class AccountSearchBenchmark {
+
+    private static final int ACCOUNTS = 5_000_000;
+    private static final String[] FIRST = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael",
+            "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas",
+            "Sarah", "Charles", "Karen", "Wojciech", "Xiomara", "Quentin", "Zbigniew"};
+    private static final String[] LAST = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+            "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas",
+            "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris"};
+
+    @Param({"selective", "broad", "short"})
+    public String query;
+
+    private AccountSearchIndex index;
+    private List<String> names;
+    private String needle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        index = new AccountSearchIndex();
+        names = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            // A four-digit suffix makes each holder rarer than the shared first and last names
+            String name = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)]
+                    + " " + random.nextInt(10_000);
+            index.add(Fixtures.accountNumber(i), name, "ACTIVE", i % 3 == 0 ? "SAVINGS" : "CHECKING");
+            names.add(name.toLowerCase(Locale.ROOT));
+        }
+        needle = switch (query) {
+            case "selective" -> "zbigniew moore 42";
+            case "short" -> "zb";
+            default -> "son";
+        };
+    }
+
+    @Benchmark
+    public AccountSearchIndex.Hits index() {
+        return index.search(needle, null, null, AccountSearchIndex.SortField.ACCOUNT_NUMBER, false, 0, 20);
+    }
+
+    @Benchmark
+    public int scan() {
+        int total = 0;
+        for (String name : names) {
+            if (name.contains(needle)) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
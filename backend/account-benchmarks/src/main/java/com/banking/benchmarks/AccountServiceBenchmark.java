@@ -0,0 +1,93 @@
+package com.banking.benchmarks;
+
+import com.banking.account.AccountServiceApplication;
+import com.banking.account.controller.AccountController;
+import com.banking.account.controller.TransactionController;
+import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.ApiResponse;
+import com.banking.account.entity.Account;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+// End-to-end deposit/withdraw/summary through the controllers against the embedded H2 database
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountServiceBenchmark {
+
+    private static final int ACCOUNTS = 64;
+    private static final Money AMOUNT = Money.of("10.00");
+
+    private ConfigurableApplicationContext context;
+    private AccountController accountController;
+    private TransactionController transactionController;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String accountNumber() {
+            next = (next + 1) % ACCOUNTS;
+            return Fixtures.accountNumber(next);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(AccountServiceApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        // SQL and binder logging would dominate every measurement
+        context = application.run("--spring.main.banner-mode=off",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.com.banking.account=WARN",
+                "--spring.jpa.show-sql=false",
+                "--banking.ratelimit.enabled=false");
+
+        accountController = context.getBean(AccountController.class);
+        transactionController = context.getBean(TransactionController.class);
+
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = new Account();
+            account.setAccountNumber(Fixtures.accountNumber(i));
+            account.setAccountHolderName("Benchmark Holder " + i);
+            account.setEmail("holder" + i + "@bench.test");
+            // Large enough that withdrawals never run dry during a run
+            account.setBalance(Money.of("1000000000.00"));
+            account.setAccountType("CHECKING");
+            account.setStatus("ACTIVE");
+            accountRepository.save(account);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<AccountDTO>> deposit(Cursor cursor) {
+        return accountController.deposit(cursor.accountNumber(), AMOUNT);
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<AccountDTO>> withdraw(Cursor cursor) {
+        return accountController.withdraw(cursor.accountNumber(), AMOUNT);
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<TransactionController.TransactionSummary>> summary(Cursor cursor) {
+        return transactionController.getTransactionSummary(cursor.accountNumber());
+    }
+}
@@ -0,0 +1,30 @@
+package com.banking.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+// Runs the benchmarks and writes machine-readable results so releases can be diffed.
+// Usage: BenchmarkRunner <result.json> [standard JMH options and benchmark regexps]
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: BenchmarkRunner <result.json> [jmh options]");
+            System.exit(1);
+        }
+
+        CommandLineOptions commandLine = new CommandLineOptions(Arrays.copyOfRange(args, 1, args.length));
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(ResultFormatType.JSON)
+                .result(args[0])
+                .build();
+
+        new Runner(options).run();
+    }
+}
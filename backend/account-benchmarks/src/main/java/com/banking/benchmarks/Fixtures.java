@@ -0,0 +1,91 @@
+package com.banking.benchmarks;
+
+import com.banking.account.controller.AccountController;
+import com.banking.account.controller.TransactionController;
+import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import org.springframework.objenesis.SpringObjenesis;
+
+import java.time.LocalDateTime;
+
+// Representative rows shared by the benchmarks
+final class Fixtures {
+
+    private static final SpringObjenesis OBJENESIS = new SpringObjenesis();
+
+    private Fixtures() {
+    }
+
+    // The mappers do not touch any collaborators, so skip constructor wiring entirely
+    static AccountController accountController() {
+        return OBJENESIS.newInstance(AccountController.class);
+    }
+
+    static TransactionController transactionController() {
+        return OBJENESIS.newInstance(TransactionController.class);
+    }
+
+    static String accountNumber(int i) {
+        return String.format("%010d", i);
+    }
+
+    static Account account(int i) {
+        Account account = new Account();
+        account.setId("account-id-" + i);
+        account.setAccountNumber(accountNumber(i));
+        account.setAccountHolderName("Benchmark Holder " + i);
+        account.setEmail("holder" + i + "@bench.test");
+        account.setBalance(Money.of("12345.67"));
+        account.setAccountType(i % 2 == 0 ? "SAVINGS" : "CHECKING");
+        account.setStatus("ACTIVE");
+        account.setCreatedAt(LocalDateTime.of(2024, 1, 1, 9, 30));
+        account.setUpdatedAt(LocalDateTime.of(2024, 6, 1, 17, 45));
+        return account;
+    }
+
+    static Transaction transaction(int i) {
+        Transaction transaction = new Transaction();
+        transaction.setId("transaction-id-" + i);
+        transaction.setAccountId("account-id-" + i);
+        transaction.setAccountNumber(accountNumber(i));
+        transaction.setTransactionType(i % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL");
+        transaction.setAmount(Money.of("250.00"));
+        transaction.setBalanceAfter(Money.of("12595.67"));
+        transaction.setDescription("Deposit to account");
+        transaction.setStatus("COMPLETED");
+        transaction.setReference("TXN1717260000000" + i);
+        transaction.setTimestamp(LocalDateTime.of(2024, 6, 1, 17, 45).plusSeconds(i));
+        return transaction;
+    }
+
+    static AccountDTO accountDTO(int i) {
+        Account account = account(i);
+        return AccountDTO.builder()
+                .id(account.getId())
+                .accountNumber(account.getAccountNumber())
+                .accountHolderName(account.getAccountHolderName())
+                .email(account.getEmail())
+                .balance(account.getBalance())
+                .accountType(account.getAccountType())
+                .status(account.getStatus())
+                .build();
+    }
+
+    static TransactionDTO transactionDTO(int i) {
+        Transaction transaction = transaction(i);
+        return TransactionDTO.builder()
+                .id(transaction.getId())
+                .accountNumber(transaction.getAccountNumber())
+                .transactionType(transaction.getTransactionType())
+                .amount(transaction.getAmount())
+                .balanceAfter(transaction.getBalanceAfter())
+                .description(transaction.getDescription())
+                .status(transaction.getStatus())
+                .reference(transaction.getReference())
+                .timestamp(transaction.getTimestamp())
+                .build();
+    }
+}
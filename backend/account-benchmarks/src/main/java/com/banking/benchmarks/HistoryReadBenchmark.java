@@ -0,0 +1,114 @@
+package com.banking.benchmarks;
+
+import com.banking.account.AccountServiceApplication;
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.repository.TransactionRepository;
+import com.banking.account.service.ReferenceGenerator;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// History reads over a 100k-row account: managed entities copied into DTOs, as the history
+// endpoints did, against the DTO projection they use now. Run with -prof gc for allocations.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryReadBenchmark {
+
+    private static final int HISTORY_ROWS = 100_000;
+    private static final String ACCOUNT_NUMBER = Fixtures.accountNumber(1);
+
+    // One full page, and the whole history
+    @Param({"500", "100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private TransactionRepository transactionRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(AccountServiceApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--spring.main.banner-mode=off",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.com.banking.account=WARN",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.generate_statistics=false");
+
+        transactionRepository = context.getBean(TransactionRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        ReferenceGenerator references = context.getBean(ReferenceGenerator.class);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        for (int chunk = 0; chunk < HISTORY_ROWS; chunk += 1000) {
+            List<Transaction> batch = new ArrayList<>(1000);
+            for (int i = chunk; i < chunk + 1000; i++) {
+                Transaction transaction = Fixtures.transaction(i);
+                transaction.setId(null);
+                transaction.setAccountNumber(ACCOUNT_NUMBER);
+                transaction.setReference(references.next());
+                transaction.setTimestamp(start.plusMinutes(i));
+                transaction.setAmount(Money.ofUnits(1_000_000L + i));
+                batch.add(transaction);
+            }
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.saveAll(batch));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TransactionDTO> entities() {
+        return transactionTemplate.execute(status -> {
+            List<Transaction> loaded = entityManager.createQuery(
+                            "SELECT t FROM Transaction t WHERE t.accountNumber = :accountNumber " +
+                                    "ORDER BY t.timestamp DESC, t.id DESC", Transaction.class)
+                    .setParameter("accountNumber", ACCOUNT_NUMBER)
+                    .setMaxResults(rows)
+                    .getResultList();
+            List<TransactionDTO> page = new ArrayList<>(loaded.size());
+            for (Transaction transaction : loaded) {
+                page.add(TransactionDTO.builder()
+                        .id(transaction.getId())
+                        .accountNumber(transaction.getAccountNumber())
+                        .transactionType(transaction.getTransactionType())
+                        .amount(transaction.getAmount())
+                        .balanceAfter(transaction.getBalanceAfter())
+                        .description(transaction.getDescription())
+                        .status(transaction.getStatus())
+                        .reference(transaction.getReference())
+                        .transferReference(transaction.getTransferReference())
+                        .timestamp(transaction.getTimestamp())
+                        .build());
+            }
+            return page;
+        });
+    }
+
+    @Benchmark
+    public List<TransactionDTO> projection() {
+        return transactionRepository.findByAccountNumberOrderByTimestampDescIdDesc(ACCOUNT_NUMBER, Limit.of(rows));
+    }
+}
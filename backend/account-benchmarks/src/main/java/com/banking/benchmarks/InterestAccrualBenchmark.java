@@ -0,0 +1,74 @@
+package com.banking.benchmarks;
+
+import com.banking.account.AccountServiceApplication;
+import com.banking.account.dto.InterestAccrual;
+import com.banking.account.entity.Account;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.service.InterestAccrualService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A month of interest on 20,000 SAVINGS accounts, each invocation a fresh month. Divide by the
+// score for accounts per second. Parallel speedup needs as many free cores and DB connections.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterestAccrualBenchmark {
+
+    private static final int ACCOUNTS = 20_000;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private InterestAccrualService interestAccrualService;
+    private YearMonth month = YearMonth.now();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(AccountServiceApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--spring.main.banner-mode=off",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.com.banking.account=WARN",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--banking.interest.parallelism=" + parallelism);
+
+        interestAccrualService = context.getBean(InterestAccrualService.class);
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        for (int chunk = 0; chunk < ACCOUNTS; chunk += 1000) {
+            List<Account> accounts = new ArrayList<>(1000);
+            for (int i = chunk; i < chunk + 1000; i++) {
+                Account account = Fixtures.account(i);
+                account.setId(null);
+                account.setAccountType("SAVINGS");
+                accounts.add(account);
+            }
+            accountRepository.saveAll(accounts);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InterestAccrual accrue() {
+        InterestAccrual accrual = interestAccrualService.accrue(month);
+        month = month.plusMonths(1);
+        return accrual;
+    }
+}
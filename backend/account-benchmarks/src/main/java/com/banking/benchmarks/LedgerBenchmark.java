@@ -0,0 +1,76 @@
+package com.banking.benchmarks;
+
+import com.banking.account.ledger.BalanceLedger;
+import com.banking.account.money.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Ledger write throughput: journal append plus in-memory apply, with and without waiting for the
+// group fsync. The 8 thread variant shows how far group commit amortizes the force.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LedgerBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+    private static final Money AMOUNT = Money.of("10.00");
+
+    @Param({"true", "false"})
+    public boolean syncWrites;
+
+    private Path directory;
+    private BalanceLedger ledger;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String accountNumber() {
+            next = (next + 1) % ACCOUNTS;
+            return Fixtures.accountNumber(next);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-bench");
+        ledger = BalanceLedger.open(directory, 1 << 20, 2, syncWrites);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ledger.open(Fixtures.accountNumber(i), Money.ZERO);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public BalanceLedger.Update credit(Cursor cursor) {
+        return ledger.credit(cursor.accountNumber(), AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public BalanceLedger.Update creditContended(Cursor cursor) {
+        return ledger.credit(cursor.accountNumber(), AMOUNT);
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.banking.benchmarks;
+
+import com.banking.account.ledger.BalanceLedger;
+import com.banking.account.money.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Restart time for a ledger holding 10M journal entries: replaying the whole journal versus
+// loading a snapshot taken 100k entries before the end and replaying only that tail.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LedgerRecoveryBenchmark {
+
+    private static final int ACCOUNTS = 100_000;
+    private static final Money AMOUNT = Money.of("1.00");
+
+    @Param({"10000000"})
+    public int entries;
+
+    @Param({"0", "100000"})
+    public int snapshotTail;  // 0 = no snapshot, full replay
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-recovery");
+        try (BalanceLedger ledger = BalanceLedger.open(directory, 1 << 20, 2, false)) {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                ledger.open(Fixtures.accountNumber(i), Money.ZERO);
+            }
+            for (int i = ACCOUNTS; i < entries; i++) {
+                if (snapshotTail > 0 && i == entries - snapshotTail) {
+                    ledger.snapshot();
+                }
+                ledger.credit(Fixtures.accountNumber(i % ACCOUNTS), AMOUNT, false);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        LedgerBenchmark.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public long restart() throws IOException {
+        try (BalanceLedger ledger = BalanceLedger.open(directory, 1 << 20, 2, false)) {
+            return ledger.getRecoveredSequence();
+        }
+    }
+}
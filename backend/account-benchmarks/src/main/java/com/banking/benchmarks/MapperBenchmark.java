@@ -0,0 +1,57 @@
+package com.banking.benchmarks;
+
+import com.banking.account.controller.AccountController;
+import com.banking.account.controller.TransactionController;
+import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+// Entity -> DTO mapping done by the controllers on every read
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private MethodHandle accountMapper;
+    private MethodHandle transactionMapper;
+    private Account account;
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() throws Exception {
+        // convertToDTO is private, bind it once so the call itself is what gets measured
+        accountMapper = privateMapper(AccountController.class, AccountDTO.class, Account.class)
+                .bindTo(Fixtures.accountController());
+        transactionMapper = privateMapper(TransactionController.class, TransactionDTO.class, Transaction.class)
+                .bindTo(Fixtures.transactionController());
+
+        account = Fixtures.account(0);
+        transaction = Fixtures.transaction(0);
+    }
+
+    @Benchmark
+    public AccountDTO accountConvertToDTO() throws Throwable {
+        return (AccountDTO) accountMapper.invoke(account);
+    }
+
+    @Benchmark
+    public TransactionDTO transactionConvertToDTO() throws Throwable {
+        return (TransactionDTO) transactionMapper.invoke(transaction);
+    }
+
+    private static MethodHandle privateMapper(Class<?> owner, Class<?> returnType, Class<?> argType)
+            throws ReflectiveOperationException {
+        return MethodHandles.privateLookupIn(owner, MethodHandles.lookup())
+                .findVirtual(owner, "convertToDTO", MethodType.methodType(returnType, argType));
+    }
+}
@@ -0,0 +1,97 @@
+package com.banking.benchmarks;
+
+import com.banking.account.money.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// The balance work of one withdrawal - parse the amount, check funds, debit, format the
+// response message - on BigDecimal as before and on Money. Run with -prof gc for allocations.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private static final String[] AMOUNTS = {"10.00", "125.50", "0.99", "2500", "42.4242", "7.5"};
+    // Items of one account in a batch, applied against the running balance
+    private static final int BATCH_ITEMS = 16;
+
+    private BigDecimal decimalBalance;
+    private Money moneyBalance;
+    private BigDecimal[] decimalItems;
+    private Money[] moneyItems;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        decimalBalance = new BigDecimal("12345.67");
+        moneyBalance = Money.of("12345.67");
+        decimalItems = new BigDecimal[BATCH_ITEMS];
+        moneyItems = new Money[BATCH_ITEMS];
+        for (int i = 0; i < BATCH_ITEMS; i++) {
+            decimalItems[i] = new BigDecimal(AMOUNTS[i % AMOUNTS.length]);
+            moneyItems[i] = Money.of(AMOUNTS[i % AMOUNTS.length]);
+        }
+    }
+
+    @Benchmark
+    public void withdrawBigDecimal(Blackhole blackhole) {
+        BigDecimal amount = new BigDecimal(nextAmount());
+        if (decimalBalance.compareTo(amount) < 0) {
+            blackhole.consume("Insufficient funds");
+            return;
+        }
+        blackhole.consume(decimalBalance.subtract(amount));
+        blackhole.consume(String.format("Withdrew $%.2f successfully. Reference: %s", amount, "TXN1"));
+    }
+
+    @Benchmark
+    public void withdrawMoney(Blackhole blackhole) {
+        Money amount = Money.parse(nextAmount());
+        if (moneyBalance.isLessThan(amount)) {
+            blackhole.consume("Insufficient funds");
+            return;
+        }
+        blackhole.consume(moneyBalance.minus(amount));
+        blackhole.consume("Withdrew $" + amount.toDisplayString() + " successfully. Reference: " + "TXN1");
+    }
+
+    // processBatch's per-account loop: arithmetic only, no parsing or formatting
+    @Benchmark
+    public BigDecimal batchBigDecimal() {
+        BigDecimal balance = decimalBalance;
+        for (int i = 0; i < BATCH_ITEMS; i++) {
+            BigDecimal amount = decimalItems[i];
+            if ((i & 1) == 0) {
+                balance = balance.add(amount);
+            } else if (balance.compareTo(amount) >= 0) {
+                balance = balance.subtract(amount);
+            }
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public Money batchMoney() {
+        Money balance = moneyBalance;
+        for (int i = 0; i < BATCH_ITEMS; i++) {
+            Money amount = moneyItems[i];
+            if ((i & 1) == 0) {
+                balance = balance.plus(amount);
+            } else if (!balance.isLessThan(amount)) {
+                balance = balance.minus(amount);
+            }
+        }
+        return balance;
+    }
+
+    private String nextAmount() {
+        next = (next + 1) % AMOUNTS.length;
+        return AMOUNTS[next];
+    }
+}
@@ -0,0 +1,51 @@
+package com.banking.benchmarks;
+
+import com.banking.account.service.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Cost of one rate-limit check: a single hot account hammered by several threads, and checks
+// spread over many accounts. The rate is high enough that every call is admitted and does the CAS.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    private RateLimiter limiter;
+    private String[] accountNumbers;
+
+    @Setup
+    public void setUp() {
+        limiter = new RateLimiter(new SimpleMeterRegistry(), true, 1e9, 1_000_000_000, 1e9, 1_000_000_000, 100_000);
+        accountNumbers = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountNumbers[i] = Fixtures.accountNumber(i);
+        }
+    }
+
+    @Benchmark
+    public long hotAccount() {
+        return limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, accountNumbers[0]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long hotAccountContended() {
+        return limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, accountNumbers[0]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long manyAccounts() {
+        return limiter.tryAcquire(RateLimiter.Scope.ACCOUNT,
+                accountNumbers[ThreadLocalRandom.current().nextInt(ACCOUNTS)]);
+    }
+}
@@ -0,0 +1,35 @@
+package com.banking.benchmarks;
+
+import com.banking.account.service.ReferenceGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of generating a transaction reference, alone and with threads contending on the shared state
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReferenceGenerationBenchmark {
+
+    private final ReferenceGenerator generator = new ReferenceGenerator(1);
+
+    @Benchmark
+    public String next() {
+        return generator.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String nextContended() {
+        return generator.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nextIdContended() {
+        return generator.nextId();
+    }
+}
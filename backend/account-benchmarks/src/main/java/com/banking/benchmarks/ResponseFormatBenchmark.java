@@ -0,0 +1,75 @@
+package com.banking.benchmarks;
+
+import com.banking.account.config.BinaryFormatConfig;
+import com.banking.account.dto.ApiResponse;
+import com.banking.account.dto.CursorPage;
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.money.MoneyModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// A 10k-row history page encoded as the JSON the endpoints send by default and as CBOR, each
+// plain and gzipped the way the container compresses responses. Bytes on the wire are printed
+// at setup, the score is the encoding CPU.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseFormatBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private ObjectMapper mapper;
+    private ApiResponse<CursorPage<TransactionDTO>> page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Boot's builder settings for the JSON mapper, the service's own converter for CBOR
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .modules(new MoneyModule(), new JavaTimeModule())
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper = format.equals("json")
+                ? builder.build()
+                : (ObjectMapper) new BinaryFormatConfig().cborHttpMessageConverter(builder).getObjectMapper();
+
+        List<TransactionDTO> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(Fixtures.transactionDTO(i));
+        }
+        page = new ApiResponse<>(true, "Transactions retrieved successfully", new CursorPage<>(rows, "bmV4dA"));
+
+        System.out.printf("%n%s%s: %,d bytes for %,d rows%n", format, gzip ? "+gzip" : "", encode().length, ROWS);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+        if (!gzip) {
+            mapper.writeValue(bytes, page);
+            return bytes.toByteArray();
+        }
+        try (OutputStream out = new GZIPOutputStream(bytes, 8192)) {
+            mapper.writeValue(out, page);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,53 @@
+package com.banking.benchmarks;
+
+import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.ApiResponse;
+import com.banking.account.dto.TransactionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON encoding of the list responses, with the same ObjectMapper setup Spring Boot uses
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<List<AccountDTO>> accounts;
+    private ApiResponse<List<TransactionDTO>> transactions;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<AccountDTO> accountList = new ArrayList<>(size);
+        List<TransactionDTO> transactionList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            accountList.add(Fixtures.accountDTO(i));
+            transactionList.add(Fixtures.transactionDTO(i));
+        }
+        accounts = new ApiResponse<>(true, "Accounts retrieved successfully", accountList);
+        transactions = new ApiResponse<>(true, "Transactions retrieved successfully", transactionList);
+    }
+
+    @Benchmark
+    public byte[] accountList() throws Exception {
+        return objectMapper.writeValueAsBytes(accounts);
+    }
+
+    @Benchmark
+    public byte[] transactionList() throws Exception {
+        return objectMapper.writeValueAsBytes(transactions);
+    }
+}
@@ -0,0 +1,109 @@
+package com.banking.benchmarks;
+
+import com.banking.account.AccountServiceApplication;
+import com.banking.account.dto.StatementRun;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.TransactionRepository;
+import com.banking.account.service.ReferenceGenerator;
+import com.banking.account.service.StatementService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One month of statements for 5,000 accounts with 40 lines each (200k transactions), written by
+// one worker and by four. Parallel speedup needs as many free cores and DB connections.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementBenchmark {
+
+    private static final int ACCOUNTS = 5_000;
+    private static final int LINES_PER_ACCOUNT = 40;
+    private static final YearMonth MONTH = YearMonth.of(2024, 6);
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private StatementService statementService;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("statements");
+        SpringApplication application = new SpringApplication(AccountServiceApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--spring.main.banner-mode=off",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.com.banking.account=WARN",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--banking.statements.directory=" + directory,
+                "--banking.statements.parallelism=" + parallelism);
+
+        statementService = context.getBean(StatementService.class);
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        TransactionRepository transactionRepository = context.getBean(TransactionRepository.class);
+        ReferenceGenerator references = context.getBean(ReferenceGenerator.class);
+        TransactionTemplate transactionTemplate =
+                new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        LocalDateTime start = LocalDateTime.of(2024, 6, 1, 0, 0);
+        for (int chunk = 0; chunk < ACCOUNTS; chunk += 100) {
+            List<Account> accounts = new ArrayList<>(100);
+            for (int i = chunk; i < chunk + 100; i++) {
+                Account account = Fixtures.account(i);
+                account.setId(null);
+                account.setEmail("statement" + i + "@bench.test");
+                accounts.add(account);
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Transaction> batch = new ArrayList<>(100 * LINES_PER_ACCOUNT);
+                for (Account account : accountRepository.saveAll(accounts)) {
+                    for (int line = 0; line < LINES_PER_ACCOUNT; line++) {
+                        Transaction transaction = Fixtures.transaction(line);
+                        transaction.setId(null);
+                        transaction.setAccountId(account.getId());
+                        transaction.setAccountNumber(account.getAccountNumber());
+                        transaction.setReference(references.next());
+                        transaction.setTimestamp(start.plusHours(line * 17L));
+                        transaction.setAmount(Money.ofUnits(1_000_000L + line));
+                        batch.add(transaction);
+                    }
+                }
+                transactionRepository.saveAll(batch);
+            });
+        }
+        context.getBean(JdbcTemplate.class).update("UPDATE accounts SET created_at = ?", start.minusYears(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StatementRun generate() throws IOException {
+        return statementService.generate(MONTH);
+    }
+}
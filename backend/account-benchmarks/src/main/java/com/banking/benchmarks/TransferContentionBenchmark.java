@@ -0,0 +1,85 @@
+package com.banking.benchmarks;
+
+import com.banking.account.AccountServiceApplication;
+import com.banking.account.entity.Account;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.service.AccountTransactionService;
+import com.banking.account.service.TransferResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Concurrent transfers with version-checked updates against SELECT ... FOR UPDATE. Few accounts
+// means most transfers touch a row another thread is writing, many accounts means they rarely do.
+// The conflict count printed at teardown shows how much of the optimistic time went to retries.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TransferContentionBenchmark {
+
+    private static final Money AMOUNT = Money.of("1.00");
+
+    @Param({"OPTIMISTIC", "PESSIMISTIC"})
+    public String locking;
+
+    @Param({"4", "256"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private AccountTransactionService accountTransactionService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(AccountServiceApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--spring.main.banner-mode=off",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.com.banking.account=ERROR",
+                "--spring.jpa.show-sql=false",
+                "--banking.account.locking=" + locking,
+                // Measure the cost of conflicts, not requests that give up
+                "--banking.account.retry.max-attempts=100");
+
+        accountTransactionService = context.getBean(AccountTransactionService.class);
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        for (int i = 0; i < accounts; i++) {
+            Account account = new Account();
+            account.setAccountNumber(Fixtures.accountNumber(i));
+            account.setAccountHolderName("Benchmark Holder " + i);
+            account.setEmail("holder" + i + "@bench.test");
+            account.setBalance(Money.of("1000000000.00"));
+            account.setAccountType("CHECKING");
+            account.setStatus("ACTIVE");
+            accountRepository.save(account);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Counter conflicts = context.getBean(MeterRegistry.class).find("banking.account.write.conflicts").counter();
+        System.out.printf("%n%s, %d accounts: %.0f version conflicts%n",
+                locking, accounts, conflicts != null ? conflicts.count() : 0);
+        context.close();
+    }
+
+    @Benchmark
+    public TransferResult transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+        return accountTransactionService.transfer(
+                Fixtures.accountNumber(from), Fixtures.accountNumber(to), AMOUNT, "Benchmark transfer");
+    }
+}
@@ -0,0 +1,45 @@
+package com.banking.account.config;
+
+import com.banking.account.service.RateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Per-client token bucket in front of every API call, keyed by the remote address. Refused
+// requests get 429 with Retry-After before a controller, let alone a repository, runs.
+@Component
+@RequiredArgsConstructor
+public class ClientRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String BODY = "{\"success\":false,\"message\":\"Too many requests, please retry later\",\"data\":null}";
+
+    private final RateLimiter rateLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long wait = rateLimiter.tryAcquire(RateLimiter.Scope.CLIENT, request.getRemoteAddr());
+        if (wait > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(RateLimiter.retryAfterSeconds(wait)));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(BODY);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
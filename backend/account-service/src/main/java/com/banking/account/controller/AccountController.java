@@ -1,22 +1,47 @@
 package com.banking.account.controller;
 
+import com.banking.account.dto.AccountCacheStats;
 import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.AccountVersion;
 import com.banking.account.dto.ApiResponse;
+import com.banking.account.dto.BatchTransactionRequest;
+import com.banking.account.dto.BatchTransactionResult;
+import com.banking.account.dto.InterestAccrual;
+import com.banking.account.dto.OffsetPage;
 import com.banking.account.dto.TransactionRequest;
+import com.banking.account.dto.TransferDTO;
+import com.banking.account.dto.TransferRequest;
 import com.banking.account.entity.Account;
+import com.banking.account.ledger.BalanceLedger;
+import com.banking.account.money.Money;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.banking.account.repository.AccountRepository;
-import com.banking.account.entity.Transaction;
-import com.banking.account.repository.TransactionRepository;
+import com.banking.account.service.AccountCache;
+import com.banking.account.service.AccountEventHub;
+import com.banking.account.service.AccountSearchService;
+import com.banking.account.service.AccountSummaryService;
+import com.banking.account.service.AccountTransactionService;
+import com.banking.account.service.InterestAccrualService;
+import com.banking.account.service.RateLimiter;
+import com.banking.account.service.ShardedBalanceService;
+import com.banking.account.service.TransactionResult;
+import com.banking.account.service.TransferResult;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.math.BigDecimal;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.time.YearMonth;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/accounts")
@@ -28,7 +53,16 @@ import java.math.BigDecimal;
 public class AccountController {
 
     private final AccountRepository accountRepository;
-    private final TransactionRepository transactionRepository;
+    private final AccountTransactionService accountTransactionService;
+    private final AccountCache accountCache;
+    private final AccountSearchService accountSearchService;
+    private final AccountSummaryService accountSummaryService;
+    private final AccountEventHub accountEventHub;
+    private final RateLimiter rateLimiter;
+    private final ShardedBalanceService shardedBalanceService;
+    private final InterestAccrualService interestAccrualService;
+    // Present in ledger mode, the ledger then holds balances instead of the accounts table
+    private final Optional<BalanceLedger> balanceLedger;
 
     // Create new account
     @PostMapping
@@ -57,6 +91,9 @@ public class AccountController {
 
         // Save to database
         Account savedAccount = accountRepository.save(account);
+        accountSummaryService.ensureSummary(savedAccount.getAccountNumber());
+        balanceLedger.ifPresent(ledger -> ledger.open(savedAccount.getAccountNumber(), savedAccount.getBalance()));
+        accountSearchService.indexAccount(savedAccount);
 
         // Convert back to DTO for response
         AccountDTO response = convertToDTO(savedAccount);
@@ -69,74 +106,110 @@ public class AccountController {
     @GetMapping
     public ResponseEntity<ApiResponse<List<AccountDTO>>> getAllAccounts() {
         log.info("Fetching all accounts");
-        List<AccountDTO> accounts = accountRepository.findAll()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        List<AccountDTO> accounts = withLiveBalances(accountRepository.findAllDTOs());
 
         return ResponseEntity.ok(new ApiResponse<>(true, "Accounts retrieved successfully", accounts));
     }
 
+    // Search accounts, one page at a time. name matches any part of the holder name, ignoring case
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<OffsetPage<AccountDTO>>> searchAccounts(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String type,
+            @PageableDefault(size = 20, sort = "accountNumber") Pageable pageable) {
+        log.info("Searching accounts: name={}, status={}, type={}, {}", name, status, type, pageable);
+
+        OffsetPage<AccountDTO> page;
+        try {
+            page = accountSearchService.search(name, status, type, pageable);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+        withLiveBalances(page.getItems());
+
+        return ResponseEntity.ok(new ApiResponse<>(true, "Accounts retrieved successfully", page));
+    }
+
     // Get account by ID
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<AccountDTO>> getAccountById(@PathVariable String id) {
+    public ResponseEntity<ApiResponse<AccountDTO>> getAccountById(@PathVariable String id,
+                                                                  @RequestHeader HttpHeaders headers) {
         log.info("Fetching account by id: {}", id);
 
-        return accountRepository.findById(id)
-                .map(account -> ResponseEntity.ok(new ApiResponse<>(true, "Account found", convertToDTO(account))))
+        Optional<String> current = currentETag(headers, () -> accountCache.peekById(id),
+                () -> accountRepository.findVersionById(id));
+        if (current.isPresent()) {
+            return notModified(current.get());
+        }
+        return accountCache.findById(id)
+                .map(this::accountFound)
                 .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(new ApiResponse<>(false, "Account not found", null)));
     }
 
     // Get account by account number
     @GetMapping("/number/{accountNumber}")
-    public ResponseEntity<ApiResponse<AccountDTO>> getAccountByNumber(@PathVariable String accountNumber) {
+    public ResponseEntity<ApiResponse<AccountDTO>> getAccountByNumber(@PathVariable String accountNumber,
+                                                                      @RequestHeader HttpHeaders headers) {
         log.info("Fetching account by number: {}", accountNumber);
 
-        return accountRepository.findByAccountNumber(accountNumber)
-                .map(account -> ResponseEntity.ok(new ApiResponse<>(true, "Account found", convertToDTO(account))))
+        Optional<String> current = currentETag(headers, () -> accountCache.peekByAccountNumber(accountNumber),
+                () -> accountRepository.findVersionByAccountNumber(accountNumber));
+        if (current.isPresent()) {
+            return notModified(current.get());
+        }
+        return accountCache.findByAccountNumber(accountNumber)
+                .map(this::accountFound)
                 .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(new ApiResponse<>(false, "Account not found", null)));
     }
 
+    // Stream this account's balance changes and transactions as they commit (Server-Sent Events).
+    // Load the account first and apply events on top; when the stream closes, reload and reconnect.
+    @GetMapping("/{accountNumber}/events")
+    public ResponseEntity<SseEmitter> streamAccountEvents(@PathVariable String accountNumber) {
+        log.debug("Opening event stream for account: {}", accountNumber);
+
+        if (accountCache.findByAccountNumber(accountNumber).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return eventStream(accountEventHub.subscribe(accountNumber));
+    }
+
+    // Stream events of every account
+    @GetMapping("/events")
+    public ResponseEntity<SseEmitter> streamAllAccountEvents() {
+        log.debug("Opening event stream for all accounts");
+        return eventStream(accountEventHub.subscribe(null));
+    }
+
     // Deposit money
     @PostMapping("/{accountNumber}/deposit")
     public ResponseEntity<ApiResponse<AccountDTO>> deposit(
             @PathVariable String accountNumber,
-            @RequestParam BigDecimal amount) {
+            @RequestParam Money amount) {
 
         log.info("Depositing {} to account: {}", amount, accountNumber);
 
-        java.util.Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
+        long wait = accountWait(accountNumber);
+        if (wait > 0) {
+            return tooManyRequests(wait);
+        }
+
+        TransactionResult result = accountTransactionService.deposit(
+                accountNumber, amount, "Deposit to account");
 
-        if (accountOpt.isEmpty()) {
+        if (result.getOutcome() == TransactionResult.Outcome.ACCOUNT_NOT_FOUND) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ApiResponse<>(false, "Account not found", null));
         }
 
-        Account account = accountOpt.get();
-        BigDecimal oldBalance = account.getBalance();
-        BigDecimal newBalance = oldBalance.add(amount);
-
-        account.setBalance(newBalance);
-        Account updatedAccount = accountRepository.save(account);
-
-        // Record transaction
-        Transaction transaction = new Transaction();
-        transaction.setAccountId(account.getId());
-        transaction.setAccountNumber(account.getAccountNumber());
-        transaction.setTransactionType("DEPOSIT");
-        transaction.setAmount(amount);
-        transaction.setBalanceAfter(newBalance);
-        transaction.setDescription("Deposit to account");
-        transaction.setStatus("COMPLETED");
-        transactionRepository.save(transaction);
-
         return ResponseEntity.ok(new ApiResponse<>(
                 true,
-                String.format("Deposited $%.2f successfully. Reference: %s",
-                        amount, transaction.getReference()),
-                convertToDTO(updatedAccount)
+                "Deposited $" + amount.toDisplayString() + " successfully. Reference: "
+                        + result.getTransaction().getReference(),
+                convertToDTO(result.getAccount())
         ));
     }
 
@@ -144,57 +217,33 @@ public class AccountController {
     @PostMapping("/{accountNumber}/withdraw")
     public ResponseEntity<ApiResponse<AccountDTO>> withdraw(
             @PathVariable String accountNumber,
-            @RequestParam BigDecimal amount) {
+            @RequestParam Money amount) {
 
         log.info("Withdrawing {} from account: {}", amount, accountNumber);
 
-        java.util.Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
+        long wait = accountWait(accountNumber);
+        if (wait > 0) {
+            return tooManyRequests(wait);
+        }
+
+        TransactionResult result = accountTransactionService.withdraw(
+                accountNumber, amount, "Withdrawal from account", "Failed - Insufficient funds");
 
-        if (accountOpt.isEmpty()) {
+        if (result.getOutcome() == TransactionResult.Outcome.ACCOUNT_NOT_FOUND) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ApiResponse<>(false, "Account not found", null));
         }
 
-        Account account = accountOpt.get();
-
-        if (account.getBalance().compareTo(amount) < 0) {
-            // Record failed transaction
-            Transaction failedTransaction = new Transaction();
-            failedTransaction.setAccountId(account.getId());
-            failedTransaction.setAccountNumber(account.getAccountNumber());
-            failedTransaction.setTransactionType("WITHDRAWAL");
-            failedTransaction.setAmount(amount);
-            failedTransaction.setBalanceAfter(account.getBalance());
-            failedTransaction.setDescription("Failed - Insufficient funds");
-            failedTransaction.setStatus("FAILED");
-            transactionRepository.save(failedTransaction);
-
+        if (result.getOutcome() == TransactionResult.Outcome.INSUFFICIENT_FUNDS) {
             return ResponseEntity.badRequest()
                     .body(new ApiResponse<>(false, "Insufficient funds", null));
         }
 
-        BigDecimal oldBalance = account.getBalance();
-        BigDecimal newBalance = oldBalance.subtract(amount);
-
-        account.setBalance(newBalance);
-        Account updatedAccount = accountRepository.save(account);
-
-        // Record successful transaction
-        Transaction transaction = new Transaction();
-        transaction.setAccountId(account.getId());
-        transaction.setAccountNumber(account.getAccountNumber());
-        transaction.setTransactionType("WITHDRAWAL");
-        transaction.setAmount(amount);
-        transaction.setBalanceAfter(newBalance);
-        transaction.setDescription("Withdrawal from account");
-        transaction.setStatus("COMPLETED");
-        transactionRepository.save(transaction);
-
         return ResponseEntity.ok(new ApiResponse<>(
                 true,
-                String.format("Withdrew $%.2f successfully. Reference: %s",
-                        amount, transaction.getReference()),
-                convertToDTO(updatedAccount)
+                "Withdrew $" + amount.toDisplayString() + " successfully. Reference: "
+                        + result.getTransaction().getReference(),
+                convertToDTO(result.getAccount())
         ));
     }
 
@@ -205,56 +254,120 @@ public class AccountController {
 
         log.info("Processing transaction: {}", request);
 
-        java.util.Optional<Account> accountOpt = accountRepository.findByAccountNumber(request.getAccountNumber());
+        long wait = accountWait(request.getAccountNumber());
+        if (wait > 0) {
+            return tooManyRequests(wait);
+        }
+
+        String description = request.getDescription() != null ?
+                request.getDescription() : request.getTransactionType() + " transaction";
+
+        TransactionResult result;
+        if ("DEPOSIT".equals(request.getTransactionType())) {
+            result = accountTransactionService.deposit(
+                    request.getAccountNumber(), request.getAmount(), description);
+        } else if ("WITHDRAWAL".equals(request.getTransactionType())) {
+            result = accountTransactionService.withdraw(
+                    request.getAccountNumber(), request.getAmount(), description, description);
+        } else {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse<>(false, "Invalid transaction type", null));
+        }
 
-        if (accountOpt.isEmpty()) {
+        if (result.getOutcome() == TransactionResult.Outcome.ACCOUNT_NOT_FOUND) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ApiResponse<>(false, "Account not found", null));
         }
 
-        Account account = accountOpt.get();
-        Transaction transaction = new Transaction();
-        transaction.setAccountId(account.getId());
-        transaction.setAccountNumber(account.getAccountNumber());
-        transaction.setTransactionType(request.getTransactionType());
-        transaction.setAmount(request.getAmount());
-        transaction.setDescription(request.getDescription() != null ?
-                request.getDescription() : request.getTransactionType() + " transaction");
+        if (result.getOutcome() == TransactionResult.Outcome.INSUFFICIENT_FUNDS) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse<>(false, "Insufficient funds", null));
+        }
 
-        if ("DEPOSIT".equals(request.getTransactionType())) {
-            BigDecimal newBalance = account.getBalance().add(request.getAmount());
-            account.setBalance(newBalance);
-            transaction.setBalanceAfter(newBalance);
-            transaction.setStatus("COMPLETED");
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                request.getTransactionType() + " of $" + request.getAmount().toDisplayString()
+                        + " completed successfully. Reference: " + result.getTransaction().getReference(),
+                convertToDTO(result.getAccount())
+        ));
+    }
 
-        } else if ("WITHDRAWAL".equals(request.getTransactionType())) {
-            if (account.getBalance().compareTo(request.getAmount()) < 0) {
-                transaction.setBalanceAfter(account.getBalance());
-                transaction.setStatus("FAILED");
-                transactionRepository.save(transaction);
+    // Process a batch of transactions
+    @PostMapping("/transactions/batch")
+    public ResponseEntity<ApiResponse<List<BatchTransactionResult>>> processTransactionBatch(
+            @Valid @RequestBody BatchTransactionRequest request) {
 
-                return ResponseEntity.badRequest()
-                        .body(new ApiResponse<>(false, "Insufficient funds", null));
-            }
+        log.info("Processing batch of {} transactions", request.getTransactions().size());
 
-            BigDecimal newBalance = account.getBalance().subtract(request.getAmount());
-            account.setBalance(newBalance);
-            transaction.setBalanceAfter(newBalance);
-            transaction.setStatus("COMPLETED");
+        List<BatchTransactionResult> results;
+        try {
+            results = accountTransactionService.processBatch(request.getTransactions());
+        } catch (OptimisticLockingFailureException e) {
+            return concurrentUpdate();
+        }
+        long succeeded = results.stream().filter(BatchTransactionResult::isSuccess).count();
 
-        } else {
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                String.format("Processed %d transactions, %d succeeded", results.size(), succeeded),
+                results
+        ));
+    }
+
+    // Transfer between two accounts, both legs commit together
+    @PostMapping("/transfers")
+    public ResponseEntity<ApiResponse<TransferDTO>> transfer(@Valid @RequestBody TransferRequest request) {
+
+        log.info("Transferring {} from account {} to account {}",
+                request.getAmount(), request.getFromAccountNumber(), request.getToAccountNumber());
+
+        if (request.getFromAccountNumber().equals(request.getToAccountNumber())) {
             return ResponseEntity.badRequest()
-                    .body(new ApiResponse<>(false, "Invalid transaction type", null));
+                    .body(new ApiResponse<>(false, "Cannot transfer to the same account", null));
+        }
+
+        // Charged to the account the money leaves
+        long wait = accountWait(request.getFromAccountNumber());
+        if (wait > 0) {
+            return tooManyRequests(wait);
         }
 
-        Account updatedAccount = accountRepository.save(account);
-        transactionRepository.save(transaction);
+        String description = request.getDescription() != null ? request.getDescription()
+                : "Transfer from " + request.getFromAccountNumber() + " to " + request.getToAccountNumber();
+        TransferResult result;
+        try {
+            result = accountTransactionService.transfer(
+                    request.getFromAccountNumber(), request.getToAccountNumber(), request.getAmount(), description);
+        } catch (OptimisticLockingFailureException e) {
+            return concurrentUpdate();
+        }
+
+        if (result.getOutcome() == TransactionResult.Outcome.ACCOUNT_NOT_FOUND) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, "Account not found", null));
+        }
+
+        if (result.getOutcome() == TransactionResult.Outcome.INSUFFICIENT_FUNDS) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse<>(false, "Insufficient funds", null));
+        }
+
+        TransferDTO response = TransferDTO.builder()
+                .reference(result.getReference())
+                .fromAccountNumber(request.getFromAccountNumber())
+                .toAccountNumber(request.getToAccountNumber())
+                .amount(request.getAmount())
+                .fromBalanceAfter(result.getDebit().getBalanceAfter())
+                .toBalanceAfter(result.getCredit().getBalanceAfter())
+                .debitReference(result.getDebit().getReference())
+                .creditReference(result.getCredit().getReference())
+                .build();
 
         return ResponseEntity.ok(new ApiResponse<>(
                 true,
-                String.format("%s of $%.2f completed successfully. Reference: %s",
-                        request.getTransactionType(), request.getAmount(), transaction.getReference()),
-                convertToDTO(updatedAccount)
+                "Transferred $" + request.getAmount().toDisplayString() + " successfully. Reference: "
+                        + result.getReference(),
+                response
         ));
     }
 
@@ -263,28 +376,207 @@ public class AccountController {
     public ResponseEntity<ApiResponse<Void>> deleteAccount(@PathVariable String id) {
         log.info("Deleting account: {}", id);
 
-        if (!accountRepository.existsById(id)) {
+        Account account = accountRepository.findById(id).orElse(null);
+        if (account == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ApiResponse<>(false, "Account not found", null));
         }
 
-        accountRepository.deleteById(id);
+        shardedBalanceService.disable(account.getAccountNumber());
+        accountRepository.delete(account);
+        accountSearchService.removeAccount(account);
+        accountCache.evict(account);
+        balanceLedger.ifPresent(ledger -> ledger.close(account.getAccountNumber()));
         return ResponseEntity.ok(new ApiResponse<>(true, "Account deleted successfully", null));
     }
 
+    // Turn on hot account mode: the balance is split into shards that deposits spread across.
+    // Calling it again on a hot account re-splits it.
+    @PutMapping("/{accountNumber}/shards")
+    public ResponseEntity<ApiResponse<AccountDTO>> enableShards(@PathVariable String accountNumber,
+                                                                @RequestParam(defaultValue = "16") int count) {
+        log.info("Splitting balance of account {} into {} shards", accountNumber, count);
+
+        boolean enabled;
+        try {
+            enabled = shardedBalanceService.enable(accountNumber, count);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+        if (!enabled) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, "Account not found", null));
+        }
+        return accountCache.findByAccountNumber(accountNumber)
+                .map(account -> ResponseEntity.ok(new ApiResponse<>(true,
+                        "Account balance split into " + count + " shards", convertStoredToDTO(account))))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "Account not found", null)));
+    }
+
+    // Fold the shards back into the account and turn hot account mode off
+    @DeleteMapping("/{accountNumber}/shards")
+    public ResponseEntity<ApiResponse<Void>> disableShards(@PathVariable String accountNumber) {
+        log.info("Merging balance shards of account {}", accountNumber);
+
+        if (!shardedBalanceService.disable(accountNumber)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, "Account has no balance shards", null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Balance shards merged", null));
+    }
+
+    // Credit a month's interest to every SAVINGS account (?month=2024-06). Calling it again after a
+    // failure resumes from the run's checkpoint, after success it returns the finished run.
+    @PostMapping("/interest")
+    public ResponseEntity<ApiResponse<InterestAccrual>> accrueInterest(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        log.info("Accruing interest for {}", month);
+
+        try {
+            InterestAccrual accrual = interestAccrualService.accrue(month);
+            return ResponseEntity.ok(new ApiResponse<>(true, String.format("Interest for %s credited to %d accounts",
+                    month, accrual.getAccountsCredited()), accrual));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
+    // Progress of a month's interest run: its checkpoint and what it has credited up to there
+    @GetMapping("/interest/{month}")
+    public ResponseEntity<ApiResponse<InterestAccrual>> getInterestRun(
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        return interestAccrualService.getRun(month)
+                .map(run -> ResponseEntity.ok(new ApiResponse<>(true, "Interest run retrieved successfully", run)))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(false, "No interest run for " + month, null)));
+    }
+
     // Get accounts by status
     @GetMapping("/status/{status}")
     public ResponseEntity<ApiResponse<List<AccountDTO>>> getAccountsByStatus(@PathVariable String status) {
         log.info("Fetching accounts with status: {}", status);
 
-        List<AccountDTO> accounts = accountRepository.findByStatus(status)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        List<AccountDTO> accounts = withLiveBalances(accountRepository.findByStatus(status));
 
         return ResponseEntity.ok(new ApiResponse<>(true, "Accounts retrieved successfully", accounts));
     }
 
+    // Account cache statistics, for sizing the cache against the working set
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse<AccountCacheStats>> getCacheStats() {
+        CacheStats stats = accountCache.stats();
+        AccountCacheStats response = AccountCacheStats.builder()
+                .size(accountCache.size())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .hitRate(stats.hitRate())
+                .build();
+
+        return ResponseEntity.ok(new ApiResponse<>(true, "Cache statistics retrieved successfully", response));
+    }
+
+    // Stored accounts carry a stale balance in ledger mode and only part of it for a hot account
+    private AccountDTO convertStoredToDTO(Account account) {
+        AccountDTO dto = convertToDTO(account);
+        Money live = liveBalance(account.getAccountNumber());
+        if (live != null) {
+            dto.setBalance(live);
+        }
+        return dto;
+    }
+
+    // Spring answers 304 itself when If-None-Match matches the ETag. No Last-Modified: its one-second
+    // resolution would hide a second balance change within the same second.
+    private ResponseEntity<ApiResponse<AccountDTO>> accountFound(Account account) {
+        Money live = liveBalance(account.getAccountNumber());
+        AccountDTO dto = convertToDTO(account);
+        if (live != null) {
+            dto.setBalance(live);
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag(account.getId(), account.getVersion(), live))
+                .body(new ApiResponse<>(true, "Account found", dto));
+    }
+
+    // The account's current ETag when the client's If-None-Match already holds it. Checked against
+    // the cached copy or, failing that, the version columns, before any account row is loaded.
+    private Optional<String> currentETag(HttpHeaders headers, Supplier<Optional<Account>> cached,
+                                         Supplier<Optional<AccountVersion>> stored) {
+        List<String> clientTags = headers.getIfNoneMatch();
+        if (clientTags.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<String> current = cached.get()
+                .map(account -> eTag(account.getId(), account.getVersion(), liveBalance(account.getAccountNumber())))
+                .or(() -> stored.get().map(version ->
+                        eTag(version.getId(), version.getVersion(), liveBalance(version.getAccountNumber()))));
+        // GET compares weakly, a W/ prefix from an intermediary still matches
+        return current.filter(tag -> clientTags.stream().anyMatch(clientTag ->
+                clientTag.equals("*") || clientTag.replaceFirst("^W/", "").equals(tag)));
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+
+    // Row id and version change with every write to the row. In ledger mode, and on a hot account's
+    // shards, the balance moves without one, so it is part of the tag.
+    private String eTag(String id, Long version, Money liveBalance) {
+        StringBuilder tag = new StringBuilder("\"").append(id).append('.').append(version);
+        if (liveBalance != null) {
+            tag.append('.').append(liveBalance.getUnits());
+        }
+        return tag.append('"').toString();
+    }
+
+    // Null unless the balance lives outside the accounts row
+    private Money liveBalance(String accountNumber) {
+        if (balanceLedger.isPresent()) {
+            return balanceLedger.get().balanceOf(accountNumber).orElse(null);
+        }
+        return shardedBalanceService.isSharded(accountNumber)
+                ? shardedBalanceService.totalBalance(accountNumber).orElse(null)
+                : null;
+    }
+
+    private List<AccountDTO> withLiveBalances(List<AccountDTO> accounts) {
+        if (balanceLedger.isPresent()) {
+            accounts.forEach(dto -> balanceLedger.get().balanceOf(dto.getAccountNumber()).ifPresent(dto::setBalance));
+            return accounts;
+        }
+        return shardedBalanceService.withShardBalances(accounts);
+    }
+
+    // Every retry lost its version check to concurrent writers, nothing was applied
+    private <T> ResponseEntity<ApiResponse<T>> concurrentUpdate() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ApiResponse<>(false, "Account was updated concurrently, please retry", null));
+    }
+
+    // Hot accounts are sharded to take thousands of writes a second, so they skip the per-account bucket
+    private long accountWait(String accountNumber) {
+        return shardedBalanceService.isSharded(accountNumber)
+                ? 0
+                : rateLimiter.tryAcquire(RateLimiter.Scope.ACCOUNT, accountNumber);
+    }
+
+    // The account's token bucket is empty, checked before the request touches the database
+    private <T> ResponseEntity<ApiResponse<T>> tooManyRequests(long waitNanos) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(RateLimiter.retryAfterSeconds(waitNanos)))
+                .body(new ApiResponse<>(false, "Too many requests for this account, please retry later", null));
+    }
+
+    // Null when the hub is at its subscriber limit
+    private ResponseEntity<SseEmitter> eventStream(SseEmitter emitter) {
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     // Helper method to convert Entity to DTO
     private AccountDTO convertToDTO(Account account) {
         AccountDTO dto = new AccountDTO();
@@ -2,19 +2,38 @@ package com.banking.account.controller;
 
 import com.banking.account.controller.TransactionController.TransactionSummary;
 import com.banking.account.dto.ApiResponse;
+import com.banking.account.dto.CursorPage;
+import com.banking.account.dto.StatementRun;
 import com.banking.account.dto.TransactionDTO;
+import com.banking.account.dto.TransactionCursor;
 import com.banking.account.dto.TransactionHistoryRequest;
+import com.banking.account.entity.AccountSummary;
 import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
 import com.banking.account.repository.TransactionRepository;
+import com.banking.account.service.AccountSummaryService;
+import com.banking.account.service.ShardedBalanceService;
+import com.banking.account.service.StatementService;
+import com.banking.account.service.TransactionExportService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.math.BigDecimal;  // ADD THIS IMPORT
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.function.BiFunction;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -25,68 +44,88 @@ import java.util.stream.Collectors;
 
 public class TransactionController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final TransactionRepository transactionRepository;
+    private final TransactionExportService transactionExportService;
+    private final AccountSummaryService accountSummaryService;
+    private final ShardedBalanceService shardedBalanceService;
+    private final StatementService statementService;
 
-    // Get all transactions for an account
+    // Get transactions for an account, one keyset page at a time
     @GetMapping("/account/{accountNumber}")
-    public ResponseEntity<ApiResponse<List<TransactionDTO>>> getAccountTransactions(
-            @PathVariable String accountNumber) {
+    public ResponseEntity<ApiResponse<CursorPage<TransactionDTO>>> getAccountTransactions(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
         log.info("Fetching transactions for account: {}", accountNumber);
 
-        List<TransactionDTO> transactions = transactionRepository
-                .findByAccountNumberOrderByTimestampDesc(accountNumber)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(new ApiResponse<>(
-                true,
-                "Transactions retrieved successfully",
-                transactions
-        ));
+        return page(cursor, size, "Transactions retrieved successfully", (after, limit) -> after == null
+                ? transactionRepository.findByAccountNumberOrderByTimestampDescIdDesc(accountNumber, limit)
+                : transactionRepository.findPageAfter(accountNumber, after.getTimestamp(), after.getId(), limit));
     }
 
     // Get transactions by type (DEPOSIT/WITHDRAWAL)
     @GetMapping("/account/{accountNumber}/type/{type}")
-    public ResponseEntity<ApiResponse<List<TransactionDTO>>> getTransactionsByType(
+    public ResponseEntity<ApiResponse<CursorPage<TransactionDTO>>> getTransactionsByType(
             @PathVariable String accountNumber,
-            @PathVariable String type) {
+            @PathVariable String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
         log.info("Fetching {} transactions for account: {}", type, accountNumber);
 
-        List<TransactionDTO> transactions = transactionRepository
-                .findByAccountNumberAndTransactionTypeOrderByTimestampDesc(accountNumber, type)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(new ApiResponse<>(
-                true,
-                type + " transactions retrieved successfully",
-                transactions
-        ));
+        return page(cursor, size, type + " transactions retrieved successfully", (after, limit) -> after == null
+                ? transactionRepository.findByAccountNumberAndTransactionTypeOrderByTimestampDescIdDesc(
+                        accountNumber, type, limit)
+                : transactionRepository.findPageByTypeAfter(
+                        accountNumber, type, after.getTimestamp(), after.getId(), limit));
     }
 
     // Get transactions within date range
     @GetMapping("/account/{accountNumber}/daterange")
-    public ResponseEntity<ApiResponse<List<TransactionDTO>>> getTransactionsByDateRange(
+    public ResponseEntity<ApiResponse<CursorPage<TransactionDTO>>> getTransactionsByDateRange(
             @PathVariable String accountNumber,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
 
         log.info("Fetching transactions for account: {} from {} to {}",
                 accountNumber, startDate, endDate);
 
-        List<TransactionDTO> transactions = transactionRepository
-                .findTransactionsByDateRange(accountNumber, startDate, endDate)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return page(cursor, size, "Transactions retrieved successfully", (after, limit) -> after == null
+                ? transactionRepository.findPageByDateRange(accountNumber, startDate, endDate, limit)
+                : transactionRepository.findPageByDateRangeAfter(
+                        accountNumber, startDate, endDate, after.getTimestamp(), after.getId(), limit));
+    }
 
-        return ResponseEntity.ok(new ApiResponse<>(
-                true,
-                "Transactions retrieved successfully",
-                transactions
-        ));
+    // Export full history (or a date range) as NDJSON or CSV, streamed without buffering the result
+    @GetMapping("/account/{accountNumber}/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @PathVariable String accountNumber,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+
+        log.info("Exporting transactions for account: {} as {}", accountNumber, format);
+
+        TransactionExportService.Format exportFormat;
+        try {
+            exportFormat = TransactionExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format must be ndjson or csv");
+        }
+
+        StreamingResponseBody body = out ->
+                transactionExportService.export(accountNumber, startDate, endDate, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transactions-" + accountNumber + "." + exportFormat.getExtension())
+                        .build().toString())
+                .body(body);
     }
 
     // Get single transaction by reference
@@ -95,46 +134,116 @@ public class TransactionController {
             @PathVariable String reference) {
         log.info("Fetching transaction by reference: {}", reference);
 
-        return transactionRepository.findById(reference)
+        return transactionRepository.findByReference(reference)
                 .map(transaction -> ResponseEntity.ok(new ApiResponse<>(
                         true, "Transaction found", convertToDTO(transaction))))
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // Get transaction summary
+    // Get transaction summary - a single primary-key read of the maintained aggregate
     @GetMapping("/account/{accountNumber}/summary")
     public ResponseEntity<ApiResponse<TransactionSummary>> getTransactionSummary(
             @PathVariable String accountNumber) {
         log.info("Fetching transaction summary for account: {}", accountNumber);
 
-        BigDecimal totalDeposits = transactionRepository
-                .getTotalByType(accountNumber, "DEPOSIT");
-        BigDecimal totalWithdrawals = transactionRepository
-                .getTotalByType(accountNumber, "WITHDRAWAL");
+        Optional<AccountSummary> stored = shardedBalanceService.withPendingDeposits(
+                accountNumber, accountSummaryService.getSummary(accountNumber));
+        TransactionSummary summary = stored
+                .map(s -> new TransactionSummary(
+                        s.getTotalDeposits(),
+                        s.getTotalWithdrawals(),
+                        s.getTotalDeposits().minus(s.getTotalWithdrawals()),
+                        s.getCompletedCount() + s.getFailedCount(),
+                        s.getCompletedCount(),
+                        s.getFailedCount()))
+                .orElseGet(() -> new TransactionSummary(
+                        Money.ZERO, Money.ZERO, Money.ZERO, 0, 0, 0));
+
+        // Every delta and every rebuild moves updatedAt, Spring answers 304 when the client has it.
+        // The ETag alone, a one-second Last-Modified would miss a second change within that second.
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        LocalDateTime updatedAt = stored.map(AccountSummary::getUpdatedAt).orElse(null);
+        if (updatedAt != null) {
+            response.eTag("\"" + summary.getCompletedTransactions() + "." + summary.getFailedTransactions() + "."
+                    + ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), updatedAt) + "\"");
+        } else {
+            response.eTag("\"0.0\"");
+        }
+        return response.body(new ApiResponse<>(
+                true, "Summary retrieved successfully", summary
+        ));
+    }
 
-        if (totalDeposits == null) totalDeposits = BigDecimal.ZERO;
-        if (totalWithdrawals == null) totalWithdrawals = BigDecimal.ZERO;
+    // Regenerate all summaries from the transactions table
+    @PostMapping("/summaries/rebuild")
+    public ResponseEntity<ApiResponse<Integer>> rebuildSummaries() {
+        log.info("Rebuilding transaction summaries");
 
-        TransactionSummary summary = new TransactionSummary(
-                totalDeposits,
-                totalWithdrawals,
-                totalDeposits.subtract(totalWithdrawals),
-                transactionRepository.findByAccountNumberOrderByTimestampDesc(accountNumber).size()
-        );
+        int rebuilt = accountSummaryService.rebuild();
 
         return ResponseEntity.ok(new ApiResponse<>(
-                true, "Summary retrieved successfully", summary
+                true, String.format("Rebuilt %d account summaries", rebuilt), rebuilt
         ));
     }
 
+    // Write every account's statement for a month (?month=2024-06) to banking.statements.directory
+    @PostMapping("/statements")
+    public ResponseEntity<ApiResponse<StatementRun>> generateStatements(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) throws IOException {
+        log.info("Generating statements for {}", month);
+
+        try {
+            StatementRun run = statementService.generate(month);
+            return ResponseEntity.ok(new ApiResponse<>(
+                    true, String.format("Generated %d statements for %s", run.getAccounts(), month), run
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
     // Inner class for summary - FIXED WITH IMPORTS
     @lombok.Data
     @lombok.AllArgsConstructor
     public static class TransactionSummary {
-        private BigDecimal totalDeposits;
-        private BigDecimal totalWithdrawals;
-        private BigDecimal netBalance;
+        private Money totalDeposits;
+        private Money totalWithdrawals;
+        private Money netBalance;
         private long totalTransactions;
+        private long completedTransactions;
+        private long failedTransactions;
+    }
+
+    // Fetches one row past the page size to find out whether another page exists
+    private ResponseEntity<ApiResponse<CursorPage<TransactionDTO>>> page(
+            String cursor, int size, String message,
+            BiFunction<TransactionCursor, Limit, List<TransactionDTO>> query) {
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(
+                    false, "Page size must be between 1 and " + MAX_PAGE_SIZE, null));
+        }
+
+        TransactionCursor after;
+        try {
+            after = cursor != null ? TransactionCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(false, "Invalid cursor", null));
+        }
+
+        List<TransactionDTO> items = query.apply(after, Limit.of(size + 1));
+        boolean hasMore = items.size() > size;
+        if (hasMore) {
+            items = items.subList(0, size);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            TransactionDTO last = items.get(items.size() - 1);
+            nextCursor = new TransactionCursor(last.getTimestamp(), last.getId()).encode();
+        }
+
+        return ResponseEntity.ok(new ApiResponse<>(true, message, new CursorPage<>(items, nextCursor)));
     }
 
     private TransactionDTO convertToDTO(Transaction transaction) {
@@ -147,6 +256,7 @@ public class TransactionController {
                 .description(transaction.getDescription())
                 .status(transaction.getStatus())
                 .reference(transaction.getReference())
+                .transferReference(transaction.getTransferReference())
                 .timestamp(transaction.getTimestamp())
                 .build();
     }
@@ -0,0 +1,18 @@
+package com.banking.account.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountCacheStats {
+    private long size;  // Cached accounts
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;  // Size and expiry evictions, not explicit invalidations
+    private double hitRate;
+}
@@ -1,11 +1,11 @@
 package com.banking.account.dto;
 
+import com.banking.account.money.Money;
 import lombok.Data;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import jakarta.validation.constraints.*;
-import java.math.BigDecimal;
 
 @Data
 @Builder
@@ -29,7 +29,7 @@ public class AccountDTO {
 
     @NotNull(message = "Initial balance is required")
     @DecimalMin(value = "0.0", inclusive = true, message = "Balance cannot be negative")
-    private BigDecimal balance;
+    private Money balance;
 
     @NotBlank(message = "Account type is required")
     @Pattern(regexp = "SAVINGS|CHECKING", message = "Account type must be SAVINGS or CHECKING")
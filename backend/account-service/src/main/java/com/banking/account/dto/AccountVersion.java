@@ -0,0 +1,17 @@
+package com.banking.account.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+// Just enough of an account to tell whether a client's copy is current
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountVersion {
+    private String id;
+    private String accountNumber;
+    private Long version;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,19 @@
+package com.banking.account.dto;
+
+import com.banking.account.money.Money;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceChange {
+    private String accountNumber;
+    private Money balance;
+    private String reference;  // Transaction that produced this balance
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,15 @@
+package com.banking.account.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class BatchTransactionRequest {
+
+    @NotEmpty(message = "At least one transaction is required")
+    @Size(max = 1000, message = "A batch cannot contain more than 1000 transactions")
+    private List<@Valid TransactionRequest> transactions;
+}
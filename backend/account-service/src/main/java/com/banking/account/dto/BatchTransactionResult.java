@@ -0,0 +1,22 @@
+package com.banking.account.dto;
+
+import com.banking.account.money.Money;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransactionResult {
+    private int index;  // Position of the item in the submitted batch
+    private String accountNumber;
+    private String transactionType;
+    private Money amount;
+    private boolean success;
+    private String message;
+    private String reference;
+    private Money balanceAfter;
+}
@@ -0,0 +1,28 @@
+package com.banking.account.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestAccrual {
+    private String month;
+    private String status;
+    private BigDecimal annualRate;
+    private String checkpoint;
+    private long accountsCredited;
+    private BigDecimal totalInterest;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    // This call only - a resumed run starts counting again at its checkpoint
+    private boolean resumed;
+    private long accountsVisited;
+    private long elapsedMillis;
+    private double accountsPerSecond;
+}
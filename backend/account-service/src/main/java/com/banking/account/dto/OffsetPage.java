@@ -0,0 +1,19 @@
+package com.banking.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OffsetPage<T> {
+    private List<T> items;
+    private int page;           // zero-based
+    private int size;
+    private long totalElements;
+    private int totalPages;
+    // False when a broad name search stopped once the page was filled and estimated the total
+    private boolean totalExact;
+}
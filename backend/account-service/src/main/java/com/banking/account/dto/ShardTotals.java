@@ -0,0 +1,20 @@
+package com.banking.account.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// What a hot account's shards hold between consolidations
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardTotals {
+    private String accountNumber;
+    private Long shards;
+    private BigDecimal balance;
+    private BigDecimal deposits;
+    private Long depositCount;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,20 @@
+package com.banking.account.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.YearMonth;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementRun {
+    private YearMonth month;
+    private String directory;
+    private int partitions;
+    private long accounts;
+    private long transactions;
+    private long elapsedMillis;
+}
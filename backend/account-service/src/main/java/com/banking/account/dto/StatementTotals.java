@@ -0,0 +1,12 @@
+package com.banking.account.dto;
+
+import java.math.BigDecimal;
+
+// Per-account sums behind a statement's opening balance, see TransactionRepository.sumStatementTotals
+public interface StatementTotals {
+    String getAccountNumber();
+
+    BigDecimal getPeriodNet();
+
+    BigDecimal getLaterNet();
+}
@@ -0,0 +1,38 @@
+package com.banking.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Keyset position in a (timestamp DESC, id DESC) ordered history. Clients only ever see the encoded form.
+@Getter
+@AllArgsConstructor
+public class TransactionCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime timestamp;
+    private final String id;
+
+    public String encode() {
+        String raw = timestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new TransactionCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    raw.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
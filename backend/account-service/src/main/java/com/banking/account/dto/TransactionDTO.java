@@ -1,10 +1,10 @@
 package com.banking.account.dto;
 
+import com.banking.account.money.Money;
 import lombok.Data;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
@@ -15,10 +15,11 @@ public class TransactionDTO {
     private String id;
     private String accountNumber;
     private String transactionType;
-    private BigDecimal amount;
-    private BigDecimal balanceAfter;
+    private Money amount;
+    private Money balanceAfter;
     private String description;
     private String status;
     private String reference;
+    private String transferReference;
     private LocalDateTime timestamp;
 }
\ No newline at end of file
@@ -1,8 +1,8 @@
 package com.banking.account.dto;
 
+import com.banking.account.money.Money;
 import lombok.Data;
 import jakarta.validation.constraints.*;
-import java.math.BigDecimal;
 
 @Data
 public class TransactionRequest {
@@ -16,7 +16,7 @@ public class TransactionRequest {
 
     @NotNull(message = "Amount is required")
     @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
-    private BigDecimal amount;
+    private Money amount;
 
     private String description;
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.banking.account.dto;
+
+import com.banking.account.money.Money;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferDTO {
+    private String reference;  // Shared by both legs
+    private String fromAccountNumber;
+    private String toAccountNumber;
+    private Money amount;
+    private Money fromBalanceAfter;
+    private Money toBalanceAfter;
+    private String debitReference;
+    private String creditReference;
+}
@@ -0,0 +1,21 @@
+package com.banking.account.dto;
+
+import com.banking.account.money.Money;
+import lombok.Data;
+import jakarta.validation.constraints.*;
+
+@Data
+public class TransferRequest {
+
+    @NotBlank(message = "Source account number is required")
+    private String fromAccountNumber;
+
+    @NotBlank(message = "Destination account number is required")
+    private String toAccountNumber;
+
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    private Money amount;
+
+    private String description;
+}
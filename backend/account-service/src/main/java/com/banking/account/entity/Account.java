@@ -1,14 +1,18 @@
 package com.banking.account.entity;
 
+import com.banking.account.money.Money;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "accounts")
+@Table(name = "accounts", indexes = {
+        @Index(name = "idx_accounts_status", columnList = "status"),
+        // Interest accrual walks SAVINGS accounts in account number order
+        @Index(name = "idx_accounts_type_number", columnList = "accountType, accountNumber")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,8 +31,8 @@ public class Account {
     @Column(nullable = false, unique = true)
     private String email;
 
-    @Column(nullable = false)
-    private BigDecimal balance;
+    @Column(nullable = false, precision = 19, scale = 4)
+    private Money balance;
 
     @Column(nullable = false)
     private String accountType; // SAVINGS, CHECKING
@@ -41,6 +45,10 @@ public class Account {
 
     private LocalDateTime updatedAt;
 
+    // Checked on every entity UPDATE, the native balance updates in AccountRepository bump it too
+    @Version
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,34 @@
+package com.banking.account.entity;
+
+import com.banking.account.money.Money;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+// Running totals per account, kept in step with the transactions table on every write
+@Entity
+@Table(name = "account_summaries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountSummary {
+
+    @Id
+    private String accountNumber;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private Money totalDeposits;  // COMPLETED deposits only
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private Money totalWithdrawals;  // COMPLETED withdrawals only
+
+    @Column(nullable = false)
+    private long completedCount;
+
+    @Column(nullable = false)
+    private long failedCount;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,49 @@
+package com.banking.account.entity;
+
+import com.banking.account.money.Money;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// One slice of a hot account's balance. Deposits to the account land on a random shard instead
+// of the accounts row, so they lock different rows. Consolidation folds the shards back into
+// accounts.balance and account_summaries and zeroes them.
+@Entity
+// Reads of one account's shards by account number alone do not use the composite primary key
+@Table(name = "balance_shards", indexes = {
+        @Index(name = "idx_balance_shards_account", columnList = "account_number")
+})
+@IdClass(BalanceShard.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceShard {
+
+    @Id
+    private String accountNumber;
+
+    @Id
+    private int shard;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private Money balance;  // not yet folded into accounts.balance, never negative
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private Money deposits;  // completed deposits not yet folded into account_summaries
+
+    @Column(nullable = false)
+    private long depositCount;
+
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String accountNumber;
+        private int shard;
+    }
+}
@@ -0,0 +1,44 @@
+package com.banking.account.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One month's interest accrual and how far it got. Chunks commit on their own, the checkpoint
+// only moves past a chunk once every chunk before it has committed too, so a restarted run
+// carries on from the checkpoint and nothing before it is read again.
+@Entity
+@Table(name = "interest_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestRun {
+
+    @Id
+    @Column(name = "period")  // MONTH is a keyword in H2
+    private String month;  // yyyy-MM
+
+    @Column(nullable = false)
+    private String status;  // RUNNING, COMPLETED
+
+    @Column(nullable = false, precision = 9, scale = 6)
+    private BigDecimal annualRate;  // Fixed when the run starts, a resumed run keeps it
+
+    @Column(nullable = false)
+    private String checkpoint;  // Last account number of the committed prefix, "" before the first chunk
+
+    @Column(nullable = false)
+    private long accountsCredited;  // Up to the checkpoint
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal totalInterest;  // Up to the checkpoint
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime completedAt;
+}
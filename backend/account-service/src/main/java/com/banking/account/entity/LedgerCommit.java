@@ -0,0 +1,22 @@
+package com.banking.account.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+// Written by the transaction behind a prepared ledger group, see BalanceLedger. Recovery settles a
+// group the journal never saw settle only if its row is here. Deleted once a snapshot covers it.
+@Entity
+@Table(name = "ledger_commits")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerCommit {
+
+    @Id
+    private long groupSequence;  // Journal sequence of the group's PREPARE record
+
+    private LocalDateTime committedAt;
+}
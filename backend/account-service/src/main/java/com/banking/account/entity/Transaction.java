@@ -1,13 +1,22 @@
 package com.banking.account.entity;
 
+import com.banking.account.money.Money;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        // History, date-range and keyset pages: equality on account, ordered by (timestamp, id)
+        @Index(name = "idx_transactions_account_timestamp", columnList = "accountNumber, timestamp, id"),
+        // Type-filtered keyset pages: equality on account and type, ordered by (timestamp, id)
+        @Index(name = "idx_transactions_account_type_timestamp",
+                columnList = "accountNumber, transactionType, timestamp DESC, id DESC"),
+        // getTotalByType
+        @Index(name = "idx_transactions_account_type_status", columnList = "accountNumber, transactionType, status"),
+        @Index(name = "ux_transactions_reference", columnList = "reference", unique = true)
+})
 @Data
 @NoArgsConstructor
 public class Transaction {
@@ -26,9 +35,10 @@ public class Transaction {
     private String transactionType;  // DEPOSIT, WITHDRAWAL
 
     @Column(nullable = false, precision = 19, scale = 4)
-    private BigDecimal amount;
+    private Money amount;
 
-    private BigDecimal balanceAfter;  // Balance after transaction
+    @Column(precision = 19, scale = 4)
+    private Money balanceAfter;  // Balance after transaction
 
     private String description;
 
@@ -36,16 +46,18 @@ public class Transaction {
     private String status;  // COMPLETED, FAILED
 
     @Column(nullable = false)
-    private String reference;  // Unique transaction reference
+    private String reference;  // Unique transaction reference, assigned by ReferenceGenerator
+
+    private String transferReference;  // Shared by both legs of a transfer, null otherwise
 
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
     @PrePersist
     protected void onCreate() {
-        timestamp = LocalDateTime.now();
-        if (reference == null) {
-            reference = "TXN" + System.currentTimeMillis() + (int)(Math.random() * 1000);
+        // Rows written behind the request already carry the time they were accepted
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
         }
     }
 }
\ No newline at end of file
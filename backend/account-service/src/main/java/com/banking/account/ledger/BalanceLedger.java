@@ -0,0 +1,809 @@
+package com.banking.account.ledger;
+
+import com.banking.account.money.Money;
+import com.banking.account.service.TransactionResult;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Event-sourced balances: every mutation is appended to the journal, the current balance of
+// every account lives in memory. Startup loads the newest snapshot and replays the journal tail.
+//
+// Changes made inside a database transaction are prepared first: a prepared debit holds its amount
+// so concurrent debits cannot spend it twice, a prepared credit is not spendable until it commits,
+// and a rollback just drops the hold. Just before the transaction commits its changes are journaled
+// as a prepared group and forced, and the LedgerCommitLog notes the group inside the transaction.
+// A SETTLE record applies the group once the transaction has committed, an ABORT drops it. A crash
+// in between leaves the group in doubt, the next start settles it if the commit log has the note.
+//
+// Amounts are held as the minor units of Money, so the journal records them as they are.
+@Slf4j
+public class BalanceLedger implements Closeable {
+
+    private final LedgerJournal journal;
+    private final LedgerSnapshots snapshots;
+    private final boolean syncWrites;
+    private final LedgerCommitLog commitLog;
+    private final ConcurrentHashMap<String, Balance> balances;
+    // Groups journaled as prepared whose transaction has not completed, by the sequence of their
+    // PREPARE record. Snapshots carry them, a snapshot lets go of the segment holding that record.
+    private final ConcurrentHashMap<Long, List<Pending>> inFlight = new ConcurrentHashMap<>();
+
+    // Mutations share the read side; a snapshot takes the write side to copy a consistent cut
+    private final ReentrantReadWriteLock cutLock = new ReentrantReadWriteLock();
+    private final Object snapshotMonitor = new Object();
+
+    @Getter
+    private final long recoveredSequence;
+    @Getter
+    private final long recoveryMillis;
+
+    public static final class Update {
+        @Getter
+        private final TransactionResult.Outcome outcome;
+        @Getter
+        private final Money balance;
+
+        private Update(TransactionResult.Outcome outcome, Money balance) {
+            this.outcome = outcome;
+            this.balance = balance;
+        }
+    }
+
+    public static final class Transfer {
+        @Getter
+        private final TransactionResult.Outcome outcome;
+        @Getter
+        private final Money fromBalance;
+        @Getter
+        private final Money toBalance;
+
+        private Transfer(TransactionResult.Outcome outcome, Money fromBalance, Money toBalance) {
+            this.outcome = outcome;
+            this.fromBalance = fromBalance;
+            this.toBalance = toBalance;
+        }
+    }
+
+    // A checked change that is not journaled yet, settled with commit() or release(). For a
+    // transfer the balance is the source's and toBalance the target's, both as they will be
+    // once this change commits.
+    public static final class Pending {
+        @Getter
+        private final TransactionResult.Outcome outcome;
+        @Getter
+        private final Money balance;
+        @Getter
+        private final Money toBalance;
+
+        private final byte type;
+        private final String accountNumber;
+        private final String toAccountNumber;
+        private final long amount;
+        private final Balance from;
+        private final Balance to;
+        private boolean settled;
+
+        private Pending(TransactionResult.Outcome outcome, Money balance, Money toBalance) {
+            this(outcome, balance, toBalance, (byte) 0, null, null, 0, null, null);
+        }
+
+        private Pending(TransactionResult.Outcome outcome, Money balance, Money toBalance, byte type,
+                        String accountNumber, String toAccountNumber, long amount, Balance from, Balance to) {
+            this.outcome = outcome;
+            this.balance = balance;
+            this.toBalance = toBalance;
+            this.type = type;
+            this.accountNumber = accountNumber;
+            this.toAccountNumber = toAccountNumber;
+            this.amount = amount;
+            this.from = from;
+            this.to = to;
+            // Rejected changes hold nothing
+            this.settled = outcome != TransactionResult.Outcome.COMPLETED;
+        }
+    }
+
+    private static final class Balance {
+        private long amount;
+        // Prepared debits that are not committed yet
+        private long held;
+        private boolean closed;
+
+        private Balance(long amount) {
+            this.amount = amount;
+        }
+    }
+
+    private BalanceLedger(Path directory, int recordsPerChunk, int retainedSnapshots,
+                          boolean syncWrites, LedgerCommitLog commitLog) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        this.snapshots = new LedgerSnapshots(directory, retainedSnapshots);
+        this.syncWrites = syncWrites;
+        this.commitLog = commitLog;
+
+        LedgerSnapshots.Snapshot snapshot = snapshots.loadLatest();
+        Map<String, Long> loaded = snapshot.balances;
+        this.balances = new ConcurrentHashMap<>(Math.max(16, (int) (loaded.size() / 0.75f) + 1));
+        loaded.forEach((accountNumber, amount) -> balances.put(accountNumber, new Balance(amount)));
+
+        Recovery recovery = new Recovery(snapshot.prepared);
+        this.journal = LedgerJournal.open(directory, recordsPerChunk,
+                snapshot.sequence, recovery);
+        this.recoveredSequence = journal.getLastSequence();
+        int inDoubt = recovery.resolve();
+        this.recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Ledger recovered {} accounts at sequence {} (snapshot {}, replayed {}, {} groups in doubt) in {} ms",
+                balances.size(), recoveredSequence, snapshot.sequence,
+                recoveredSequence - snapshot.sequence, inDoubt, recoveryMillis);
+    }
+
+    // Without a commit log a group the journal never saw settle is dropped on recovery
+    public static BalanceLedger open(Path directory, int recordsPerChunk, int retainedSnapshots,
+                                     boolean syncWrites) throws IOException {
+        return open(directory, recordsPerChunk, retainedSnapshots, syncWrites, LedgerCommitLog.NONE);
+    }
+
+    public static BalanceLedger open(Path directory, int recordsPerChunk, int retainedSnapshots,
+                                     boolean syncWrites, LedgerCommitLog commitLog) throws IOException {
+        return new BalanceLedger(directory, recordsPerChunk, retainedSnapshots, syncWrites, commitLog);
+    }
+
+    // Registers an account with its opening balance. Returns false if the ledger already has it.
+    public boolean open(String accountNumber, Money initialBalance) {
+        long amount = initialBalance.getUnits();
+        long sequence;
+        cutLock.readLock().lock();
+        try {
+            Balance balance = new Balance(amount);
+            // Held before the balance is published, so no credit can be journaled ahead of the OPEN
+            synchronized (balance) {
+                if (balances.putIfAbsent(accountNumber, balance) != null) {
+                    return false;
+                }
+                sequence = journal.append(LedgerJournal.OPEN, accountNumber, amount);
+            }
+        } finally {
+            cutLock.readLock().unlock();
+        }
+        sync(sequence);
+        return true;
+    }
+
+    public Update credit(String accountNumber, Money value) {
+        return credit(accountNumber, value, true);
+    }
+
+    public Update debit(String accountNumber, Money value) {
+        return debit(accountNumber, value, true);
+    }
+
+    // With sync false the caller must call sync() before acknowledging, batches use this to
+    // wait for one force instead of one per item
+    public Update credit(String accountNumber, Money value, boolean sync) {
+        return apply(LedgerJournal.CREDIT, accountNumber, value.getUnits(), sync);
+    }
+
+    public Update debit(String accountNumber, Money value, boolean sync) {
+        return apply(LedgerJournal.DEBIT, accountNumber, value.getUnits(), sync);
+    }
+
+    // Moves the amount between two accounts as one step: both monitors are taken in account-number
+    // order, so opposing transfers cannot deadlock, and both records are journaled together
+    public Transfer transfer(String fromAccountNumber, String toAccountNumber, Money value, boolean sync) {
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        long amount = value.getUnits();
+        long sequence;
+        long fromAfter;
+        long toAfter;
+        cutLock.readLock().lock();
+        try {
+            Balance from = balances.get(fromAccountNumber);
+            Balance to = balances.get(toAccountNumber);
+            if (from == null || to == null) {
+                return new Transfer(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null, null);
+            }
+            boolean fromFirst = fromAccountNumber.compareTo(toAccountNumber) < 0;
+            synchronized (fromFirst ? from : to) {
+                synchronized (fromFirst ? to : from) {
+                    if (from.closed || to.closed) {
+                        return new Transfer(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null, null);
+                    }
+                    if (from.amount - from.held < amount) {
+                        return new Transfer(TransactionResult.Outcome.INSUFFICIENT_FUNDS,
+                                Money.ofUnits(from.amount - from.held), Money.ofUnits(to.amount - to.held));
+                    }
+                    fromAfter = from.amount - amount;
+                    toAfter = Math.addExact(to.amount, amount);
+                    sequence = journal.appendTransfer(fromAccountNumber, toAccountNumber, amount);
+                    from.amount = fromAfter;
+                    to.amount = toAfter;
+                }
+            }
+        } finally {
+            cutLock.readLock().unlock();
+        }
+        if (sync) {
+            sync(sequence);
+        }
+        return new Transfer(TransactionResult.Outcome.COMPLETED, Money.ofUnits(fromAfter), Money.ofUnits(toAfter));
+    }
+
+    public Pending prepareCredit(String accountNumber, Money value) {
+        return prepareCredit(accountNumber, value, Money.ZERO);
+    }
+
+    public Pending prepareDebit(String accountNumber, Money value) {
+        return prepareDebit(accountNumber, value, Money.ZERO);
+    }
+
+    // unsettled is the sum of credits to this account prepared earlier in the same database
+    // transaction: they commit or roll back together with this change, so it may count on them
+    public Pending prepareCredit(String accountNumber, Money value, Money unsettled) {
+        Balance balance = balances.get(accountNumber);
+        if (balance == null) {
+            return new Pending(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null, null);
+        }
+        synchronized (balance) {
+            if (balance.closed) {
+                return new Pending(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null, null);
+            }
+            long after = Math.addExact(balance.amount - balance.held + unsettled.getUnits(), value.getUnits());
+            return new Pending(TransactionResult.Outcome.COMPLETED, Money.ofUnits(after), null,
+                    LedgerJournal.CREDIT, accountNumber, null, value.getUnits(), balance, null);
+        }
+    }
+
+    public Pending prepareDebit(String accountNumber, Money value, Money unsettled) {
+        long amount = value.getUnits();
+        Balance balance = balances.get(accountNumber);
+        if (balance == null) {
+            return new Pending(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null, null);
+        }
+        synchronized (balance) {
+            if (balance.closed) {
+                return new Pending(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null, null);
+            }
+            long available = balance.amount - balance.held + unsettled.getUnits();
+            if (available < amount) {
+                return new Pending(TransactionResult.Outcome.INSUFFICIENT_FUNDS, Money.ofUnits(available), null);
+            }
+            balance.held += amount;
+            return new Pending(TransactionResult.Outcome.COMPLETED, Money.ofUnits(available - amount), null,
+                    LedgerJournal.DEBIT, accountNumber, null, amount, balance, null);
+        }
+    }
+
+    // Monitors are taken in account-number order, as transfer() does
+    public Pending prepareTransfer(String fromAccountNumber, String toAccountNumber, Money value) {
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        long amount = value.getUnits();
+        Balance from = balances.get(fromAccountNumber);
+        Balance to = balances.get(toAccountNumber);
+        if (from == null || to == null) {
+            return new Pending(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null, null);
+        }
+        boolean fromFirst = fromAccountNumber.compareTo(toAccountNumber) < 0;
+        synchronized (fromFirst ? from : to) {
+            synchronized (fromFirst ? to : from) {
+                if (from.closed || to.closed) {
+                    return new Pending(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null, null);
+                }
+                long fromAvailable = from.amount - from.held;
+                long toAvailable = to.amount - to.held;
+                if (fromAvailable < amount) {
+                    return new Pending(TransactionResult.Outcome.INSUFFICIENT_FUNDS,
+                            Money.ofUnits(fromAvailable), Money.ofUnits(toAvailable));
+                }
+                from.held += amount;
+                return new Pending(TransactionResult.Outcome.COMPLETED, Money.ofUnits(fromAvailable - amount),
+                        Money.ofUnits(Math.addExact(toAvailable, amount)), LedgerJournal.DEBIT,
+                        fromAccountNumber, toAccountNumber, amount, from, to);
+            }
+        }
+    }
+
+    // Journals and applies prepared changes in order, then waits for one force covering them all.
+    // A change whose account was closed in the meantime is dropped.
+    public void commit(List<Pending> changes) {
+        long sequence = 0;
+        cutLock.readLock().lock();
+        try {
+            for (Pending change : changes) {
+                if (change.settled) {
+                    continue;
+                }
+                change.settled = true;
+                sequence = Math.max(sequence, change.to != null
+                        ? commitTransfer(change, true) : commitSingle(change, true));
+            }
+        } finally {
+            cutLock.readLock().unlock();
+        }
+        if (sequence > 0) {
+            sync(sequence);
+        }
+    }
+
+    // Journaled as a prepared group just before the caller's transaction commits, settled once it
+    // has and dropped if it rolls back, so the ledger never changes a balance without the transaction
+    // row recording it. A retried attempt prepares anew.
+    public void settleOnCompletion(List<Pending> changes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commit(changes);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long group;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                group = journalPrepared(changes);
+                if (group > 0) {
+                    commitLog.recordCommit(group);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // When the commit's outcome is unknown, the note it would have written tells
+                boolean committed = status == STATUS_COMMITTED || (status == STATUS_UNKNOWN && group > 0
+                        && commitLog.findCommitted(List.of(group)).contains(group));
+                if (committed) {
+                    commitPrepared(group, changes);
+                } else {
+                    abortPrepared(group, changes);
+                }
+            }
+        });
+    }
+
+    // Journals the unsettled changes as one prepared group and waits until it is durable. Returns
+    // the sequence that names the group, 0 if there was nothing to journal. A change whose account
+    // was closed since it was prepared is left out, settling the group drops it anyway.
+    public long journalPrepared(List<Pending> changes) {
+        long group;
+        long last;
+        cutLock.readLock().lock();
+        try {
+            List<Pending> members = new ArrayList<>(changes.size());
+            int records = 0;
+            for (Pending change : changes) {
+                if (!change.settled && !change.from.closed && (change.to == null || !change.to.closed)) {
+                    members.add(change);
+                    records += change.to != null ? 2 : 1;
+                }
+            }
+            if (members.isEmpty()) {
+                return 0;
+            }
+            byte[] types = new byte[records];
+            String[] accountNumbers = new String[records];
+            long[] amounts = new long[records];
+            int i = 0;
+            for (Pending change : members) {
+                types[i] = change.type == LedgerJournal.CREDIT ? LedgerJournal.PREPARED_CREDIT : LedgerJournal.PREPARED_DEBIT;
+                accountNumbers[i] = change.accountNumber;
+                amounts[i++] = change.amount;
+                if (change.to != null) {
+                    types[i] = LedgerJournal.PREPARED_TRANSFER;
+                    accountNumbers[i] = change.toAccountNumber;
+                    amounts[i++] = change.amount;
+                }
+            }
+            group = journal.appendPrepared(types, accountNumbers, amounts);
+            last = group + records;
+            inFlight.put(group, members);
+        } finally {
+            cutLock.readLock().unlock();
+        }
+        sync(last);
+        return group;
+    }
+
+    // The group's transaction committed: journals its SETTLE and applies the changes. The SETTLE is
+    // not waited for, should it be lost the commit log still settles the group on recovery. A group
+    // settleCommitted() got to first is left alone.
+    public void commitPrepared(long group, List<Pending> changes) {
+        cutLock.readLock().lock();
+        try {
+            if (group > 0) {
+                if (inFlight.remove(group) == null) {
+                    return;
+                }
+                journal.append(LedgerJournal.SETTLE, "", group);
+            }
+            for (Pending change : changes) {
+                if (change.settled) {
+                    continue;
+                }
+                change.settled = true;
+                if (change.to != null) {
+                    commitTransfer(change, false);
+                } else {
+                    commitSingle(change, false);
+                }
+            }
+        } finally {
+            cutLock.readLock().unlock();
+        }
+    }
+
+    // The group's transaction rolled back: journals its ABORT and gives the holds back
+    public void abortPrepared(long group, List<Pending> changes) {
+        if (group > 0) {
+            cutLock.readLock().lock();
+            try {
+                if (inFlight.remove(group) != null) {
+                    journal.append(LedgerJournal.ABORT, "", group);
+                }
+            } finally {
+                cutLock.readLock().unlock();
+            }
+        }
+        release(changes);
+    }
+
+    // Settles the groups in flight whose transaction the commit log shows committed, as recovery
+    // would. Their completion never reached the ledger, e.g. because appending the SETTLE failed, and
+    // without this the balances would miss changes the database already records until a restart.
+    // Returns the number of groups settled.
+    public int settleCommitted() {
+        if (inFlight.isEmpty()) {
+            return 0;
+        }
+        int settled = 0;
+        for (long group : commitLog.findCommitted(List.copyOf(inFlight.keySet()))) {
+            List<Pending> changes = inFlight.get(group);
+            if (changes != null) {
+                commitPrepared(group, changes);
+                settled++;
+            }
+        }
+        if (settled > 0) {
+            log.warn("Settled {} committed ledger groups whose completion was lost", settled);
+        }
+        return settled;
+    }
+
+    // Drops prepared changes, their holds are given back
+    public void release(List<Pending> changes) {
+        for (Pending change : changes) {
+            if (change.settled) {
+                continue;
+            }
+            change.settled = true;
+            if (change.type == LedgerJournal.DEBIT) {
+                synchronized (change.from) {
+                    change.from.held -= change.amount;
+                }
+            }
+        }
+    }
+
+    // Waits until everything appended so far is on disk, if writes are synced at all
+    public void sync() {
+        sync(journal.getLastSequence());
+    }
+
+    // Takes the cut lock exclusively, so a prepared group settles wholly before or wholly after the
+    // close, as replay sees it
+    public void close(String accountNumber) {
+        long sequence;
+        cutLock.writeLock().lock();
+        try {
+            Balance balance = balances.get(accountNumber);
+            if (balance == null) {
+                return;
+            }
+            synchronized (balance) {
+                if (balance.closed) {
+                    return;
+                }
+                balance.closed = true;
+                balances.remove(accountNumber, balance);
+                sequence = journal.append(LedgerJournal.CLOSE, accountNumber, 0);
+            }
+        } finally {
+            cutLock.writeLock().unlock();
+        }
+        sync(sequence);
+    }
+
+    public Optional<Money> balanceOf(String accountNumber) {
+        Balance balance = balances.get(accountNumber);
+        if (balance == null) {
+            return Optional.empty();
+        }
+        synchronized (balance) {
+            return Optional.of(Money.ofUnits(balance.amount));
+        }
+    }
+
+    public boolean contains(String accountNumber) {
+        return balances.containsKey(accountNumber);
+    }
+
+    public int size() {
+        return balances.size();
+    }
+
+    public long getLastSequence() {
+        return journal.getLastSequence();
+    }
+
+    // Writes a snapshot of every balance and returns the journal sequence it covers.
+    // Mutations pause only while the map is copied, the file is written afterwards. Only committed
+    // amounts are copied, holds are not journaled, and groups still in flight go along unapplied.
+    // The journal moves onto a new segment at the cut, and segments the oldest kept snapshot covers
+    // are deleted once the new one is in place.
+    public long snapshot() {
+        synchronized (snapshotMonitor) {
+            Map<String, Long> copy;
+            Map<Long, List<LedgerSnapshots.Change>> prepared = new HashMap<>();
+            long sequence;
+            cutLock.writeLock().lock();
+            try {
+                sequence = journal.getLastSequence();
+                copy = new HashMap<>(Math.max(16, (int) (balances.size() / 0.75f) + 1));
+                balances.forEach((accountNumber, balance) -> copy.put(accountNumber, balance.amount));
+                inFlight.forEach((group, changes) -> {
+                    List<LedgerSnapshots.Change> open = new ArrayList<>(changes.size());
+                    for (Pending change : changes) {
+                        // Settling drops a change to a closed account, recovery need not see it
+                        if (!change.from.closed && (change.to == null || !change.to.closed)) {
+                            open.add(new LedgerSnapshots.Change(change.type, change.accountNumber,
+                                    change.toAccountNumber, change.amount));
+                        }
+                    }
+                    prepared.put(group, open);
+                });
+                journal.roll();
+            } finally {
+                cutLock.writeLock().unlock();
+            }
+            // Every group before the oldest one in flight has settled in the journal up to the cut
+            long settledBefore = prepared.keySet().stream().min(Long::compare).orElse(sequence + 1);
+            int deleted;
+            try {
+                // A snapshot must not cover records that could still be lost
+                journal.awaitDurable(sequence);
+                snapshots.write(sequence, copy, prepared);
+                deleted = journal.deleteThrough(snapshots.oldestSequence());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write ledger snapshot", e);
+            }
+            commitLog.deleteBefore(settledBefore);
+            log.info("Ledger snapshot written at sequence {} with {} accounts, {} journal segments deleted",
+                    sequence, copy.size(), deleted);
+            return sequence;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    // The journal append happens under the account's monitor, so records for one account are
+    // journaled in the order they were applied. Replay order across accounts does not matter.
+    private Update apply(byte type, String accountNumber, long amount, boolean sync) {
+        long sequence;
+        long after;
+        cutLock.readLock().lock();
+        try {
+            Balance balance = balances.get(accountNumber);
+            if (balance == null) {
+                return new Update(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null);
+            }
+            synchronized (balance) {
+                // Lost a race with close()
+                if (balance.closed) {
+                    return new Update(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null);
+                }
+                if (type == LedgerJournal.DEBIT && balance.amount - balance.held < amount) {
+                    return new Update(TransactionResult.Outcome.INSUFFICIENT_FUNDS,
+                            Money.ofUnits(balance.amount - balance.held));
+                }
+                after = type == LedgerJournal.DEBIT
+                        ? balance.amount - amount
+                        : Math.addExact(balance.amount, amount);
+                sequence = journal.append(type, accountNumber, amount);
+                balance.amount = after;
+            }
+        } finally {
+            cutLock.readLock().unlock();
+        }
+        // Wait outside the locks so concurrent writers pile into the same force
+        if (sync) {
+            sync(sequence);
+        }
+        return new Update(TransactionResult.Outcome.COMPLETED, Money.ofUnits(after));
+    }
+
+    // Under the cut lock. Returns the sequence journaled, 0 if the change was dropped or append is
+    // false because the group's SETTLE stands for it.
+    private long commitSingle(Pending change, boolean append) {
+        Balance balance = change.from;
+        synchronized (balance) {
+            if (change.type == LedgerJournal.DEBIT) {
+                balance.held -= change.amount;
+            }
+            if (balance.closed) {
+                log.warn("Dropped {} of {} units for closed account {}", change.type == LedgerJournal.DEBIT
+                        ? "debit" : "credit", change.amount, change.accountNumber);
+                return 0;
+            }
+            long sequence = append ? journal.append(change.type, change.accountNumber, change.amount) : 0;
+            balance.amount = change.type == LedgerJournal.DEBIT
+                    ? balance.amount - change.amount
+                    : Math.addExact(balance.amount, change.amount);
+            return sequence;
+        }
+    }
+
+    // Under the cut lock, as commitSingle
+    private long commitTransfer(Pending change, boolean append) {
+        Balance from = change.from;
+        Balance to = change.to;
+        boolean fromFirst = change.accountNumber.compareTo(change.toAccountNumber) < 0;
+        synchronized (fromFirst ? from : to) {
+            synchronized (fromFirst ? to : from) {
+                from.held -= change.amount;
+                if (from.closed || to.closed) {
+                    log.warn("Dropped transfer of {} units from {} to {}, an account was closed",
+                            change.amount, change.accountNumber, change.toAccountNumber);
+                    return 0;
+                }
+                long sequence = append
+                        ? journal.appendTransfer(change.accountNumber, change.toAccountNumber, change.amount) : 0;
+                from.amount -= change.amount;
+                to.amount = Math.addExact(to.amount, change.amount);
+                return sequence;
+            }
+        }
+    }
+
+    private void sync(long sequence) {
+        if (syncWrites) {
+            journal.awaitDurable(sequence);
+        }
+    }
+
+    // Replays the journal after the snapshot. A prepared group waits for its SETTLE or ABORT, the
+    // groups still waiting at the end are in doubt and settled by what the commit log knows. Changes
+    // are bound to the balance objects of their accounts when prepared, as live ones are, so a
+    // change to an account closed since is dropped even if the number was opened again.
+    private final class Recovery implements LedgerJournal.RecordHandler {
+        private final TreeMap<Long, List<Pending>> prepared = new TreeMap<>();
+        private List<Pending> group;
+        private long groupSequence;
+        private long remaining;
+
+        private Recovery(Map<Long, List<LedgerSnapshots.Change>> fromSnapshot) {
+            fromSnapshot.forEach((sequence, changes) -> {
+                List<Pending> restored = new ArrayList<>(changes.size());
+                for (LedgerSnapshots.Change change : changes) {
+                    restored.add(recovered(change.type, change.accountNumber, change.toAccountNumber, change.amount));
+                }
+                prepared.put(sequence, restored);
+            });
+        }
+
+        @Override
+        public void accept(long sequence, byte type, String accountNumber, long amount) {
+            if (remaining > 0) {
+                switch (type) {
+                    case LedgerJournal.PREPARED_CREDIT -> group.add(recovered(LedgerJournal.CREDIT, accountNumber, null, amount));
+                    case LedgerJournal.PREPARED_DEBIT -> group.add(recovered(LedgerJournal.DEBIT, accountNumber, null, amount));
+                    case LedgerJournal.PREPARED_TRANSFER -> {
+                        Pending debit = group.remove(group.size() - 1);
+                        group.add(recovered(LedgerJournal.DEBIT, debit.accountNumber, accountNumber, amount));
+                    }
+                    default -> {
+                        // Torn before it was forced, its transaction never got to commit
+                        remaining = 0;
+                        group = null;
+                    }
+                }
+                if (remaining > 0) {
+                    if (--remaining == 0) {
+                        prepared.put(groupSequence, group);
+                        group = null;
+                    }
+                    return;
+                }
+            }
+            switch (type) {
+                case LedgerJournal.OPEN -> balances.put(accountNumber, new Balance(amount));
+                case LedgerJournal.CREDIT -> balances.computeIfAbsent(accountNumber, key -> new Balance(0)).amount += amount;
+                case LedgerJournal.DEBIT -> balances.computeIfAbsent(accountNumber, key -> new Balance(0)).amount -= amount;
+                case LedgerJournal.CLOSE -> {
+                    Balance closed = balances.remove(accountNumber);
+                    if (closed != null) {
+                        closed.closed = true;
+                    }
+                }
+                case LedgerJournal.PREPARE -> {
+                    group = new ArrayList<>();
+                    groupSequence = sequence;
+                    remaining = amount;
+                }
+                case LedgerJournal.SETTLE -> {
+                    List<Pending> settled = prepared.remove(amount);
+                    if (settled != null) {
+                        settled.forEach(this::apply);
+                    }
+                }
+                case LedgerJournal.ABORT -> prepared.remove(amount);
+                default -> throw new IllegalStateException("Unknown ledger record type " + type + " at sequence " + sequence);
+            }
+        }
+
+        // Journals the outcome of every group in doubt, so the next start does not ask again
+        private int resolve() {
+            if (prepared.isEmpty()) {
+                return 0;
+            }
+            Set<Long> committed = commitLog.findCommitted(prepared.keySet());
+            long sequence = 0;
+            for (Map.Entry<Long, List<Pending>> entry : prepared.entrySet()) {
+                if (committed.contains(entry.getKey())) {
+                    entry.getValue().forEach(this::apply);
+                    sequence = journal.append(LedgerJournal.SETTLE, "", entry.getKey());
+                } else {
+                    sequence = journal.append(LedgerJournal.ABORT, "", entry.getKey());
+                }
+            }
+            sync(sequence);
+            log.info("Settled {} of {} prepared ledger groups left in doubt, dropped the rest",
+                    committed.size(), prepared.size());
+            return prepared.size();
+        }
+
+        private Pending recovered(byte type, String accountNumber, String toAccountNumber, long amount) {
+            return new Pending(TransactionResult.Outcome.COMPLETED, null, null, type, accountNumber,
+                    toAccountNumber, amount, balances.get(accountNumber),
+                    toAccountNumber != null ? balances.get(toAccountNumber) : null);
+        }
+
+        // As commitSingle and commitTransfer, without holds: recovery never took any
+        private void apply(Pending change) {
+            if (change.from == null || change.from.closed) {
+                return;
+            }
+            if (change.toAccountNumber != null) {
+                if (change.to == null || change.to.closed) {
+                    return;
+                }
+                change.from.amount -= change.amount;
+                change.to.amount = Math.addExact(change.to.amount, change.amount);
+            } else if (change.type == LedgerJournal.DEBIT) {
+                change.from.amount -= change.amount;
+            } else {
+                change.from.amount = Math.addExact(change.from.amount, change.amount);
+            }
+        }
+    }
+}
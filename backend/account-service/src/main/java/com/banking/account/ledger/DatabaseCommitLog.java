@@ -0,0 +1,31 @@
+package com.banking.account.ledger;
+
+import com.banking.account.repository.LedgerCommitRepository;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+// Keeps the commit notes in the datasource, next to the transaction rows they vouch for
+@RequiredArgsConstructor
+class DatabaseCommitLog implements LedgerCommitLog {
+
+    private final LedgerCommitRepository ledgerCommitRepository;
+
+    @Override
+    public void recordCommit(long group) {
+        ledgerCommitRepository.insertCommit(group, LocalDateTime.now());
+    }
+
+    @Override
+    public Set<Long> findCommitted(Collection<Long> groups) {
+        return new HashSet<>(ledgerCommitRepository.findCommittedGroups(groups));
+    }
+
+    @Override
+    public void deleteBefore(long group) {
+        ledgerCommitRepository.deleteBefore(group);
+    }
+}
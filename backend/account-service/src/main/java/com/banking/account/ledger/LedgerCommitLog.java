@@ -0,0 +1,35 @@
+package com.banking.account.ledger;
+
+import java.util.Collection;
+import java.util.Set;
+
+// Where BalanceLedger notes that the transaction behind a prepared group committed. The note is
+// written inside that transaction, so it exists exactly when the transaction committed, and is
+// what recovery asks about groups the journal never saw settle.
+public interface LedgerCommitLog {
+
+    // Keeps nothing, so groups a crash leaves in doubt are dropped. For a ledger used on its own.
+    LedgerCommitLog NONE = new LedgerCommitLog() {
+        @Override
+        public void recordCommit(long group) {
+        }
+
+        @Override
+        public Set<Long> findCommitted(Collection<Long> groups) {
+            return Set.of();
+        }
+
+        @Override
+        public void deleteBefore(long group) {
+        }
+    };
+
+    // Runs in the committing transaction, after the group's PREPARE is durable
+    void recordCommit(long group);
+
+    // Those of the given groups whose transaction committed
+    Set<Long> findCommitted(Collection<Long> groups);
+
+    // Every group before this one has settled in the journal and needs no note any more
+    void deleteBefore(long group);
+}
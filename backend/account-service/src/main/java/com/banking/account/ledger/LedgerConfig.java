@@ -0,0 +1,58 @@
+package com.banking.account.ledger;
+
+import com.banking.account.entity.Account;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.LedgerCommitRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Ledger mode: balances are held by BalanceLedger instead of being updated in the accounts table.
+// Account metadata still lives in the datasource, so pair this with a persistent database URL.
+@Configuration
+@ConditionalOnProperty(prefix = "banking.ledger", name = "enabled", havingValue = "true")
+@Slf4j
+public class LedgerConfig {
+
+    @Bean(destroyMethod = "close")
+    public BalanceLedger balanceLedger(
+            @Value("${banking.ledger.directory:./data/ledger}") Path directory,
+            @Value("${banking.ledger.records-per-chunk:1048576}") int recordsPerChunk,
+            @Value("${banking.ledger.retained-snapshots:2}") int retainedSnapshots,
+            @Value("${banking.ledger.sync-writes:true}") boolean syncWrites,
+            LedgerCommitRepository ledgerCommitRepository) throws IOException {
+        return BalanceLedger.open(directory, recordsPerChunk, retainedSnapshots, syncWrites,
+                new DatabaseCommitLog(ledgerCommitRepository));
+    }
+
+    @Bean(destroyMethod = "close")
+    public LedgerSnapshotScheduler ledgerSnapshotScheduler(
+            BalanceLedger balanceLedger,
+            @Value("${banking.ledger.snapshot-interval:5m}") Duration interval) {
+        return new LedgerSnapshotScheduler(balanceLedger, interval);
+    }
+
+    // Accounts that predate ledger mode are opened with their stored balance
+    @Bean
+    public ApplicationRunner ledgerAccountSeeder(BalanceLedger balanceLedger, AccountRepository accountRepository) {
+        return args -> {
+            int opened = 0;
+            for (Account account : accountRepository.findAll()) {
+                if (!balanceLedger.contains(account.getAccountNumber())
+                        && balanceLedger.open(account.getAccountNumber(), account.getBalance())) {
+                    opened++;
+                }
+            }
+            if (opened > 0) {
+                log.info("Opened {} existing accounts in the ledger", opened);
+            }
+        };
+    }
+}
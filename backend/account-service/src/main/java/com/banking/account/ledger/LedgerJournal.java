@@ -0,0 +1,388 @@
+package com.banking.account.ledger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Append-only journal of balance mutations in memory-mapped segment files.
+//
+// Each segment is named after the sequence of its first record. Records are fixed size, so record
+// n of a segment starting at f lives at offset (n - f) * RECORD_SIZE and replay from a snapshot
+// seeks straight to its tail. Each record carries a CRC32C, replay stops at the first record that
+// is missing or torn. A snapshot rolls the journal onto a new segment, and segments every
+// retained snapshot already covers are deleted, so the journal does not grow without bound.
+//
+// Layout: sequence(8) timestamp(8) amount(8) type(1) accountLength(1) account(32) reserved(2) crc(4)
+//
+// Durability is group commit: append() only writes into the mapping, awaitDurable() makes one
+// waiting thread the leader that forces everything appended so far, the rest wait for it.
+//
+// Changes made in a database transaction are journaled in two steps, see BalanceLedger: a PREPARE
+// header counting the PREPARED_* records that follow it, then a SETTLE or ABORT naming the header
+// by its sequence once the transaction has completed.
+public class LedgerJournal implements Closeable {
+
+    public static final int RECORD_SIZE = 64;
+    public static final int MAX_ACCOUNT_LENGTH = 32;
+
+    public static final byte OPEN = 1;
+    public static final byte CREDIT = 2;
+    public static final byte DEBIT = 3;
+    public static final byte CLOSE = 4;
+    public static final byte PREPARE = 5;
+    public static final byte PREPARED_CREDIT = 6;
+    public static final byte PREPARED_DEBIT = 7;
+    // Credit leg of a prepared transfer, follows the PREPARED_DEBIT of its source
+    public static final byte PREPARED_TRANSFER = 8;
+    public static final byte SETTLE = 9;
+    public static final byte ABORT = 10;
+
+    private static final int ACCOUNT_OFFSET = 26;
+    private static final int CRC_OFFSET = 60;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    // Written before the journal was split into segments, holds everything from sequence 1
+    private static final String LEGACY_FILE = "journal.dat";
+
+    private final Path directory;
+    private final long chunkSize;
+
+    // Guarded by this
+    private FileChannel channel;
+    private long segmentFirst;
+    // Segments before the active one by first sequence, with their channel if written since open
+    private final TreeMap<Long, FileChannel> retired = new TreeMap<>();
+    private MappedByteBuffer chunk;
+    private long chunkBase;
+    private long lastSequence;
+    // Chunks with writes that are not forced yet, oldest first
+    private final Deque<Chunk> unforced = new ArrayDeque<>();
+
+    // Guarded by flushMonitor, held by the thread forcing the mapping
+    private final Object flushMonitor = new Object();
+    private long durableSequence;
+
+    private LedgerJournal(Path directory, long chunkSize, TreeMap<Long, Path> earlier,
+                          long segmentFirst, long lastSequence) throws IOException {
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        earlier.keySet().forEach(first -> retired.put(first, null));
+        this.segmentFirst = segmentFirst;
+        this.channel = openSegment(segmentFirst);
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        mapChunkFor((lastSequence + 1 - segmentFirst) * RECORD_SIZE);
+    }
+
+    // Replays the records after afterSequence (the sequence a snapshot covers, or 0) through
+    // the handler, then opens the journal for appending after the last valid record
+    public static LedgerJournal open(Path directory, int recordsPerChunk, long afterSequence,
+                                     RecordHandler handler) throws IOException {
+        if (recordsPerChunk <= 0) {
+            throw new IllegalArgumentException("Records per chunk must be greater than 0");
+        }
+        Path legacy = directory.resolve(LEGACY_FILE);
+        if (Files.exists(legacy)) {
+            Files.move(legacy, segmentFile(directory, 1), StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        TreeMap<Long, Path> segments = listSegments(directory);
+        long expected = afterSequence + 1;
+        Long active = null;
+        for (Iterator<Map.Entry<Long, Path>> it = segments.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Path> segment = it.next();
+            long first = segment.getKey();
+            if (active != null) {
+                // Replay stopped at a torn record in an earlier segment, what follows it is lost
+                // just as the tail of a single file would be, and appends continue from there
+                Files.delete(segment.getValue());
+                it.remove();
+                continue;
+            }
+            Long next = segments.higherKey(first);
+            if (next != null && next <= expected) {
+                continue;   // Covered by the snapshot
+            }
+            if (first > expected) {
+                throw new IOException("Ledger journal is missing records " + expected + " to " + (first - 1));
+            }
+            try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                expected = replay(channel, first, expected, handler) + 1;
+            }
+            if (next == null || expected < next) {
+                active = first;
+            }
+        }
+        if (active == null) {
+            active = expected;
+        }
+        return new LedgerJournal(directory, (long) recordsPerChunk * RECORD_SIZE,
+                new TreeMap<>(segments.headMap(active)), active, expected - 1);
+    }
+
+    static Path segmentFile(Path directory, long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private static TreeMap<Long, Path> listSegments(Path directory) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())), path);
+                }
+            });
+        }
+        return segments;
+    }
+
+    // Replays the records of one segment from sequence expected on and returns the last valid one
+    private static long replay(FileChannel channel, long segmentFirst, long expected,
+                               RecordHandler handler) throws IOException {
+        long size = channel.size();
+        long position = (expected - segmentFirst) * RECORD_SIZE;
+        byte[] account = new byte[MAX_ACCOUNT_LENGTH];
+        CRC32C crc = new CRC32C();
+
+        // Map in windows of whole records, a single mapping is limited to 2 GB
+        long window = (Integer.MAX_VALUE / RECORD_SIZE) * (long) RECORD_SIZE;
+        while (position + RECORD_SIZE <= size) {
+            long length = Math.min(window, (size - position) / RECORD_SIZE * RECORD_SIZE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int offset = 0; offset < length; offset += RECORD_SIZE) {
+                long sequence = buffer.getLong(offset);
+                crc.reset();
+                buffer.limit(offset + CRC_OFFSET).position(offset);
+                crc.update(buffer);
+                buffer.clear();
+                if (sequence != expected || buffer.getInt(offset + CRC_OFFSET) != (int) crc.getValue()) {
+                    return expected - 1;
+                }
+                byte type = buffer.get(offset + 24);
+                int accountLength = buffer.get(offset + 25);
+                buffer.get(offset + ACCOUNT_OFFSET, account, 0, accountLength);
+                handler.accept(sequence, type,
+                        new String(account, 0, accountLength, StandardCharsets.US_ASCII), buffer.getLong(offset + 16));
+                expected++;
+            }
+            position += length;
+        }
+        return expected - 1;
+    }
+
+    // Writes one record into the mapping and returns its sequence. Not durable until awaitDurable().
+    public synchronized long append(byte type, String accountNumber, long amount) {
+        checkAccountNumber(accountNumber);
+        return write(type, accountNumber, amount);
+    }
+
+    // Writes the debit and credit of a transfer back to back under one lock, so a force covers
+    // both records or neither. Returns the sequence of the credit.
+    public synchronized long appendTransfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        checkAccountNumber(fromAccountNumber);
+        checkAccountNumber(toAccountNumber);
+        write(DEBIT, fromAccountNumber, amount);
+        return write(CREDIT, toAccountNumber, amount);
+    }
+
+    // Writes a PREPARE header with the member count and then the members, back to back under one
+    // lock so no other record lands inside the group. Returns the sequence of the header.
+    public synchronized long appendPrepared(byte[] types, String[] accountNumbers, long[] amounts) {
+        for (String accountNumber : accountNumbers) {
+            checkAccountNumber(accountNumber);
+        }
+        long header = write(PREPARE, "", types.length);
+        for (int i = 0; i < types.length; i++) {
+            write(types[i], accountNumbers[i], amounts[i]);
+        }
+        return header;
+    }
+
+    // Starts a new segment after the last record, so segments that a snapshot covers can be
+    // deleted whole. Chunks of the previous segment are still forced by the next awaitDurable().
+    public synchronized void roll() {
+        long first = lastSequence + 1;
+        if (first == segmentFirst) {
+            return;
+        }
+        try {
+            FileChannel next = openSegment(first);
+            retired.put(segmentFirst, channel);
+            channel = next;
+            segmentFirst = first;
+            mapChunkFor(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start ledger journal segment", e);
+        }
+    }
+
+    // Deletes the segments whose records all have a sequence up to the given one. Callers pass the
+    // sequence of the oldest snapshot they keep, which must already be durable.
+    public synchronized int deleteThrough(long sequence) {
+        int deleted = 0;
+        while (!retired.isEmpty()) {
+            Long next = retired.higherKey(retired.firstKey());
+            long last = (next != null ? next : segmentFirst) - 1;
+            if (last > sequence) {
+                break;
+            }
+            Map.Entry<Long, FileChannel> segment = retired.pollFirstEntry();
+            try {
+                if (segment.getValue() != null) {
+                    segment.getValue().close();
+                }
+                Files.deleteIfExists(segmentFile(directory, segment.getKey()));
+                deleted++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete ledger journal segment", e);
+            }
+        }
+        return deleted;
+    }
+
+    private void checkAccountNumber(String accountNumber) {
+        if (accountNumber.length() > MAX_ACCOUNT_LENGTH) {
+            throw new IllegalArgumentException("Account number longer than " + MAX_ACCOUNT_LENGTH + " characters");
+        }
+    }
+
+    // Guarded by this
+    private long write(byte type, String accountNumber, long amount) {
+        long sequence = lastSequence + 1;
+        long position = (sequence - segmentFirst) * RECORD_SIZE;
+        if (position + RECORD_SIZE > chunkBase + chunkSize) {
+            try {
+                mapChunkFor(position);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to extend ledger journal", e);
+            }
+        }
+
+        int offset = (int) (position - chunkBase);
+        chunk.putLong(offset, sequence);
+        chunk.putLong(offset + 8, System.currentTimeMillis());
+        chunk.putLong(offset + 16, amount);
+        chunk.put(offset + 24, type);
+        chunk.put(offset + 25, (byte) accountNumber.length());
+        for (int i = 0; i < MAX_ACCOUNT_LENGTH; i++) {
+            chunk.put(offset + ACCOUNT_OFFSET + i, i < accountNumber.length() ? (byte) accountNumber.charAt(i) : 0);
+        }
+        chunk.putShort(offset + 58, (short) 0);
+        CRC32C crc = new CRC32C();
+        chunk.limit(offset + CRC_OFFSET).position(offset);
+        crc.update(chunk);
+        chunk.clear();
+        chunk.putInt(offset + CRC_OFFSET, (int) crc.getValue());
+
+        lastSequence = sequence;
+        unforced.peekLast().end = offset + RECORD_SIZE;
+        return sequence;
+    }
+
+    // Blocks until the record with this sequence is on disk. The first waiter forces everything
+    // appended so far, callers queued behind it usually find their record already covered.
+    public void awaitDurable(long sequence) {
+        synchronized (flushMonitor) {
+            if (durableSequence < sequence) {
+                durableSequence = forcePending();
+            }
+        }
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getDurableSequence() {
+        synchronized (flushMonitor) {
+            return durableSequence;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        awaitDurable(getLastSequence());
+        synchronized (this) {
+            for (FileChannel earlier : retired.values()) {
+                if (earlier != null) {
+                    earlier.close();
+                }
+            }
+            channel.close();
+        }
+    }
+
+    // Forces every chunk written so far and returns the sequence that is now durable.
+    // Runs outside the append lock, appends carry on while the force is in progress.
+    private long forcePending() {
+        Chunk[] pending;
+        long target;
+        synchronized (this) {
+            target = lastSequence;
+            pending = unforced.toArray(new Chunk[0]);
+            for (Chunk entry : pending) {
+                entry.forceEnd = entry.end;
+            }
+            // Only the current chunk can still receive writes
+            while (unforced.size() > 1) {
+                unforced.pollFirst();
+            }
+        }
+        for (Chunk entry : pending) {
+            if (entry.forceEnd > entry.forced) {
+                entry.buffer.force(entry.forced, entry.forceEnd - entry.forced);
+                entry.forced = entry.forceEnd;
+            }
+        }
+        return target;
+    }
+
+    private FileChannel openSegment(long firstSequence) throws IOException {
+        return FileChannel.open(segmentFile(directory, firstSequence),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Maps the chunk of the active segment that holds this offset
+    private void mapChunkFor(long position) throws IOException {
+        long base = position / chunkSize * chunkSize;
+        chunk = channel.map(FileChannel.MapMode.READ_WRITE, base, chunkSize);
+        chunkBase = base;
+        Chunk entry = new Chunk(chunk);
+        entry.end = (int) (position - base);
+        entry.forced = entry.end;
+        unforced.addLast(entry);
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(long sequence, byte type, String accountNumber, long amount);
+    }
+
+    private static final class Chunk {
+        private final MappedByteBuffer buffer;
+        private int end;        // Written up to, guarded by the journal
+        private int forceEnd;   // Captured end for the force in progress
+        private int forced;     // Forced up to, only touched by the flush leader
+
+        private Chunk(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.banking.account.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Snapshots the ledger on a fixed interval when the journal has moved, and once more on shutdown
+// so the next start replays nothing.
+@Slf4j
+public class LedgerSnapshotScheduler implements Closeable {
+
+    private final BalanceLedger balanceLedger;
+    private final ScheduledExecutorService executor;
+    private long lastSnapshotSequence;
+
+    public LedgerSnapshotScheduler(BalanceLedger balanceLedger, Duration interval) {
+        this.balanceLedger = balanceLedger;
+        this.lastSnapshotSequence = balanceLedger.getRecoveredSequence();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        executor.scheduleWithFixedDelay(this::snapshotIfChanged, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void snapshotIfChanged() {
+        try {
+            if (balanceLedger.getLastSequence() > lastSnapshotSequence) {
+                lastSnapshotSequence = balanceLedger.snapshot();
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive, the journal still has every record
+            log.error("Ledger snapshot failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshotIfChanged();
+    }
+}
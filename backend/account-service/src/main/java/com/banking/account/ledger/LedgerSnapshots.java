@@ -0,0 +1,191 @@
+package com.banking.account.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Point-in-time copies of every balance, named by the journal sequence they cover.
+// Written to a temp file, fsynced and renamed into place, so a crash never leaves a partial
+// snapshot under a real name. Loading falls back to the previous snapshot if the newest is corrupt.
+// Since version 2 a snapshot also carries the prepared groups that had not settled at the cut.
+@Slf4j
+class LedgerSnapshots {
+
+    private static final int MAGIC = 0x4C444753;  // "LDGS"
+    private static final int VERSION = 2;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".dat";
+
+    private final Path directory;
+    private final int retained;
+
+    LedgerSnapshots(Path directory, int retained) {
+        this.directory = directory;
+        this.retained = Math.max(1, retained);
+    }
+
+    static final class Snapshot {
+        final long sequence;
+        final Map<String, Long> balances;
+        // By the sequence of the group's PREPARE record
+        final Map<Long, List<Change>> prepared;
+
+        Snapshot(long sequence, Map<String, Long> balances, Map<Long, List<Change>> prepared) {
+            this.sequence = sequence;
+            this.balances = balances;
+            this.prepared = prepared;
+        }
+    }
+
+    static final class Change {
+        final byte type;  // LedgerJournal.CREDIT or DEBIT
+        final String accountNumber;
+        final String toAccountNumber;  // Set for a transfer
+        final long amount;
+
+        Change(byte type, String accountNumber, String toAccountNumber, long amount) {
+            this.type = type;
+            this.accountNumber = accountNumber;
+            this.toAccountNumber = toAccountNumber;
+            this.amount = amount;
+        }
+    }
+
+    void write(long sequence, Map<String, Long> balances, Map<Long, List<Change>> prepared) throws IOException {
+        Path target = directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+
+        try (OutputStream file = Files.newOutputStream(temp);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32C());
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            out.writeInt(balances.size());
+            for (Map.Entry<String, Long> entry : balances.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.writeInt(prepared.size());
+            for (Map.Entry<Long, List<Change>> group : prepared.entrySet()) {
+                out.writeLong(group.getKey());
+                out.writeInt(group.getValue().size());
+                for (Change change : group.getValue()) {
+                    out.writeByte(change.type);
+                    out.writeUTF(change.accountNumber);
+                    out.writeUTF(change.toAccountNumber != null ? change.toAccountNumber : "");
+                    out.writeLong(change.amount);
+                }
+            }
+            out.flush();
+            // The checksum covers everything written before it
+            new DataOutputStream(file).writeLong(checked.getChecksum().getValue());
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        prune();
+    }
+
+    // Newest snapshot that reads back intact, or an empty one at sequence 0
+    Snapshot loadLatest() throws IOException {
+        for (Path path : list()) {
+            try {
+                return read(path);
+            } catch (IOException e) {
+                log.warn("Skipping unreadable ledger snapshot {}: {}", path.getFileName(), e.toString());
+            }
+        }
+        return new Snapshot(0, new HashMap<>(), Map.of());
+    }
+
+    private Snapshot read(Path path) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 1 << 16), new CRC32C());
+             DataInputStream in = new DataInputStream(checked)) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Not a ledger snapshot");
+            }
+            long sequence = in.readLong();
+            int count = in.readInt();
+            Map<String, Long> balances = new HashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+            for (int i = 0; i < count; i++) {
+                balances.put(in.readUTF(), in.readLong());
+            }
+            Map<Long, List<Change>> prepared = new HashMap<>();
+            int groups = version == 1 ? 0 : in.readInt();
+            for (int i = 0; i < groups; i++) {
+                long group = in.readLong();
+                int size = in.readInt();
+                List<Change> changes = new ArrayList<>(size);
+                for (int j = 0; j < size; j++) {
+                    byte type = in.readByte();
+                    String accountNumber = in.readUTF();
+                    String toAccountNumber = in.readUTF();
+                    changes.add(new Change(type, accountNumber, toAccountNumber.isEmpty() ? null : toAccountNumber,
+                            in.readLong()));
+                }
+                prepared.put(group, changes);
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Checksum mismatch");
+            }
+            return new Snapshot(sequence, balances, prepared);
+        }
+    }
+
+    // Sequence of the oldest snapshot kept, 0 when there is none. The journal must keep every
+    // record after it, in case the newer snapshots turn out to be unreadable.
+    long oldestSequence() throws IOException {
+        List<Path> snapshots = list();
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        String name = snapshots.get(snapshots.size() - 1).getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // Newest first
+    private List<Path> list() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = new ArrayList<>(files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .toList());
+            snapshots.sort(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed());
+            return snapshots;
+        }
+    }
+
+    private void prune() throws IOException {
+        List<Path> snapshots = list();
+        for (int i = retained; i < snapshots.size(); i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+}
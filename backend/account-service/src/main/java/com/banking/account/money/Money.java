@@ -0,0 +1,166 @@
+package com.banking.account.money;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Immutable amount held as a long count of minor units at a fixed scale of four decimal places,
+// the scale of the amount columns. Arithmetic is plain long arithmetic with overflow checks, so
+// the balance path does no BigDecimal work; conversion happens only at the JDBC and JSON edges.
+//
+// Four decimals hold +/- 922 trillion, far beyond any balance this service stores.
+public final class Money implements Comparable<Money>, Serializable {
+
+    public static final int SCALE = 4;
+    public static final Money ZERO = new Money(0);
+
+    private final long units;
+
+    private Money(long units) {
+        this.units = units;
+    }
+
+    public static Money ofUnits(long units) {
+        return units == 0 ? ZERO : new Money(units);
+    }
+
+    // Throws ArithmeticException if the value has more than four significant decimal places
+    public static Money of(BigDecimal value) {
+        return ofUnits(value.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    public static Money of(String value) {
+        return parse(value);
+    }
+
+    // Parses a plain decimal such as "-12.5" or "100.0000" without going through BigDecimal.
+    // Trailing zeros beyond the scale are accepted, any other extra precision is rejected.
+    public static Money parse(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a decimal amount: " + text);
+            }
+            digits++;
+            if (decimals >= 0 && ++decimals > SCALE) {
+                if (c != '0') {
+                    throw new ArithmeticException("More than " + SCALE + " decimal places: " + text);
+                }
+                continue;
+            }
+            units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not a decimal amount: " + text);
+        }
+        for (int scale = Math.max(decimals, 0); scale < SCALE; scale++) {
+            units = Math.multiplyExact(units, 10);
+        }
+        return ofUnits(negative ? -units : units);
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public Money plus(Money other) {
+        return ofUnits(Math.addExact(units, other.units));
+    }
+
+    public Money minus(Money other) {
+        return ofUnits(Math.subtractExact(units, other.units));
+    }
+
+    public Money negate() {
+        return ofUnits(Math.negateExact(units));
+    }
+
+    public boolean isLessThan(Money other) {
+        return units < other.units;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return units > other.units;
+    }
+
+    public int signum() {
+        return Long.signum(units);
+    }
+
+    public boolean isNegative() {
+        return units < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    // Rounded half-up to two places, for messages ("%.2f" without the Formatter)
+    public String toDisplayString() {
+        long cents = units / 100;
+        long remainder = Math.abs(units % 100);
+        if (remainder >= 50) {
+            cents += units < 0 ? -1 : 1;
+        }
+        return appendPlain(new StringBuilder(24), cents, 2).toString();
+    }
+
+    // Plain decimal with trailing zeros dropped down to two places: 150.00, 1.0001, -0.50
+    @Override
+    public String toString() {
+        int scale = SCALE;
+        long value = units;
+        while (scale > 2 && value % 10 == 0) {
+            value /= 10;
+            scale--;
+        }
+        return appendPlain(new StringBuilder(24), value, scale).toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(units, other.units);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.units == units;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(units);
+    }
+
+    private static StringBuilder appendPlain(StringBuilder out, long value, int scale) {
+        if (value < 0) {
+            out.append('-');
+        }
+        long divisor = 1;
+        for (int i = 0; i < scale; i++) {
+            divisor *= 10;
+        }
+        // Sign handled above, abs of each part is safe even for Long.MIN_VALUE
+        long whole = Math.abs(value / divisor);
+        long fraction = Math.abs(value % divisor);
+        out.append(whole).append('.');
+        for (long pad = divisor / 10; pad > 1 && fraction < pad; pad /= 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+}
@@ -0,0 +1,27 @@
+package com.banking.account.money;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.constraints.DecimalMin;
+
+// Lets the DTOs keep @DecimalMin on Money fields. Registered with Hibernate Validator through
+// META-INF/services/jakarta.validation.ConstraintValidator.
+public class MoneyDecimalMinValidator implements ConstraintValidator<DecimalMin, Money> {
+
+    private long minUnits;
+    private boolean inclusive;
+
+    @Override
+    public void initialize(DecimalMin constraint) {
+        this.minUnits = Money.parse(constraint.value()).getUnits();
+        this.inclusive = constraint.inclusive();
+    }
+
+    @Override
+    public boolean isValid(Money value, ConstraintValidatorContext context) {
+        if (value == null) {
+            return true;
+        }
+        return inclusive ? value.getUnits() >= minUnits : value.getUnits() > minUnits;
+    }
+}
@@ -0,0 +1,71 @@
+package com.banking.account.money;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Money travels as a plain JSON number, the same shape the BigDecimal fields had, and as a
+// decimal fraction in CBOR.
+// Registered with Boot's ObjectMapper as a Module bean.
+@Component
+public class MoneyModule extends SimpleModule {
+
+    public MoneyModule() {
+        super("MoneyModule");
+        addSerializer(Money.class, new MoneySerializer());
+        addDeserializer(Money.class, new MoneyDeserializer());
+    }
+
+    static class MoneySerializer extends StdScalarSerializer<Money> {
+
+        MoneySerializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (generator.canWriteFormattedNumbers()) {
+                generator.writeNumber(value.toString());
+            } else {
+                // Binary formats have their own decimal encoding
+                generator.writeNumber(value.toBigDecimal());
+            }
+        }
+    }
+
+    static class MoneyDeserializer extends StdScalarDeserializer<Money> {
+
+        MoneyDeserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                    && token != JsonToken.VALUE_STRING) {
+                return (Money) context.handleUnexpectedToken(Money.class, parser);
+            }
+            String text = parser.getText().trim();
+            try {
+                return Money.parse(text);
+            } catch (NumberFormatException e) {
+                if (token == JsonToken.VALUE_STRING) {
+                    return (Money) context.handleWeirdStringValue(Money.class, text, "not a decimal amount");
+                }
+                // Exponent notation, let Jackson read it as a decimal
+                return Money.of(parser.getDecimalValue());
+            } catch (ArithmeticException e) {
+                return (Money) context.handleWeirdStringValue(Money.class, text, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.banking.account.money;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+// Binds @RequestParam Money amount
+@Component
+public class StringToMoneyConverter implements Converter<String, Money> {
+
+    @Override
+    public Money convert(String source) {
+        String text = source.trim();
+        return text.isEmpty() ? null : Money.parse(text);
+    }
+}
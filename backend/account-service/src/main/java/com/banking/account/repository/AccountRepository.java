@@ -1,10 +1,28 @@
 package com.banking.account.repository;
 
+import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.AccountVersion;
 import com.banking.account.entity.Account;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, String> {
@@ -13,9 +31,116 @@ public interface AccountRepository extends JpaRepository<Account, String> {
 
     List<Account> findByAccountHolderNameContainingIgnoreCase(String name);
 
-    List<Account> findByStatus(String status);
+    // Listing reads select straight into DTOs, see TransactionRepository.TRANSACTION_DTO
+
+    String ACCOUNT_DTO = "SELECT new com.banking.account.dto.AccountDTO(a.id, a.accountNumber, " +
+            "a.accountHolderName, a.email, a.balance, a.accountType, a.status) FROM Account a ";
+
+    @Transactional(readOnly = true)
+    @Query(ACCOUNT_DTO)
+    List<AccountDTO> findAllDTOs();
+
+    @Transactional(readOnly = true)
+    @Query(ACCOUNT_DTO + "WHERE a.status = :status")
+    List<AccountDTO> findByStatus(@Param("status") String status);
+
+    // Rows of one search page, picked by AccountSearchIndex
+    @Transactional(readOnly = true)
+    @Query(ACCOUNT_DTO + "WHERE a.accountNumber IN :accountNumbers")
+    List<AccountDTO> findDTOsByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    // Search without a name filter - a null filter matches every account
+    @Transactional(readOnly = true)
+    @Query(value = ACCOUNT_DTO + "WHERE (:status IS NULL OR a.status = :status) " +
+            "AND (:type IS NULL OR a.accountType = :type)",
+            countQuery = "SELECT COUNT(a) FROM Account a WHERE (:status IS NULL OR a.status = :status) " +
+                    "AND (:type IS NULL OR a.accountType = :type)")
+    Page<AccountDTO> searchDTOs(@Param("status") String status, @Param("type") String type, Pageable pageable);
+
+    // Loads AccountSearchIndex at startup - must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(ACCOUNT_DTO)
+    Stream<AccountDTO> streamAllDTOs();
+
+    // Statement job: every account number in order, cut into partitions as it streams past
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT a.accountNumber FROM Account a ORDER BY a.accountNumber")
+    Stream<String> streamAccountNumbers();
+
+    // One partition's accounts open before the period end, in the order of
+    // TransactionRepository.streamStatementLines
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(ACCOUNT_DTO + "WHERE a.accountNumber BETWEEN :first AND :last AND a.createdAt < :to " +
+            "ORDER BY a.accountNumber")
+    Stream<AccountDTO> streamStatementAccounts(@Param("first") String first,
+                                               @Param("last") String last,
+                                               @Param("to") LocalDateTime to);
+
+    // Validators for conditional GETs, read instead of the whole row
+
+    String ACCOUNT_VERSION = "SELECT new com.banking.account.dto.AccountVersion(a.id, a.accountNumber, " +
+            "a.version, a.updatedAt) FROM Account a ";
+
+    @Transactional(readOnly = true)
+    @Query(ACCOUNT_VERSION + "WHERE a.id = :id")
+    Optional<AccountVersion> findVersionById(@Param("id") String id);
+
+    @Transactional(readOnly = true)
+    @Query(ACCOUNT_VERSION + "WHERE a.accountNumber = :accountNumber")
+    Optional<AccountVersion> findVersionByAccountNumber(@Param("accountNumber") String accountNumber);
 
     boolean existsByAccountNumber(String accountNumber);
 
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<Account> findByAccountNumberForUpdate(@Param("accountNumber") String accountNumber);
+
+    // Interest accrual - the next chunk of SAVINGS accounts after a keyset cursor, then the chunk
+    // locked in account number order like transfers lock their accounts
+
+    @Transactional(readOnly = true)
+    @Query("SELECT a.accountNumber FROM Account a WHERE a.accountType = 'SAVINGS' " +
+            "AND a.accountNumber > :after AND a.createdAt < :to ORDER BY a.accountNumber")
+    List<String> findSavingsAccountNumbersAfter(@Param("after") String after,
+                                                @Param("to") LocalDateTime to,
+                                                Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT COUNT(a) FROM Account a WHERE a.accountType = 'SAVINGS' " +
+            "AND a.accountNumber > :after AND a.createdAt < :to")
+    long countSavingsAccountsAfter(@Param("after") String after, @Param("to") LocalDateTime to);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountNumber IN :accountNumbers ORDER BY a.accountNumber")
+    List<Account> findByAccountNumberInForUpdate(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    // Atomic balance updates - return the number of rows changed (0 or 1). They bump the version
+    // so an entity write based on an earlier read of the row fails its version check.
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE accounts SET balance = balance + :amount, updated_at = :now, version = version + 1 " +
+            "WHERE account_number = :accountNumber", nativeQuery = true)
+    int creditBalance(@Param("accountNumber") String accountNumber,
+                      @Param("amount") BigDecimal amount,
+                      @Param("now") LocalDateTime now);
+
+    // Only matches when the balance covers the amount, so 0 rows means not found or insufficient funds
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE accounts SET balance = balance - :amount, updated_at = :now, version = version + 1 " +
+            "WHERE account_number = :accountNumber AND balance >= :amount", nativeQuery = true)
+    int debitBalance(@Param("accountNumber") String accountNumber,
+                     @Param("amount") BigDecimal amount,
+                     @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,81 @@
+package com.banking.account.repository;
+
+import com.banking.account.entity.AccountSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountSummaryRepository extends JpaRepository<AccountSummary, String> {
+
+    @Modifying
+    @Query(value = "UPDATE account_summaries SET " +
+            "total_deposits = total_deposits + :deposits, " +
+            "total_withdrawals = total_withdrawals + :withdrawals, " +
+            "completed_count = completed_count + :completed, " +
+            "failed_count = failed_count + :failed, " +
+            "updated_at = :now " +
+            "WHERE account_number = :accountNumber", nativeQuery = true)
+    int applyDelta(@Param("accountNumber") String accountNumber,
+                   @Param("deposits") BigDecimal deposits,
+                   @Param("withdrawals") BigDecimal withdrawals,
+                   @Param("completed") long completed,
+                   @Param("failed") long failed,
+                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "INSERT INTO account_summaries " +
+            "(account_number, total_deposits, total_withdrawals, completed_count, failed_count, updated_at) " +
+            "VALUES (:accountNumber, :deposits, :withdrawals, :completed, :failed, :now)", nativeQuery = true)
+    int insertSummary(@Param("accountNumber") String accountNumber,
+                      @Param("deposits") BigDecimal deposits,
+                      @Param("withdrawals") BigDecimal withdrawals,
+                      @Param("completed") long completed,
+                      @Param("failed") long failed,
+                      @Param("now") LocalDateTime now);
+
+    // Locks the account row, which serializes the insert of a first summary row
+    @Query(value = "SELECT account_number FROM accounts WHERE account_number = :accountNumber FOR UPDATE",
+            nativeQuery = true)
+    Optional<String> lockAccount(@Param("accountNumber") String accountNumber);
+
+    // Locks every account row, so a rebuild runs with no balance writer in flight
+    @Query(value = "SELECT account_number FROM accounts ORDER BY account_number FOR UPDATE", nativeQuery = true)
+    List<String> lockAllAccounts();
+
+    // Interest accrual changes a chunk's summaries as entities, written in JDBC batches. The lock
+    // keeps the native deltas of other writers from landing in between.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountSummary s WHERE s.accountNumber IN :accountNumbers ORDER BY s.accountNumber")
+    List<AccountSummary> findByAccountNumberInForUpdate(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    @Modifying
+    @Query(value = "DELETE FROM account_summaries", nativeQuery = true)
+    int deleteAllSummaries();
+
+    // Regenerates every summary from the transactions table in one pass. Accounts without
+    // transactions get an empty summary, so writers only ever update an existing row.
+    @Modifying
+    @Query(value = "INSERT INTO account_summaries " +
+            "(account_number, total_deposits, total_withdrawals, completed_count, failed_count, updated_at) " +
+            "SELECT account_number, " +
+            "COALESCE(SUM(CASE WHEN transaction_type IN ('DEPOSIT', 'INTEREST') AND status = 'COMPLETED' " +
+            "THEN amount END), 0), " +
+            "COALESCE(SUM(CASE WHEN transaction_type = 'WITHDRAWAL' AND status = 'COMPLETED' THEN amount END), 0), " +
+            "SUM(CASE WHEN status = 'COMPLETED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN status = 'FAILED' THEN 1 ELSE 0 END), " +
+            ":now " +
+            "FROM (SELECT account_number, transaction_type, status, amount FROM transactions " +
+            "UNION ALL SELECT account_number, NULL, NULL, NULL FROM accounts) t " +
+            "GROUP BY account_number", nativeQuery = true)
+    int insertSummariesFromTransactions(@Param("now") LocalDateTime now);
+}
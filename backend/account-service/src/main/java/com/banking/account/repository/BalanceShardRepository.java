@@ -0,0 +1,82 @@
+package com.banking.account.repository;
+
+import com.banking.account.dto.ShardTotals;
+import com.banking.account.entity.BalanceShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceShardRepository extends JpaRepository<BalanceShard, BalanceShard.Key> {
+
+    // A deposit to a hot account, its summary delta rides along until consolidation
+    @Modifying
+    @Query(value = "UPDATE balance_shards SET balance = balance + :amount, deposits = deposits + :amount, " +
+            "deposit_count = deposit_count + 1, updated_at = :now " +
+            "WHERE account_number = :accountNumber AND shard = :shard", nativeQuery = true)
+    int creditShard(@Param("accountNumber") String accountNumber,
+                    @Param("shard") int shard,
+                    @Param("amount") BigDecimal amount,
+                    @Param("now") LocalDateTime now);
+
+    // Only matches when this shard alone covers the amount
+    @Modifying
+    @Query(value = "UPDATE balance_shards SET balance = balance - :amount, updated_at = :now " +
+            "WHERE account_number = :accountNumber AND shard = :shard AND balance >= :amount", nativeQuery = true)
+    int debitShard(@Param("accountNumber") String accountNumber,
+                   @Param("shard") int shard,
+                   @Param("amount") BigDecimal amount,
+                   @Param("now") LocalDateTime now);
+
+    // Account row plus its shards in one statement, so a concurrent consolidation is seen whole or not at all
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT a.balance + COALESCE((SELECT SUM(s.balance) FROM balance_shards s " +
+            "WHERE s.account_number = a.account_number), 0) " +
+            "FROM accounts a WHERE a.account_number = :accountNumber", nativeQuery = true)
+    Optional<BigDecimal> findTotalBalance(@Param("accountNumber") String accountNumber);
+
+    String SHARD_TOTALS = "SELECT new com.banking.account.dto.ShardTotals(s.accountNumber, COUNT(s), " +
+            "SUM(s.balance), SUM(s.deposits), SUM(s.depositCount), MAX(s.updatedAt)) FROM BalanceShard s ";
+
+    // Every hot account - a handful of accounts with a few rows each
+    @Transactional(readOnly = true)
+    @Query(SHARD_TOTALS + "GROUP BY s.accountNumber")
+    List<ShardTotals> findShardTotals();
+
+    @Transactional(readOnly = true)
+    @Query(SHARD_TOTALS + "WHERE s.accountNumber IN :accountNumbers GROUP BY s.accountNumber")
+    List<ShardTotals> findShardTotalsByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BalanceShard s WHERE s.accountNumber = :accountNumber ORDER BY s.shard")
+    List<BalanceShard> findByAccountNumberForUpdate(@Param("accountNumber") String accountNumber);
+
+    // Taken by a rebuild after the account rows, so no shard deposit lands while it runs
+    @Query(value = "SELECT account_number FROM balance_shards ORDER BY account_number, shard FOR UPDATE",
+            nativeQuery = true)
+    List<String> lockAllShards();
+
+    @Modifying
+    @Query(value = "UPDATE balance_shards SET balance = 0, deposits = 0, deposit_count = 0, updated_at = :now " +
+            "WHERE account_number = :accountNumber", nativeQuery = true)
+    int resetShards(@Param("accountNumber") String accountNumber, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "DELETE FROM balance_shards WHERE account_number = :accountNumber", nativeQuery = true)
+    int deleteShards(@Param("accountNumber") String accountNumber);
+
+    // A summary rebuild counts every deposit from the transactions table, nothing is pending after it
+    @Modifying
+    @Query(value = "UPDATE balance_shards SET deposits = 0, deposit_count = 0", nativeQuery = true)
+    int clearPendingDeposits();
+}
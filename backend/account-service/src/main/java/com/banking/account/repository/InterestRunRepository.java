@@ -0,0 +1,9 @@
+package com.banking.account.repository;
+
+import com.banking.account.entity.InterestRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InterestRunRepository extends JpaRepository<InterestRun, String> {
+}
@@ -0,0 +1,33 @@
+package com.banking.account.repository;
+
+import com.banking.account.entity.LedgerCommit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerCommitRepository extends JpaRepository<LedgerCommit, Long> {
+
+    // Only meaningful as part of the transaction whose commit it records
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query(value = "INSERT INTO ledger_commits (group_sequence, committed_at) VALUES (:group, :now)",
+            nativeQuery = true)
+    int insertCommit(@Param("group") long group, @Param("now") LocalDateTime now);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT c.groupSequence FROM LedgerCommit c WHERE c.groupSequence IN :groups")
+    List<Long> findCommittedGroups(@Param("groups") Collection<Long> groups);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM ledger_commits WHERE group_sequence < :group", nativeQuery = true)
+    int deleteBefore(@Param("group") long group);
+}
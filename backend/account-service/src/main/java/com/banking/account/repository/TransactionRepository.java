@@ -1,19 +1,32 @@
 package com.banking.account.repository;
 
+import com.banking.account.dto.StatementTotals;
+import com.banking.account.dto.TransactionDTO;
 import com.banking.account.entity.Transaction;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;  // ADD THIS IMPORT
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, String> {
 
     List<Transaction> findByAccountNumberOrderByTimestampDesc(String accountNumber);
 
+    // Backed by the unique ux_transactions_reference index
+    Optional<Transaction> findByReference(String reference);
+
     List<Transaction> findByAccountNumberAndTransactionTypeOrderByTimestampDesc(
             String accountNumber, String transactionType);
 
@@ -28,4 +41,123 @@ public interface TransactionRepository extends JpaRepository<Transaction, String
             "AND t.transactionType = :type AND t.status = 'COMPLETED'")
     BigDecimal getTotalByType(@Param("accountNumber") String accountNumber,
                               @Param("type") String type);
-}
\ No newline at end of file
+
+    // Keyset pagination - newest first, id breaks ties between equal timestamps.
+    // The first page has no cursor, later pages continue strictly after (timestamp, id).
+    // Pages are selected straight into DTOs: no entities, no persistence-context entries and no
+    // dirty-check snapshots, and the read-only transaction skips the flush before the query.
+
+    String TRANSACTION_DTO = "SELECT new com.banking.account.dto.TransactionDTO(t.id, t.accountNumber, " +
+            "t.transactionType, t.amount, t.balanceAfter, t.description, t.status, t.reference, " +
+            "t.transferReference, t.timestamp) FROM Transaction t ";
+
+    @Transactional(readOnly = true)
+    @Query(TRANSACTION_DTO + "WHERE t.accountNumber = :accountNumber ORDER BY t.timestamp DESC, t.id DESC")
+    List<TransactionDTO> findByAccountNumberOrderByTimestampDescIdDesc(@Param("accountNumber") String accountNumber,
+                                                                       Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(TRANSACTION_DTO + "WHERE t.accountNumber = :accountNumber " +
+            "AND (t.timestamp < :timestamp OR (t.timestamp = :timestamp AND t.id < :id)) " +
+            "ORDER BY t.timestamp DESC, t.id DESC")
+    List<TransactionDTO> findPageAfter(@Param("accountNumber") String accountNumber,
+                                       @Param("timestamp") LocalDateTime timestamp,
+                                       @Param("id") String id,
+                                       Limit limit);
+
+    // Spells out the whole idx_transactions_account_type_timestamp key, the leading columns are fixed
+    // by the WHERE clause. H2 only reads rows in index order when ORDER BY starts at the first column.
+    String TYPE_PAGE_ORDER = "ORDER BY t.accountNumber, t.transactionType, t.timestamp DESC, t.id DESC";
+
+    @Transactional(readOnly = true)
+    @Query(TRANSACTION_DTO + "WHERE t.accountNumber = :accountNumber AND t.transactionType = :type " +
+            TYPE_PAGE_ORDER)
+    List<TransactionDTO> findByAccountNumberAndTransactionTypeOrderByTimestampDescIdDesc(
+            @Param("accountNumber") String accountNumber, @Param("type") String transactionType, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(TRANSACTION_DTO + "WHERE t.accountNumber = :accountNumber " +
+            "AND t.transactionType = :type " +
+            "AND (t.timestamp < :timestamp OR (t.timestamp = :timestamp AND t.id < :id)) " +
+            TYPE_PAGE_ORDER)
+    List<TransactionDTO> findPageByTypeAfter(@Param("accountNumber") String accountNumber,
+                                             @Param("type") String type,
+                                             @Param("timestamp") LocalDateTime timestamp,
+                                             @Param("id") String id,
+                                             Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(TRANSACTION_DTO + "WHERE t.accountNumber = :accountNumber " +
+            "AND t.timestamp BETWEEN :startDate AND :endDate ORDER BY t.timestamp DESC, t.id DESC")
+    List<TransactionDTO> findPageByDateRange(@Param("accountNumber") String accountNumber,
+                                             @Param("startDate") LocalDateTime startDate,
+                                             @Param("endDate") LocalDateTime endDate,
+                                             Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(TRANSACTION_DTO + "WHERE t.accountNumber = :accountNumber " +
+            "AND t.timestamp BETWEEN :startDate AND :endDate " +
+            "AND (t.timestamp < :timestamp OR (t.timestamp = :timestamp AND t.id < :id)) " +
+            "ORDER BY t.timestamp DESC, t.id DESC")
+    List<TransactionDTO> findPageByDateRangeAfter(@Param("accountNumber") String accountNumber,
+                                                  @Param("startDate") LocalDateTime startDate,
+                                                  @Param("endDate") LocalDateTime endDate,
+                                                  @Param("timestamp") LocalDateTime timestamp,
+                                                  @Param("id") String id,
+                                                  Limit limit);
+
+    // Streaming exports - must be consumed inside a transaction and closed by the caller.
+    // Rows are pulled from the driver in fetch-size chunks and loaded read-only (no dirty-check snapshot).
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.accountNumber = :accountNumber ORDER BY t.timestamp, t.id")
+    Stream<Transaction> streamByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.accountNumber = :accountNumber " +
+            "AND t.timestamp BETWEEN :startDate AND :endDate ORDER BY t.timestamp, t.id")
+    Stream<Transaction> streamByDateRange(@Param("accountNumber") String accountNumber,
+                                          @Param("startDate") LocalDateTime startDate,
+                                          @Param("endDate") LocalDateTime endDate);
+
+    // Statement job - one account range per call, see StatementService
+
+    // A period's lines for every account in the range, in (account, timestamp) order
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(TRANSACTION_DTO + "WHERE t.accountNumber BETWEEN :first AND :last " +
+            "AND t.timestamp >= :from AND t.timestamp < :to ORDER BY t.accountNumber, t.timestamp, t.id")
+    Stream<TransactionDTO> streamStatementLines(@Param("first") String first,
+                                                @Param("last") String last,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to);
+
+    // Balance movement per account within the period and since its end. Current balance minus both
+    // is the opening balance, known before the first line is written.
+    String SIGNED_AMOUNT = "CASE WHEN status <> 'COMPLETED' THEN 0 " +
+            "WHEN transaction_type IN ('DEPOSIT', 'INTEREST') THEN amount WHEN transaction_type = 'WITHDRAWAL' THEN -amount " +
+            "ELSE 0 END";
+
+    @Query(value = "SELECT account_number AS accountNumber, " +
+            "COALESCE(SUM(CASE WHEN timestamp < :to THEN " + SIGNED_AMOUNT + " END), 0) AS periodNet, " +
+            "COALESCE(SUM(CASE WHEN timestamp >= :to THEN " + SIGNED_AMOUNT + " END), 0) AS laterNet " +
+            "FROM transactions WHERE account_number BETWEEN :first AND :last AND timestamp >= :from " +
+            "GROUP BY account_number", nativeQuery = true)
+    List<StatementTotals> sumStatementTotals(@Param("first") String first,
+                                             @Param("last") String last,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to);
+
+    // Interest accrual - the rows a crashed run already wrote, by their per-month references
+    @Transactional(readOnly = true)
+    @Query(TRANSACTION_DTO + "WHERE t.reference IN :references")
+    List<TransactionDTO> findDTOsByReferenceIn(@Param("references") Collection<String> references);
+}
@@ -0,0 +1,125 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Account;
+import com.banking.account.repository.AccountRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Read-through cache of account state keyed by id and by account number.
+// Caffeine bounds each view by size (W-TinyLFU eviction) and by time since write.
+// Values are detached copies, callers never see a managed entity from another session.
+// Each view loads only itself: a copy put into the other view from a loader could land after
+// an eviction of that view and outlive it.
+@Component
+public class AccountCache {
+
+    private final AccountRepository accountRepository;
+    private final Cache<String, Account> byId;
+    private final Cache<String, Account> byNumber;
+
+    @Autowired
+    public AccountCache(AccountRepository accountRepository,
+                        @Value("${banking.account.cache.max-size:10000}") long maxSize,
+                        @Value("${banking.account.cache.ttl:5m}") Duration ttl) {
+        this(accountRepository, maxSize, ttl, Ticker.systemTicker());
+    }
+
+    AccountCache(AccountRepository accountRepository, long maxSize, Duration ttl, Ticker ticker) {
+        this.accountRepository = accountRepository;
+        this.byId = newCache(maxSize, ttl, ticker);
+        this.byNumber = newCache(maxSize, ttl, ticker);
+    }
+
+    public Optional<Account> findById(String id) {
+        return Optional.ofNullable(byId.get(id, key -> accountRepository.findById(key)
+                .map(AccountCache::copyOf)
+                .orElse(null)));
+    }
+
+    public Optional<Account> findByAccountNumber(String accountNumber) {
+        return Optional.ofNullable(byNumber.get(accountNumber, key -> accountRepository.findByAccountNumber(key)
+                .map(AccountCache::copyOf)
+                .orElse(null)));
+    }
+
+    // Cached copies only, never loads
+    public Optional<Account> peekById(String id) {
+        return Optional.ofNullable(byId.getIfPresent(id));
+    }
+
+    public Optional<Account> peekByAccountNumber(String accountNumber) {
+        return Optional.ofNullable(byNumber.getIfPresent(accountNumber));
+    }
+
+    public void evict(Account account) {
+        byId.invalidate(account.getId());
+        byNumber.invalidate(account.getAccountNumber());
+    }
+
+    // Evict now, and again once the surrounding transaction commits. The second eviction
+    // drops any copy a concurrent reader loaded from the pre-commit row in between.
+    public void evictAfterCommit(Account account) {
+        evict(account);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(account);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        byId.invalidateAll();
+        byNumber.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return byId.stats().plus(byNumber.stats());
+    }
+
+    public long size() {
+        return byNumber.estimatedSize();
+    }
+
+    // Runs pending eviction work, which Caffeine otherwise does asynchronously
+    void cleanUp() {
+        byId.cleanUp();
+        byNumber.cleanUp();
+    }
+
+    private static Cache<String, Account> newCache(long maxSize, Duration ttl, Ticker ticker) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    static Account copyOf(Account account) {
+        Account copy = new Account();
+        copy.setId(account.getId());
+        copy.setAccountNumber(account.getAccountNumber());
+        copy.setAccountHolderName(account.getAccountHolderName());
+        copy.setEmail(account.getEmail());
+        copy.setBalance(account.getBalance());
+        copy.setAccountType(account.getAccountType());
+        copy.setStatus(account.getStatus());
+        copy.setCreatedAt(account.getCreatedAt());
+        copy.setUpdatedAt(account.getUpdatedAt());
+        copy.setVersion(account.getVersion());
+        return copy;
+    }
+}
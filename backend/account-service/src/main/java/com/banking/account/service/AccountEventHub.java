@@ -0,0 +1,337 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.BalanceChange;
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.entity.Transaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fan-out of committed balance changes and transactions to Server-Sent Events subscribers, either
+// of one account or of every account (the firehose).
+//
+// Publishing never blocks the committing thread. Each event is serialized once and offered to the
+// bounded queue of every interested subscriber; a subscriber whose queue is full has fallen
+// queue-capacity events behind and is evicted - its stream is closed, and the client reloads and
+// reconnects. Queues are drained by a small dispatcher pool, and a subscriber is handed to the pool
+// only when its queue goes from empty to non-empty, so an idle stream holds an emitter and a queue
+// but no thread. A heartbeat comment lets the container notice clients that went away.
+//
+// A client that stops reading while its socket buffer is full blocks the dispatcher sending to it
+// until the container's write timeout. Its queue overflows meanwhile and it is evicted, but the
+// other dispatchers carry the remaining subscribers until then - size dispatch-threads for that.
+@Component
+@Slf4j
+public class AccountEventHub {
+
+    private static final int DRAIN_BATCH = 64;
+
+    private final ObjectMapper objectMapper;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService heartbeat;
+    private final Set<ResponseBodyEmitter.DataWithMediaType> heartbeatFrame;
+
+    private final Map<String, Set<Subscriber>> byAccount = new ConcurrentHashMap<>();
+    private final Set<Subscriber> firehose = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Counter published;
+    private final Counter evicted;
+
+    @Autowired
+    public AccountEventHub(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${banking.events.queue-capacity:256}") int queueCapacity,
+                           @Value("${banking.events.dispatch-threads:4}") int dispatchThreads,
+                           @Value("${banking.events.timeout:30m}") Duration timeout,
+                           @Value("${banking.events.heartbeat-interval:30s}") Duration heartbeatInterval,
+                           @Value("${banking.events.max-subscribers:10000}") int maxSubscribers) {
+        this.objectMapper = objectMapper;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "account-events-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-events-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeatFrame = Collections.unmodifiableSet(SseEmitter.event().comment("heartbeat").build());
+        long heartbeatMillis = heartbeatInterval.toMillis();
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+
+        this.published = Counter.builder("banking.events.published")
+                .description("Account events offered to subscribers")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("banking.events.evicted")
+                .description("Event subscribers closed for falling behind")
+                .register(meterRegistry);
+        Gauge.builder("banking.events.subscribers", subscribers, AtomicInteger::get)
+                .description("Open account event streams")
+                .register(meterRegistry);
+    }
+
+    // A null account number subscribes to every account. Null when the subscriber limit is reached.
+    public SseEmitter subscribe(String accountNumber) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        return subscribe(accountNumber, emitter) ? emitter : null;
+    }
+
+    boolean subscribe(String accountNumber, SseEmitter emitter) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            return false;
+        }
+        Subscriber subscriber = new Subscriber(accountNumber, emitter, new MpscRingBuffer<>(queueCapacity));
+        emitter.onCompletion(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        emitter.onTimeout(() -> {
+            subscriber.close();
+            emitter.complete();
+        });
+        if (accountNumber == null) {
+            firehose.add(subscriber);
+        } else {
+            // Added under the map's lock, so a concurrent close cannot drop the set it lands in
+            byAccount.compute(accountNumber, (key, watchers) -> {
+                Set<Subscriber> set = watchers != null ? watchers : ConcurrentHashMap.<Subscriber>newKeySet();
+                set.add(subscriber);
+                return set;
+            });
+        }
+        return true;
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    // Published once the surrounding transaction commits, and not at all if it rolls back
+    public void publishAfterCommit(List<Transaction> transactions) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(transactions);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(transactions);
+            }
+        });
+    }
+
+    // A completed transaction is a balance change followed by the transaction itself, a rejected
+    // one only the transaction. Nothing is serialized for accounts nobody is watching.
+    void publish(List<Transaction> transactions) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        for (Transaction transaction : transactions) {
+            Set<Subscriber> watchers = byAccount.get(transaction.getAccountNumber());
+            if ((watchers == null || watchers.isEmpty()) && firehose.isEmpty()) {
+                continue;
+            }
+            if ("COMPLETED".equals(transaction.getStatus())) {
+                deliver(watchers, frame("balance", BalanceChange.builder()
+                        .accountNumber(transaction.getAccountNumber())
+                        .balance(transaction.getBalanceAfter())
+                        .reference(transaction.getReference())
+                        .timestamp(transaction.getTimestamp())
+                        .build()));
+            }
+            deliver(watchers, frame("transaction", convertToDTO(transaction)));
+        }
+    }
+
+    private void deliver(Set<Subscriber> watchers, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        published.increment();
+        if (watchers != null) {
+            watchers.forEach(subscriber -> subscriber.offer(frame));
+        }
+        firehose.forEach(subscriber -> subscriber.offer(frame));
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> frame(String name, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + name + " event", e);
+        }
+        // Shared by every subscriber, build() may only be called once
+        return Collections.unmodifiableSet(SseEmitter.event()
+                .id(Long.toString(sequence.incrementAndGet()))
+                .name(name)
+                .data(json, MediaType.APPLICATION_JSON)
+                .build());
+    }
+
+    private void sendHeartbeat() {
+        firehose.forEach(subscriber -> subscriber.offer(heartbeatFrame));
+        byAccount.values().forEach(watchers -> watchers.forEach(subscriber -> subscriber.offer(heartbeatFrame)));
+    }
+
+    @PreDestroy
+    public void close() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        firehose.forEach(Subscriber::complete);
+        byAccount.values().forEach(watchers -> watchers.forEach(Subscriber::complete));
+    }
+
+    private TransactionDTO convertToDTO(Transaction transaction) {
+        return TransactionDTO.builder()
+                .id(transaction.getId())
+                .accountNumber(transaction.getAccountNumber())
+                .transactionType(transaction.getTransactionType())
+                .amount(transaction.getAmount())
+                .balanceAfter(transaction.getBalanceAfter())
+                .description(transaction.getDescription())
+                .status(transaction.getStatus())
+                .reference(transaction.getReference())
+                .transferReference(transaction.getTransferReference())
+                .timestamp(transaction.getTimestamp())
+                .build();
+    }
+
+    // The scheduled flag makes the dispatcher task the queue's single consumer: it is set by whoever
+    // hands the subscriber to the pool and cleared by the task when it finds the queue empty.
+    private final class Subscriber implements Runnable {
+
+        private final String accountNumber;
+        private final SseEmitter emitter;
+        private final MpscRingBuffer<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean evict;
+
+        Subscriber(String accountNumber, SseEmitter emitter,
+                   MpscRingBuffer<Set<ResponseBodyEmitter.DataWithMediaType>> queue) {
+            this.accountNumber = accountNumber;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                log.debug("Evicting slow event subscriber for {}", accountNumber != null ? accountNumber : "all accounts");
+                evicted.increment();
+                evict = true;
+                close();
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                dispatch();
+            }
+        }
+
+        private void dispatch() {
+            try {
+                dispatcher.execute(this);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                scheduled.set(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Set<ResponseBodyEmitter.DataWithMediaType>> frames = new ArrayList<>(DRAIN_BATCH);
+            while (true) {
+                if (evict) {
+                    complete();
+                    return;
+                }
+                frames.clear();
+                int drained = queue.drainTo(frames, DRAIN_BATCH);
+                for (Set<ResponseBodyEmitter.DataWithMediaType> frame : frames) {
+                    try {
+                        emitter.send(frame);
+                    } catch (IOException | IllegalStateException e) {
+                        // Client gone or stream already completed
+                        close();
+                        return;
+                    }
+                }
+                if (drained == DRAIN_BATCH) {
+                    // Give the other subscribers a turn before draining more
+                    dispatch();
+                    return;
+                }
+                scheduled.set(false);
+                if ((queue.size() == 0 && !evict) || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        // Stops delivery and forgets the subscriber, the emitter is left to whoever closed it
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            if (accountNumber == null) {
+                firehose.remove(this);
+            } else {
+                byAccount.computeIfPresent(accountNumber, (key, watchers) -> {
+                    watchers.remove(this);
+                    return watchers.isEmpty() ? null : watchers;
+                });
+            }
+            subscribers.decrementAndGet();
+        }
+
+        void complete() {
+            close();
+            try {
+                emitter.complete();
+            } catch (RuntimeException e) {
+                log.debug("Event stream for {} already closed: {}", accountNumber, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,603 @@
+package com.banking.account.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory trigram index over account holder names for case-insensitive substring search.
+// Every account is a document number; each three-character window of its lower-cased name maps
+// to a sorted posting list of document numbers. Names shorter than three characters are listed
+// apart, and a one- or two-character query reads the lists of the trigrams that contain it.
+//
+// Each sort order also holds every document in a sorted array. A query whose posting lists are
+// short collects its candidates from them, intersecting the two shortest lists, confirms each
+// with a real substring check and counts every match. A broad query ("son") walks the documents
+// in sort order instead and stops once the page is filled, so it reads a few thousand names
+// rather than a million postings, and its total is extrapolated from the walk.
+// A walk that finds matches too rarely to fill the page soon falls back to collecting.
+//
+// Removing an account takes its document out of every posting list and sort order, and the next
+// account added reuses the document number.
+public class AccountSearchIndex {
+
+    public enum SortField { ACCOUNT_NUMBER, ACCOUNT_HOLDER_NAME }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Hits {
+        private final int total;
+        // Account numbers of the requested page, in sort order
+        private final List<String> accountNumbers;
+        // False when the walk stopped early and the total is an estimate
+        private final boolean totalExact;
+    }
+
+    private static final int GRAM = 3;
+    // Additions to a sort order a search scans before it merges them into the sorted array
+    private static final int SCAN_PENDING = 512;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    // Trigrams containing each one- and two-character string, for queries shorter than a trigram
+    private final Map<String, Set<Long>> gramsContaining = new HashMap<>();
+    private final Postings shortNames = new Postings();
+    // Status and type values repeat across millions of documents, keep one instance of each
+    private final Map<String, String> canonical = new HashMap<>();
+    private final Order byNumber = new Order(this::compareNumbers);
+    private final Order byName = new Order(this::compareNames);
+    // Most postings a query reads before it walks the sort order instead
+    private final int collectLimit;
+    // Documents a walk visits between checks of whether collecting would be cheaper
+    private final int walkBudget;
+
+    private String[] accountNumbers = new String[1024];
+    private String[] names = new String[1024];
+    private String[] statuses = new String[1024];
+    private String[] types = new String[1024];
+    private int documents;
+    private int[] free = new int[16];
+    private int freeCount;
+    private int live;
+
+    public AccountSearchIndex() {
+        this(16_384, 1_024);
+    }
+
+    AccountSearchIndex(int collectLimit, int walkBudget) {
+        this.collectLimit = collectLimit;
+        this.walkBudget = walkBudget;
+    }
+
+    public void add(String accountNumber, String accountHolderName, String status, String accountType) {
+        String name = normalize(accountHolderName);
+        lock.writeLock().lock();
+        try {
+            int document = freeCount > 0 ? free[--freeCount] : newDocument();
+            accountNumbers[document] = accountNumber;
+            names[document] = name;
+            statuses[document] = canonical.computeIfAbsent(status, value -> value);
+            types[document] = canonical.computeIfAbsent(accountType, value -> value);
+            if (name.length() < GRAM) {
+                shortNames.add(document);
+            }
+            for (int i = 0; i + GRAM <= name.length(); i++) {
+                long gram = gram(name, i);
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(gram, list);
+                    for (String part : parts(gram)) {
+                        gramsContaining.computeIfAbsent(part, key -> new HashSet<>()).add(gram);
+                    }
+                }
+                list.add(document);
+            }
+            byNumber.add(document);
+            byName.add(document);
+            live++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The name locates the document without a second map keyed by account number
+    public boolean remove(String accountNumber, String accountHolderName) {
+        String name = normalize(accountHolderName);
+        lock.writeLock().lock();
+        try {
+            int document = -1;
+            for (int candidate : name.length() < GRAM ? shortNames.toArray() : candidates(name)) {
+                if (accountNumber.equals(accountNumbers[candidate])) {
+                    document = candidate;
+                    break;
+                }
+            }
+            if (document < 0) {
+                return false;
+            }
+            // Before the fields go, the sort orders compare by them
+            byNumber.remove(document);
+            byName.remove(document);
+            if (name.length() < GRAM) {
+                shortNames.remove(document);
+            }
+            for (int i = 0; i + GRAM <= name.length(); i++) {
+                long gram = gram(name, i);
+                Postings list = postings.get(gram);
+                if (list != null && list.remove(document) && list.size == 0) {
+                    postings.remove(gram);
+                    for (String part : parts(gram)) {
+                        Set<Long> grams = gramsContaining.get(part);
+                        grams.remove(gram);
+                        if (grams.isEmpty()) {
+                            gramsContaining.remove(part);
+                        }
+                    }
+                }
+            }
+            accountNumbers[document] = null;
+            names[document] = null;
+            statuses[document] = null;
+            types[document] = null;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = document;
+            live--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Null filters match everything
+    public Hits search(String nameQuery, String status, String accountType,
+                       SortField sortField, boolean descending, int offset, int limit) {
+        String query = normalize(nameQuery);
+        mergePendingIfDue();
+        lock.readLock().lock();
+        try {
+            Order order = sortField == SortField.ACCOUNT_HOLDER_NAME ? byName : byNumber;
+            DocOrder direction = descending ? (first, second) -> order.order.compare(second, first) : order.order;
+            DocumentFilter filter = document -> names[document].contains(query)
+                    && (status == null || status.equals(statuses[document]))
+                    && (accountType == null || accountType.equals(types[document]));
+            int start = Math.max(0, offset);
+            int wanted = start + Math.max(0, limit);
+
+            long bound = query.isEmpty() ? Long.MAX_VALUE : candidateBound(query);
+            if (bound > collectLimit) {
+                Hits hits = walk(order, descending, direction, filter, start, wanted, bound);
+                if (hits != null) {
+                    return hits;
+                }
+            }
+            return collect(query, direction, filter, start, wanted);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private interface DocOrder {
+        int compare(int first, int second);
+    }
+
+    private interface DocumentFilter {
+        boolean matches(int document);
+    }
+
+    // Documents in sort order until `wanted` of them match. Null when matches turn up too rarely
+    // for the walk to beat collecting from the `bound` postings of the query.
+    private Hits walk(Order order, boolean descending, DocOrder direction, DocumentFilter filter,
+                      int start, int wanted, long bound) {
+        PageBuilder page = new PageBuilder(start, wanted);
+        int[] pendingMatches = order.pendingMatches(filter, direction);
+        int next = 0;
+        int sortedMatches = 0;
+        int visited = 0;
+        int size = order.sortedSize;
+        while (visited < size && !page.full()) {
+            int document = order.sorted[descending ? size - 1 - visited : visited];
+            while (next < pendingMatches.length && !page.full()
+                    && direction.compare(pendingMatches[next], document) < 0) {
+                page.accept(pendingMatches[next++]);
+            }
+            if (page.full()) {
+                break;
+            }
+            visited++;
+            if (filter.matches(document)) {
+                sortedMatches++;
+                page.accept(document);
+            }
+            if (visited % walkBudget == 0 && bound != Long.MAX_VALUE && !page.full()
+                    && (long) (wanted - page.found) * visited > (long) Math.max(1, sortedMatches) * bound) {
+                return null;
+            }
+        }
+        if (visited < size) {
+            // The rest of the order matches about as often as the part walked
+            long estimate = visited == 0 ? 0 : Math.round((double) sortedMatches * size / visited);
+            int total = (int) Math.min(Integer.MAX_VALUE, Math.max(page.found, estimate + pendingMatches.length));
+            return new Hits(total, page.accountNumbers, false);
+        }
+        while (next < pendingMatches.length) {
+            page.accept(pendingMatches[next++]);
+        }
+        return new Hits(page.found, page.accountNumbers, true);
+    }
+
+    // Every match counted, only the best `wanted` held in a bounded heap and sorted
+    private Hits collect(String query, DocOrder direction, DocumentFilter filter, int start, int wanted) {
+        // Worst of the best `wanted` documents on top, so it is the one replaced
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, Math.min(wanted, 1024)),
+                (first, second) -> direction.compare(second, first));
+        int total = 0;
+        for (int document : candidates(query)) {
+            if (!filter.matches(document)) {
+                continue;
+            }
+            total++;
+            if (best.size() < wanted) {
+                best.add(document);
+            } else if (wanted > 0 && direction.compare(document, best.peek()) < 0) {
+                best.poll();
+                best.add(document);
+            }
+        }
+
+        List<Integer> ordered = new ArrayList<>(best);
+        ordered.sort(direction::compare);
+        List<String> result = new ArrayList<>(Math.max(0, ordered.size() - start));
+        for (int i = start; i < ordered.size(); i++) {
+            result.add(accountNumbers[ordered.get(i)]);
+        }
+        return new Hits(total, result, true);
+    }
+
+    // Postings a collect would read, stopping once past the limit
+    private long candidateBound(String query) {
+        if (query.length() >= GRAM) {
+            Postings[] lists = gramLists(query);
+            return lists == null ? 0 : lists[0].size;
+        }
+        long bound = shortNames.size;
+        for (long gram : gramsContaining.getOrDefault(query, Set.of())) {
+            bound += postings.get(gram).size;
+            if (bound > collectLimit) {
+                break;
+            }
+        }
+        return bound;
+    }
+
+    // Sorted documents that may contain the query, still to be confirmed with a substring check:
+    // "abcxbcd" has the trigrams of "abcd" without containing it. A shorter query takes every short
+    // name and every document with a trigram containing the query.
+    private int[] candidates(String query) {
+        if (query.length() < GRAM) {
+            List<Postings> lists = new ArrayList<>();
+            lists.add(shortNames);
+            for (long gram : gramsContaining.getOrDefault(query, Set.of())) {
+                lists.add(postings.get(gram));
+            }
+            int total = 0;
+            for (Postings list : lists) {
+                total += list.size;
+            }
+            int[] all = new int[total];
+            int at = 0;
+            for (Postings list : lists) {
+                System.arraycopy(list.documents, 0, all, at, list.size);
+                at += list.size;
+            }
+            Arrays.sort(all);
+            int unique = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (unique == 0 || all[unique - 1] != all[i]) {
+                    all[unique++] = all[i];
+                }
+            }
+            return Arrays.copyOf(all, unique);
+        }
+
+        Postings[] lists = gramLists(query);
+        if (lists == null) {
+            return new int[0];
+        }
+        return lists.length == 1 ? lists[0].toArray() : lists[0].intersect(lists[1]);
+    }
+
+    // Posting lists of the query's trigrams, shortest first, or null if one has none
+    private Postings[] gramLists(String query) {
+        Postings[] lists = new Postings[query.length() - GRAM + 1];
+        for (int i = 0; i < lists.length; i++) {
+            Postings list = postings.get(gram(query, i));
+            if (list == null) {
+                return null;
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        return lists;
+    }
+
+    private void mergePendingIfDue() {
+        lock.readLock().lock();
+        try {
+            if (!byNumber.mergeDue() && !byName.mergeDue()) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (byNumber.mergeDue()) {
+                byNumber.merge();
+            }
+            if (byName.mergeDue()) {
+                byName.merge();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int newDocument() {
+        if (documents == accountNumbers.length) {
+            int capacity = documents * 2;
+            accountNumbers = Arrays.copyOf(accountNumbers, capacity);
+            names = Arrays.copyOf(names, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+        return documents++;
+    }
+
+    private int compareNumbers(int first, int second) {
+        return accountNumbers[first].compareTo(accountNumbers[second]);
+    }
+
+    private int compareNames(int first, int second) {
+        int byHolder = names[first].compareTo(names[second]);
+        return byHolder != 0 ? byHolder : compareNumbers(first, second);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static long gram(String name, int start) {
+        return ((long) name.charAt(start) << 32) | ((long) name.charAt(start + 1) << 16) | name.charAt(start + 2);
+    }
+
+    // The one- and two-character strings a trigram contains
+    private static List<String> parts(long gram) {
+        String text = new String(new char[]{(char) (gram >>> 32), (char) (gram >>> 16), (char) gram});
+        return List.of(text.substring(0, 1), text.substring(1, 2), text.substring(2),
+                text.substring(0, 2), text.substring(1));
+    }
+
+    // Positions [start, wanted) of a sequence of matches in sort order
+    private final class PageBuilder {
+        private final int start;
+        private final int wanted;
+        private final List<String> accountNumbers = new ArrayList<>();
+        private int found;
+
+        PageBuilder(int start, int wanted) {
+            this.start = start;
+            this.wanted = wanted;
+        }
+
+        void accept(int document) {
+            if (found >= start && found < wanted) {
+                accountNumbers.add(AccountSearchIndex.this.accountNumbers[document]);
+            }
+            found++;
+        }
+
+        boolean full() {
+            return wanted > 0 && found >= wanted;
+        }
+    }
+
+    // Every document in one sort order. Additions wait unsorted until a search merges them in, or
+    // until they reach a sixteenth of the sorted documents while the index loads.
+    private static final class Order {
+        private final DocOrder order;
+        private int[] sorted = new int[0];
+        private int sortedSize;
+        private int[] pending = new int[16];
+        private int pendingSize;
+
+        Order(DocOrder order) {
+            this.order = order;
+        }
+
+        void add(int document) {
+            if (pendingSize == pending.length) {
+                pending = Arrays.copyOf(pending, pendingSize * 2);
+            }
+            pending[pendingSize++] = document;
+            if (pendingSize >= Math.max(SCAN_PENDING, sortedSize / 16)) {
+                merge();
+            }
+        }
+
+        void remove(int document) {
+            for (int i = 0; i < pendingSize; i++) {
+                if (pending[i] == document) {
+                    pending[i] = pending[--pendingSize];
+                    return;
+                }
+            }
+            int at = search(document, 0);
+            if (at < sortedSize && sorted[at] == document) {
+                System.arraycopy(sorted, at + 1, sorted, at, sortedSize - at - 1);
+                sortedSize--;
+            }
+        }
+
+        boolean mergeDue() {
+            return pendingSize > SCAN_PENDING;
+        }
+
+        // Sorts the additions and copies the sorted runs between their positions
+        void merge() {
+            Integer[] additions = new Integer[pendingSize];
+            for (int i = 0; i < pendingSize; i++) {
+                additions[i] = pending[i];
+            }
+            Arrays.sort(additions, order::compare);
+            int[] merged = new int[sortedSize + pendingSize];
+            int from = 0;
+            int to = 0;
+            for (int addition : additions) {
+                int at = search(addition, from);
+                System.arraycopy(sorted, from, merged, to, at - from);
+                to += at - from;
+                from = at;
+                merged[to++] = addition;
+            }
+            System.arraycopy(sorted, from, merged, to, sortedSize - from);
+            sorted = merged;
+            sortedSize = merged.length;
+            pending = new int[16];
+            pendingSize = 0;
+        }
+
+        // Unmerged additions that match, in the walk's direction
+        int[] pendingMatches(DocumentFilter filter, DocOrder direction) {
+            List<Integer> matches = new ArrayList<>();
+            for (int i = 0; i < pendingSize; i++) {
+                if (filter.matches(pending[i])) {
+                    matches.add(pending[i]);
+                }
+            }
+            matches.sort(direction::compare);
+            return matches.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // First position at or after `from` whose document does not sort before `document`
+        private int search(int document, int from) {
+            int low = from;
+            int high = sortedSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (order.compare(sorted[mid], document) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // Growable sorted int array of document numbers
+    private static final class Postings {
+        private int[] documents = new int[4];
+        private int size;
+
+        // A trigram that repeats within one name ("nanana") is posted once
+        void add(int document) {
+            int at = size > 0 && documents[size - 1] < document ? size : advanceTo(0, document);
+            if (at < size && documents[at] == document) {
+                return;
+            }
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size + (size >> 1) + 1);
+            }
+            System.arraycopy(documents, at, documents, at + 1, size - at);
+            documents[at] = document;
+            size++;
+        }
+
+        boolean remove(int document) {
+            int at = advanceTo(0, document);
+            if (at == size || documents[at] != document) {
+                return false;
+            }
+            System.arraycopy(documents, at + 1, documents, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(documents, size);
+        }
+
+        // Documents in both lists. Walks this, the shorter one, and gallops through the other when
+        // it is much longer, else merges the two.
+        int[] intersect(Postings other) {
+            int[] both = new int[size];
+            int count = 0;
+            if (other.size > size * 8L) {
+                int cursor = 0;
+                for (int i = 0; i < size && cursor < other.size; i++) {
+                    cursor = other.advanceTo(cursor, documents[i]);
+                    if (cursor < other.size && other.documents[cursor] == documents[i]) {
+                        both[count++] = documents[i];
+                    }
+                }
+            } else {
+                int i = 0;
+                int j = 0;
+                while (i < size && j < other.size) {
+                    int mine = documents[i];
+                    int theirs = other.documents[j];
+                    if (mine == theirs) {
+                        both[count++] = mine;
+                    }
+                    i += mine <= theirs ? 1 : 0;
+                    j += theirs <= mine ? 1 : 0;
+                }
+            }
+            return Arrays.copyOf(both, count);
+        }
+
+        // First position at or after `from` holding a document >= target: gallop, then binary search
+        int advanceTo(int from, int target) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && documents[high] < target) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (documents[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.OffsetPage;
+import com.banking.account.entity.Account;
+import com.banking.account.repository.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Account search. A name filter is answered from AccountSearchIndex, which picks the page, and
+// only that page's rows are read from the database. Without a name the status/type filter and
+// the paging run in the database.
+//
+// The index is loaded from the accounts table at startup and kept current by the create and
+// delete endpoints, the only places account names, statuses and types change.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountSearchService implements ApplicationRunner {
+
+    private static final Map<String, AccountSearchIndex.SortField> SORT_FIELDS = Map.of(
+            "accountNumber", AccountSearchIndex.SortField.ACCOUNT_NUMBER,
+            "accountHolderName", AccountSearchIndex.SortField.ACCOUNT_HOLDER_NAME);
+
+    private final AccountRepository accountRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final AccountSearchIndex index = new AccountSearchIndex();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<AccountDTO> accounts = accountRepository.streamAllDTOs()) {
+                accounts.forEach(account -> index.add(account.getAccountNumber(), account.getAccountHolderName(),
+                        account.getStatus(), account.getAccountType()));
+            }
+        });
+        log.info("Indexed {} account holder names for search", index.size());
+    }
+
+    public void indexAccount(Account account) {
+        index.add(account.getAccountNumber(), account.getAccountHolderName(),
+                account.getStatus(), account.getAccountType());
+    }
+
+    public void removeAccount(Account account) {
+        index.remove(account.getAccountNumber(), account.getAccountHolderName());
+    }
+
+    // Sorts by accountNumber or accountHolderName, one property at a time
+    public OffsetPage<AccountDTO> search(String name, String status, String type, Pageable pageable) {
+        Sort.Order order = sortOrder(pageable.getSort());
+
+        if (name == null || name.isBlank()) {
+            Page<AccountDTO> page = accountRepository.searchDTOs(status, type,
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(order)));
+            return new OffsetPage<>(page.getContent(), page.getNumber(), page.getSize(),
+                    page.getTotalElements(), page.getTotalPages(), true);
+        }
+
+        AccountSearchIndex.Hits hits = index.search(name.trim(), status, type,
+                SORT_FIELDS.get(order.getProperty()), order.isDescending(),
+                (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE), pageable.getPageSize());
+
+        List<AccountDTO> items = new ArrayList<>(hits.getAccountNumbers().size());
+        if (!hits.getAccountNumbers().isEmpty()) {
+            Map<String, AccountDTO> rows = new HashMap<>();
+            for (AccountDTO row : accountRepository.findDTOsByAccountNumberIn(hits.getAccountNumbers())) {
+                rows.put(row.getAccountNumber(), row);
+            }
+            // Index order; an account deleted since the index lookup is simply missing
+            for (String accountNumber : hits.getAccountNumbers()) {
+                AccountDTO row = rows.get(accountNumber);
+                if (row != null) {
+                    items.add(row);
+                }
+            }
+        }
+        int totalPages = (int) ((hits.getTotal() + pageable.getPageSize() - 1) / pageable.getPageSize());
+        return new OffsetPage<>(items, pageable.getPageNumber(), pageable.getPageSize(),
+                hits.getTotal(), totalPages, hits.isTotalExact());
+    }
+
+    private static Sort.Order sortOrder(Sort sort) {
+        if (sort.isUnsorted()) {
+            return Sort.Order.asc("accountNumber");
+        }
+        List<Sort.Order> orders = sort.toList();
+        if (orders.size() > 1 || !SORT_FIELDS.containsKey(orders.get(0).getProperty())) {
+            throw new IllegalArgumentException("Sort by accountNumber or accountHolderName");
+        }
+        return orders.get(0);
+    }
+}
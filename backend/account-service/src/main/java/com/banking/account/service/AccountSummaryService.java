@@ -0,0 +1,158 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.AccountSummary;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountSummaryRepository;
+import com.banking.account.repository.BalanceShardRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountSummaryService {
+
+    private final AccountSummaryRepository accountSummaryRepository;
+    private final BalanceShardRepository balanceShardRepository;
+    private final EntityManager entityManager;
+
+    // Must join the caller's transaction so the summary commits or rolls back with the transaction row.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Transaction transaction) {
+        Delta delta = new Delta();
+        delta.add(transaction);
+        apply(transaction.getAccountNumber(), delta);
+    }
+
+    // Summary rows are updated in account-number order, like the account rows. Transfers and the
+    // audit writer both touch several summaries in one transaction and would otherwise deadlock.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<Transaction> transactions) {
+        Map<String, Delta> deltas = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            deltas.computeIfAbsent(transaction.getAccountNumber(), key -> new Delta()).add(transaction);
+        }
+        deltas.forEach(this::apply);
+    }
+
+    // Deposits folded in from a hot account's shards, see ShardedBalanceService
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeposits(String accountNumber, Money deposits, long count) {
+        Delta delta = new Delta();
+        delta.deposits = deposits.getUnits();
+        delta.completed = count;
+        apply(accountNumber, delta);
+    }
+
+    // Inserts an empty summary unless the account has one. Called when an account is opened, so the
+    // transfers, batches and audit rows that write it without the account row lock only update it.
+    @Transactional
+    public void ensureSummary(String accountNumber) {
+        accountSummaryRepository.lockAccount(accountNumber);
+        if (!accountSummaryRepository.existsById(accountNumber)) {
+            accountSummaryRepository.insertSummary(accountNumber, BigDecimal.ZERO, BigDecimal.ZERO,
+                    0, 0, LocalDateTime.now());
+        }
+    }
+
+    // Interest credits for a chunk of accounts, see InterestAccrualService. The summaries are locked
+    // in account number order and changed as entities so the chunk's updates go out in JDBC batches.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCredits(Map<String, Money> credits) {
+        if (credits.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, AccountSummary> summaries = new HashMap<>();
+        for (AccountSummary summary : accountSummaryRepository.findByAccountNumberInForUpdate(credits.keySet())) {
+            summaries.put(summary.getAccountNumber(), summary);
+        }
+        credits.forEach((accountNumber, amount) -> {
+            AccountSummary summary = summaries.get(accountNumber);
+            if (summary == null) {
+                // persist, not save - save merges, which reads the row it is about to insert first
+                entityManager.persist(new AccountSummary(accountNumber, amount, Money.ZERO, 1, 0, now));
+                return;
+            }
+            summary.setTotalDeposits(summary.getTotalDeposits().plus(amount));
+            summary.setCompletedCount(summary.getCompletedCount() + 1);
+            summary.setUpdatedAt(now);
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<AccountSummary> getSummary(String accountNumber) {
+        return accountSummaryRepository.findById(accountNumber);
+    }
+
+    // Every writer of a summary delta holds an account row or shard row lock, or waits for one when
+    // the summary it updates is gone. Holding them all keeps deltas from landing between the delete
+    // and the insert, where they would be lost or counted twice.
+    @Transactional
+    public int rebuild() {
+        log.info("Rebuilding account summaries from transactions");
+        accountSummaryRepository.lockAllAccounts();
+        balanceShardRepository.lockAllShards();
+        accountSummaryRepository.deleteAllSummaries();
+        int rebuilt = accountSummaryRepository.insertSummariesFromTransactions(LocalDateTime.now());
+        // Deposits still waiting on hot account shards are in the transactions table, now counted
+        balanceShardRepository.clearPendingDeposits();
+        log.info("Rebuilt {} account summaries", rebuilt);
+        return rebuilt;
+    }
+
+    private void apply(String accountNumber, Delta delta) {
+        LocalDateTime now = LocalDateTime.now();
+        BigDecimal deposits = Money.ofUnits(delta.deposits).toBigDecimal();
+        BigDecimal withdrawals = Money.ofUnits(delta.withdrawals).toBigDecimal();
+        int updated = accountSummaryRepository.applyDelta(accountNumber,
+                deposits, withdrawals, delta.completed, delta.failed, now);
+        if (updated == 0) {
+            // No summary yet (a rebuild gives every account one). The account row lock makes a second
+            // writer wait for the first one's insert and then update the row it committed.
+            accountSummaryRepository.lockAccount(accountNumber);
+            updated = accountSummaryRepository.applyDelta(accountNumber,
+                    deposits, withdrawals, delta.completed, delta.failed, now);
+            if (updated == 0) {
+                accountSummaryRepository.insertSummary(accountNumber,
+                        deposits, withdrawals, delta.completed, delta.failed, now);
+            }
+        }
+    }
+
+    private static class Delta {
+        // Minor units of Money
+        private long deposits;
+        private long withdrawals;
+        private long completed;
+        private long failed;
+
+        void add(Transaction transaction) {
+            if (!"COMPLETED".equals(transaction.getStatus())) {
+                failed++;
+                return;
+            }
+            completed++;
+            // Interest credited by InterestAccrualService counts as a deposit
+            if ("DEPOSIT".equals(transaction.getTransactionType())
+                    || "INTEREST".equals(transaction.getTransactionType())) {
+                deposits = Math.addExact(deposits, transaction.getAmount().getUnits());
+            } else if ("WITHDRAWAL".equals(transaction.getTransactionType())) {
+                withdrawals = Math.addExact(withdrawals, transaction.getAmount().getUnits());
+            }
+        }
+    }
+}
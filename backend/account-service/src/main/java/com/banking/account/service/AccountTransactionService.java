@@ -0,0 +1,497 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.BatchTransactionResult;
+import com.banking.account.dto.TransactionRequest;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.Transaction;
+import com.banking.account.ledger.BalanceLedger;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountTransactionService {
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountSummaryService accountSummaryService;
+    private final AccountCache accountCache;
+    private final ReferenceGenerator referenceGenerator;
+    private final FailedTransactionWriter failedTransactionWriter;
+    private final OptimisticRetry optimisticRetry;
+    private final AccountEventHub accountEventHub;
+    private final ShardedBalanceService shardedBalanceService;
+    private final MeterRegistry meterRegistry;
+    // Present in ledger mode, balances then live in the ledger instead of the accounts table
+    private final Optional<BalanceLedger> balanceLedger;
+
+    // Credit the account with a single UPDATE, then read back the new balance for the response.
+    // The row stays locked until commit, so the balance read is the one this update produced.
+    // No OptimisticRetry: the UPDATE checks no version, it bumps it, so it cannot lose a conflict.
+    @Transactional
+    public TransactionResult deposit(String accountNumber, Money amount, String description) {
+        if (balanceLedger.isPresent()) {
+            return applyToLedger(balanceLedger.get(), "DEPOSIT", accountNumber, amount, description, description);
+        }
+        if (shardedBalanceService.isSharded(accountNumber)) {
+            Optional<TransactionResult> result = depositToShard(accountNumber, amount, description);
+            if (result.isPresent()) {
+                return result.get();
+            }
+            // The shards were removed in the meantime, the account row takes it
+        }
+
+        int updated = accountRepository.creditBalance(accountNumber, amount.toBigDecimal(), LocalDateTime.now());
+        if (updated == 0) {
+            return count("DEPOSIT", TransactionResult.accountNotFound());
+        }
+
+        Account account = accountRepository.findByAccountNumber(accountNumber).orElseThrow();
+        accountCache.evictAfterCommit(account);
+        Transaction transaction = recordTransaction(account, "DEPOSIT", amount, description, "COMPLETED");
+        return count("DEPOSIT", TransactionResult.completed(account, transaction));
+    }
+
+    // Debit guarded by balance >= amount. Zero rows means the account is missing or short of funds,
+    // the follow-up read tells the two apart and supplies the balance for the response.
+    @Transactional
+    public TransactionResult withdraw(String accountNumber, Money amount,
+                                      String description, String failedDescription) {
+        if (balanceLedger.isPresent()) {
+            return applyToLedger(balanceLedger.get(), "WITHDRAWAL", accountNumber, amount,
+                    description, failedDescription);
+        }
+        if (shardedBalanceService.isSharded(accountNumber)) {
+            return withdrawFromShards(accountNumber, amount, description, failedDescription);
+        }
+
+        int updated = accountRepository.debitBalance(accountNumber, amount.toBigDecimal(), LocalDateTime.now());
+
+        Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
+        if (accountOpt.isEmpty()) {
+            return count("WITHDRAWAL", TransactionResult.accountNotFound());
+        }
+
+        Account account = accountOpt.get();
+        if (updated == 0) {
+            log.debug("Insufficient funds for withdrawal of {} from account: {}", amount, accountNumber);
+            Transaction failed = recordFailure(account, "WITHDRAWAL", amount, failedDescription);
+            return count("WITHDRAWAL", TransactionResult.insufficientFunds(account, failed));
+        }
+
+        accountCache.evictAfterCommit(account);
+        Transaction transaction = recordTransaction(account, "WITHDRAWAL", amount, description, "COMPLETED");
+        return count("WITHDRAWAL", TransactionResult.completed(account, transaction));
+    }
+
+    // Debit and credit in one transaction, both legs share a transfer reference. Both rows are read
+    // in account-number order, as processBatch does, so under PESSIMISTIC locking opposing transfers
+    // A->B and B->A queue on the first row instead of deadlocking, and under OPTIMISTIC locking the
+    // two UPDATEs are issued in the same order at commit. A lost version check retries the transfer.
+    public TransferResult transfer(String fromAccountNumber, String toAccountNumber,
+                                   Money amount, String description) {
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        BalanceLedger ledger = balanceLedger.orElse(null);
+        return countTransfer(optimisticRetry.execute("transfer", () -> ledger != null
+                ? transferOnLedger(ledger, fromAccountNumber, toAccountNumber, amount, description)
+                : applyTransfer(fromAccountNumber, toAccountNumber, amount, description)));
+    }
+
+    private TransferResult applyTransfer(String fromAccountNumber, String toAccountNumber,
+                                         Money amount, String description) {
+        return applyTransfer(fromAccountNumber, toAccountNumber, amount, description, false);
+    }
+
+    private TransferResult applyTransfer(String fromAccountNumber, String toAccountNumber,
+                                         Money amount, String description, boolean consolidated) {
+        boolean fromFirst = fromAccountNumber.compareTo(toAccountNumber) < 0;
+        Optional<Account> first = findForWrite(fromFirst ? fromAccountNumber : toAccountNumber);
+        if (first.isEmpty()) {
+            return TransferResult.accountNotFound();
+        }
+        Optional<Account> second = findForWrite(fromFirst ? toAccountNumber : fromAccountNumber);
+        if (second.isEmpty()) {
+            return TransferResult.accountNotFound();
+        }
+        Account from = fromFirst ? first.get() : second.get();
+        Account to = fromFirst ? second.get() : first.get();
+
+        // A hot account's row may be short while its shards hold the rest. Folding them in clears
+        // the persistence context, so both rows are read again; their locks are still held.
+        if (from.getBalance().isLessThan(amount) && !consolidated
+                && shardedBalanceService.isSharded(fromAccountNumber)
+                && shardedBalanceService.consolidate(fromAccountNumber)) {
+            return applyTransfer(fromAccountNumber, toAccountNumber, amount, description, true);
+        }
+
+        Money fromShards = shardedBalanceService.shardBalance(fromAccountNumber);
+        if (from.getBalance().isLessThan(amount)) {
+            log.debug("Insufficient funds for transfer of {} from account: {}", amount, fromAccountNumber);
+            Transaction failed = newTransaction(from, "WITHDRAWAL", amount, from.getBalance().plus(fromShards),
+                    description + " - Insufficient funds", "FAILED");
+            failedTransactionWriter.submit(failed);
+            return TransferResult.insufficientFunds(from, failed);
+        }
+
+        // Managed entities - flushed as one versioned UPDATE each at commit
+        from.setBalance(from.getBalance().minus(amount));
+        to.setBalance(to.getBalance().plus(amount));
+        accountCache.evictAfterCommit(from);
+        accountCache.evictAfterCommit(to);
+        return recordTransfer(from, to, amount, from.getBalance().plus(fromShards),
+                to.getBalance().plus(shardedBalanceService.shardBalance(toAccountNumber)), description);
+    }
+
+    // Apply a batch grouped by account. Each account row is read once, its items are applied
+    // in submission order against the in-memory balance, and the balance is written back with a
+    // single versioned UPDATE. Transaction rows are inserted together so Hibernate can JDBC-batch
+    // them. If any account changed underneath, the whole batch is retried from fresh balances.
+    public List<BatchTransactionResult> processBatch(List<TransactionRequest> requests) {
+        // Sorted by account number so concurrent batches always lock rows in the same order
+        Map<String, List<Integer>> itemsByAccount = new TreeMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            itemsByAccount.computeIfAbsent(requests.get(i).getAccountNumber(), key -> new ArrayList<>()).add(i);
+        }
+
+        TransactionResult.Outcome[] outcomes = new TransactionResult.Outcome[requests.size()];
+        List<BatchTransactionResult> results = optimisticRetry.execute("batch",
+                () -> applyBatch(requests, itemsByAccount, outcomes));
+
+        // Counted once the batch has committed, not per attempt
+        for (int i = 0; i < requests.size(); i++) {
+            if (outcomes[i] != null) {
+                outcomeCounter(requests.get(i).getTransactionType(), outcomes[i]).increment();
+            }
+        }
+        log.debug("Processed batch of {} transactions across {} accounts", requests.size(), itemsByAccount.size());
+        return results;
+    }
+
+    private List<BatchTransactionResult> applyBatch(List<TransactionRequest> requests,
+                                                    Map<String, List<Integer>> itemsByAccount,
+                                                    TransactionResult.Outcome[] outcomes) {
+        Transaction[] itemTransactions = new Transaction[requests.size()];
+        String[] failures = new String[requests.size()];
+        Arrays.fill(outcomes, null);
+        List<Transaction> toInsert = new ArrayList<>(requests.size());
+
+        BalanceLedger ledger = balanceLedger.orElse(null);
+        List<BalanceLedger.Pending> prepared = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> entry : itemsByAccount.entrySet()) {
+            // A hot account's withdrawals can draw on its shards: they are folded into the row at
+            // this account's turn in the lock order, before the row is read. The fold flushes and
+            // clears the persistence context, earlier accounts of the batch are already written.
+            if (ledger == null && shardedBalanceService.isSharded(entry.getKey())
+                    && entry.getValue().stream().anyMatch(index ->
+                            "WITHDRAWAL".equals(requests.get(index).getTransactionType()))) {
+                shardedBalanceService.consolidate(entry.getKey());
+            }
+            Optional<Account> accountOpt = ledger != null
+                    ? accountCache.findByAccountNumber(entry.getKey())
+                    : findForWrite(entry.getKey());
+            if (accountOpt.isEmpty()) {
+                entry.getValue().forEach(index -> {
+                    failures[index] = "Account not found";
+                    outcomes[index] = TransactionResult.Outcome.ACCOUNT_NOT_FOUND;
+                });
+                continue;
+            }
+
+            Account account = accountOpt.get();
+            if (ledger != null) {
+                applyBatchToLedger(ledger, account, entry.getValue(), requests,
+                        itemTransactions, failures, outcomes, toInsert, prepared);
+                continue;
+            }
+            Money balance = account.getBalance();
+            // Deposits that reached the shards since, reported in balanceAfter but not spent
+            Money shards = shardedBalanceService.shardBalance(account.getAccountNumber());
+
+            for (int index : entry.getValue()) {
+                TransactionRequest request = requests.get(index);
+                Money amount = request.getAmount();
+                String description = request.getDescription() != null ?
+                        request.getDescription() : request.getTransactionType() + " transaction";
+
+                Transaction transaction;
+                if ("DEPOSIT".equals(request.getTransactionType())) {
+                    balance = balance.plus(amount);
+                    transaction = newTransaction(account, "DEPOSIT", amount, balance.plus(shards),
+                            description, "COMPLETED");
+                    outcomes[index] = TransactionResult.Outcome.COMPLETED;
+                } else if ("WITHDRAWAL".equals(request.getTransactionType())) {
+                    if (balance.isLessThan(amount)) {
+                        transaction = newTransaction(account, "WITHDRAWAL", amount, balance.plus(shards),
+                                description, "FAILED");
+                        failures[index] = "Insufficient funds";
+                        outcomes[index] = TransactionResult.Outcome.INSUFFICIENT_FUNDS;
+                    } else {
+                        balance = balance.minus(amount);
+                        transaction = newTransaction(account, "WITHDRAWAL", amount, balance.plus(shards),
+                                description, "COMPLETED");
+                        outcomes[index] = TransactionResult.Outcome.COMPLETED;
+                    }
+                } else {
+                    failures[index] = "Invalid transaction type";
+                    continue;
+                }
+
+                itemTransactions[index] = transaction;
+                toInsert.add(transaction);
+            }
+
+            // Managed entity - flushed as one versioned UPDATE per account at commit
+            account.setBalance(balance);
+            accountCache.evictAfterCommit(account);
+        }
+
+        if (ledger != null) {
+            ledger.settleOnCompletion(prepared);
+        }
+        transactionRepository.saveAll(toInsert);
+        accountSummaryService.recordAll(toInsert);
+        accountEventHub.publishAfterCommit(toInsert);
+
+        List<BatchTransactionResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            TransactionRequest request = requests.get(i);
+            Transaction transaction = itemTransactions[i];
+            results.add(BatchTransactionResult.builder()
+                    .index(i)
+                    .accountNumber(request.getAccountNumber())
+                    .transactionType(request.getTransactionType())
+                    .amount(request.getAmount())
+                    .success(failures[i] == null)
+                    .message(failures[i] != null ? failures[i] : "Transaction completed successfully")
+                    .reference(transaction != null ? transaction.getReference() : null)
+                    .balanceAfter(transaction != null ? transaction.getBalanceAfter() : null)
+                    .build());
+        }
+        return results;
+    }
+
+    private Optional<Account> findForWrite(String accountNumber) {
+        return optimisticRetry.isPessimistic()
+                ? accountRepository.findByAccountNumberForUpdate(accountNumber)
+                : accountRepository.findByAccountNumber(accountNumber);
+    }
+
+    // Ledger mode: the balance change is prepared in the ledger and journaled once the transaction
+    // row has committed, the accounts row is only read (through the cache) for that row. The ledger
+    // is the system of record for balances, the transaction row is the audit entry for it.
+    private TransactionResult applyToLedger(BalanceLedger ledger, String type, String accountNumber,
+                                            Money amount, String description, String failedDescription) {
+        Optional<Account> cached = accountCache.findByAccountNumber(accountNumber);
+        if (cached.isEmpty()) {
+            return count(type, TransactionResult.accountNotFound());
+        }
+
+        BalanceLedger.Pending update = "DEPOSIT".equals(type)
+                ? ledger.prepareCredit(accountNumber, amount)
+                : ledger.prepareDebit(accountNumber, amount);
+        if (update.getOutcome() == TransactionResult.Outcome.ACCOUNT_NOT_FOUND) {
+            return count(type, TransactionResult.accountNotFound());
+        }
+        ledger.settleOnCompletion(List.of(update));
+
+        // Cached accounts are shared, the response gets its own copy with the ledger balance
+        Account account = AccountCache.copyOf(cached.get());
+        account.setBalance(update.getBalance());
+        if (update.getOutcome() == TransactionResult.Outcome.INSUFFICIENT_FUNDS) {
+            Transaction failed = recordFailure(account, type, amount, failedDescription);
+            return count(type, TransactionResult.insufficientFunds(account, failed));
+        }
+
+        Transaction transaction = recordTransaction(account, type, amount, description, "COMPLETED");
+        return count(type, TransactionResult.completed(account, transaction));
+    }
+
+    // Hot account: the deposit credits one shard and leaves the accounts row, which it only reads
+    // through the cache, unlocked. Its summary delta waits on the shard until consolidation.
+    private Optional<TransactionResult> depositToShard(String accountNumber, Money amount, String description) {
+        Optional<Account> cached = accountCache.findByAccountNumber(accountNumber);
+        if (cached.isEmpty() || !shardedBalanceService.credit(accountNumber, amount)) {
+            return Optional.empty();
+        }
+
+        Account account = AccountCache.copyOf(cached.get());
+        account.setBalance(shardedBalanceService.totalBalance(accountNumber).orElseThrow());
+        Transaction transaction = newTransaction(account, "DEPOSIT", amount, account.getBalance(),
+                description, "COMPLETED");
+        transactionRepository.save(transaction);
+        accountEventHub.publishAfterCommit(List.of(transaction));
+        return Optional.of(count("DEPOSIT", TransactionResult.completed(account, transaction)));
+    }
+
+    private TransactionResult withdrawFromShards(String accountNumber, Money amount,
+                                                 String description, String failedDescription) {
+        boolean debited = shardedBalanceService.debit(accountNumber, amount);
+        Optional<Account> cached = accountCache.findByAccountNumber(accountNumber);
+        Optional<Money> balance = shardedBalanceService.totalBalance(accountNumber);
+        if (cached.isEmpty() || balance.isEmpty()) {
+            return count("WITHDRAWAL", TransactionResult.accountNotFound());
+        }
+
+        Account account = AccountCache.copyOf(cached.get());
+        account.setBalance(balance.get());
+        if (!debited) {
+            log.debug("Insufficient funds for withdrawal of {} from hot account: {}", amount, accountNumber);
+            Transaction failed = recordFailure(account, "WITHDRAWAL", amount, failedDescription);
+            return count("WITHDRAWAL", TransactionResult.insufficientFunds(account, failed));
+        }
+
+        accountCache.evictAfterCommit(account);
+        Transaction transaction = recordTransaction(account, "WITHDRAWAL", amount, description, "COMPLETED");
+        return count("WITHDRAWAL", TransactionResult.completed(account, transaction));
+    }
+
+    private TransferResult transferOnLedger(BalanceLedger ledger, String fromAccountNumber, String toAccountNumber,
+                                            Money amount, String description) {
+        Optional<Account> fromCached = accountCache.findByAccountNumber(fromAccountNumber);
+        Optional<Account> toCached = accountCache.findByAccountNumber(toAccountNumber);
+        if (fromCached.isEmpty() || toCached.isEmpty()) {
+            return TransferResult.accountNotFound();
+        }
+
+        BalanceLedger.Pending update = ledger.prepareTransfer(fromAccountNumber, toAccountNumber, amount);
+        if (update.getOutcome() == TransactionResult.Outcome.ACCOUNT_NOT_FOUND) {
+            return TransferResult.accountNotFound();
+        }
+        ledger.settleOnCompletion(List.of(update));
+
+        Account from = AccountCache.copyOf(fromCached.get());
+        Account to = AccountCache.copyOf(toCached.get());
+        from.setBalance(update.getBalance());
+        to.setBalance(update.getToBalance());
+        if (update.getOutcome() == TransactionResult.Outcome.INSUFFICIENT_FUNDS) {
+            Transaction failed = recordFailure(from, "WITHDRAWAL", amount, description + " - Insufficient funds");
+            return TransferResult.insufficientFunds(from, failed);
+        }
+        return recordTransfer(from, to, amount, from.getBalance(), to.getBalance(), description);
+    }
+
+    // Both legs are ordinary withdrawal and deposit rows, so summaries and history need no special case
+    private TransferResult recordTransfer(Account from, Account to, Money amount,
+                                          Money fromBalanceAfter, Money toBalanceAfter, String description) {
+        String reference = referenceGenerator.next(ReferenceGenerator.TRANSFER_PREFIX);
+        Transaction debit = newTransaction(from, "WITHDRAWAL", amount, fromBalanceAfter, description, "COMPLETED");
+        Transaction credit = newTransaction(to, "DEPOSIT", amount, toBalanceAfter, description, "COMPLETED");
+        debit.setTransferReference(reference);
+        credit.setTransferReference(reference);
+        List<Transaction> legs = List.of(debit, credit);
+        transactionRepository.saveAll(legs);
+        accountSummaryService.recordAll(legs);
+        accountEventHub.publishAfterCommit(legs);
+        return TransferResult.completed(reference, from, to, debit, credit);
+    }
+
+    private void applyBatchToLedger(BalanceLedger ledger, Account account, List<Integer> indexes,
+                                    List<TransactionRequest> requests, Transaction[] itemTransactions,
+                                    String[] failures, TransactionResult.Outcome[] outcomes,
+                                    List<Transaction> toInsert, List<BalanceLedger.Pending> prepared) {
+        // Earlier deposits of this batch commit together with the later withdrawals, which may spend them
+        Money credited = Money.ZERO;
+        for (int index : indexes) {
+            TransactionRequest request = requests.get(index);
+            String type = request.getTransactionType();
+            if (!"DEPOSIT".equals(type) && !"WITHDRAWAL".equals(type)) {
+                failures[index] = "Invalid transaction type";
+                continue;
+            }
+
+            // Journaled together, with one force, once the batch has committed
+            BalanceLedger.Pending update = "DEPOSIT".equals(type)
+                    ? ledger.prepareCredit(account.getAccountNumber(), request.getAmount(), credited)
+                    : ledger.prepareDebit(account.getAccountNumber(), request.getAmount(), credited);
+            outcomes[index] = update.getOutcome();
+            if (update.getOutcome() == TransactionResult.Outcome.ACCOUNT_NOT_FOUND) {
+                failures[index] = "Account not found";
+                continue;
+            }
+            prepared.add(update);
+            if (update.getOutcome() == TransactionResult.Outcome.COMPLETED && "DEPOSIT".equals(type)) {
+                credited = credited.plus(request.getAmount());
+            }
+
+            String status = "COMPLETED";
+            if (update.getOutcome() == TransactionResult.Outcome.INSUFFICIENT_FUNDS) {
+                failures[index] = "Insufficient funds";
+                status = "FAILED";
+            }
+            String description = request.getDescription() != null ?
+                    request.getDescription() : type + " transaction";
+            Transaction transaction = newTransaction(account, type, request.getAmount(),
+                    update.getBalance(), description, status);
+            itemTransactions[index] = transaction;
+            toInsert.add(transaction);
+        }
+    }
+
+    private TransactionResult count(String type, TransactionResult result) {
+        outcomeCounter(type, result.getOutcome()).increment();
+        return result;
+    }
+
+    private TransferResult countTransfer(TransferResult result) {
+        outcomeCounter("TRANSFER", result.getOutcome()).increment();
+        return result;
+    }
+
+    private Counter outcomeCounter(String type, TransactionResult.Outcome outcome) {
+        return Counter.builder("banking.transactions")
+                .description("Deposits, withdrawals and transfers by outcome")
+                // Batch items carry caller-supplied types, keep the tag bounded
+                .tag("type", "DEPOSIT".equals(type) || "WITHDRAWAL".equals(type) || "TRANSFER".equals(type)
+                        ? type : "OTHER")
+                .tag("outcome", outcome.name())
+                .register(meterRegistry);
+    }
+
+    private Transaction recordTransaction(Account account, String type, Money amount,
+                                          String description, String status) {
+        Transaction transaction = newTransaction(account, type, amount, account.getBalance(), description, status);
+        transactionRepository.save(transaction);
+        accountSummaryService.record(transaction);
+        accountEventHub.publishAfterCommit(List.of(transaction));
+        return transaction;
+    }
+
+    // Rejections change no balance, their audit row is written behind the response
+    private Transaction recordFailure(Account account, String type, Money amount, String description) {
+        Transaction transaction = newTransaction(account, type, amount, account.getBalance(), description, "FAILED");
+        failedTransactionWriter.submit(transaction);
+        return transaction;
+    }
+
+    private Transaction newTransaction(Account account, String type, Money amount,
+                                       Money balanceAfter, String description, String status) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountId(account.getId());
+        transaction.setAccountNumber(account.getAccountNumber());
+        transaction.setTransactionType(type);
+        transaction.setAmount(amount);
+        transaction.setBalanceAfter(balanceAfter);
+        transaction.setDescription(description);
+        transaction.setStatus(status);
+        transaction.setReference(referenceGenerator.next());
+        return transaction;
+    }
+}
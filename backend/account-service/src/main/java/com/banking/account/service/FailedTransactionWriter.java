@@ -0,0 +1,197 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Transaction;
+import com.banking.account.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind for the audit rows of rejected transactions. A rejection changes no balance, so the
+// request does not need to wait for its row: it is queued here and a background thread inserts
+// queued rows in JDBC batches, together with their summary deltas.
+//
+// Rows are written after at most flush-interval, or as soon as a full batch is waiting.
+// When the buffer is full, BLOCK makes the caller wait for the drain and DROP discards the row
+// and counts it. Queued rows are flushed when the context shuts down.
+@Component
+@Slf4j
+public class FailedTransactionWriter {
+
+    public enum OverflowPolicy { BLOCK, DROP }
+
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final TransactionRepository transactionRepository;
+    private final AccountSummaryService accountSummaryService;
+    private final AccountEventHub accountEventHub;
+    private final TransactionTemplate transactionTemplate;
+    private final MpscRingBuffer<Transaction> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+
+    // Only one thread drains at a time: the background thread, flush() or a blocked producer at shutdown
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public FailedTransactionWriter(TransactionRepository transactionRepository,
+                                   AccountSummaryService accountSummaryService,
+                                   AccountEventHub accountEventHub,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${banking.audit.buffer-size:8192}") int bufferSize,
+                                   @Value("${banking.audit.batch-size:50}") int batchSize,
+                                   @Value("${banking.audit.flush-interval:200ms}") Duration flushInterval,
+                                   @Value("${banking.audit.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Audit batch size must be greater than 0");
+        }
+        this.transactionRepository = transactionRepository;
+        this.accountSummaryService = accountSummaryService;
+        this.accountEventHub = accountEventHub;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.buffer = new MpscRingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = overflowPolicy;
+
+        this.written = auditCounter(meterRegistry, "written");
+        this.dropped = auditCounter(meterRegistry, "dropped");
+        this.failed = auditCounter(meterRegistry, "failed");
+        Gauge.builder("banking.audit.queued", buffer, MpscRingBuffer::size)
+                .description("Failed-transaction rows waiting to be written")
+                .register(meterRegistry);
+
+        this.drainer = new Thread(this::drainLoop, "failed-transaction-writer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    // Queues the row and returns. The timestamp is taken now, not when the row is inserted.
+    public void submit(Transaction transaction) {
+        if (transaction.getTimestamp() == null) {
+            transaction.setTimestamp(LocalDateTime.now());
+        }
+        while (!buffer.offer(transaction)) {
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                dropped.increment();
+                log.warn("Audit buffer full, dropped failed transaction {}", transaction.getReference());
+                return;
+            }
+            if (!running) {
+                // Nobody left to wait for
+                flush();
+                continue;
+            }
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+        }
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    // Writes everything queued so far on the calling thread, joining its transaction if it has one
+    public void flush() {
+        drainLock.lock();
+        try {
+            while (drainBatch() > 0) {
+                // Until the buffer is empty
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    public int queued() {
+        return buffer.size();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+        log.info("Audit writer stopped, {} rows written, {} dropped, {} failed",
+                (long) written.count(), (long) dropped.count(), (long) failed.count());
+    }
+
+    private void drainLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            if (running && buffer.size() > 0) {
+                flush();
+            }
+        }
+    }
+
+    // Guarded by drainLock
+    private int drainBatch() {
+        List<Transaction> batch = new ArrayList<>(batchSize);
+        int drained = buffer.drainTo(batch, batchSize);
+        if (drained == 0) {
+            return 0;
+        }
+        try {
+            write(batch);
+        } catch (DataIntegrityViolationException e) {
+            // The first summary row for an account can race a request inserting it; retry as an update
+            log.debug("Retrying audit batch after constraint violation: {}", e.getMessage());
+            writeOrCount(batch);
+        } catch (RuntimeException e) {
+            fail(batch, e);
+        }
+        return drained;
+    }
+
+    private void writeOrCount(List<Transaction> batch) {
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            fail(batch, e);
+        }
+    }
+
+    private void write(List<Transaction> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            transactionRepository.saveAll(batch);
+            accountSummaryService.recordAll(batch);
+            accountEventHub.publishAfterCommit(batch);
+        });
+        written.increment(batch.size());
+    }
+
+    private void fail(List<Transaction> batch, RuntimeException e) {
+        failed.increment(batch.size());
+        log.error("Failed to write {} failed-transaction audit rows, first reference {}",
+                batch.size(), batch.get(0).getReference(), e);
+    }
+
+    private static Counter auditCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("banking.audit.records")
+                .description("Failed-transaction audit rows: written, dropped on overflow, failed on a database error")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
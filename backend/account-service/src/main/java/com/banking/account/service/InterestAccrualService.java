@@ -0,0 +1,353 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.InterestAccrual;
+import com.banking.account.dto.ShardTotals;
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.InterestRun;
+import com.banking.account.entity.Transaction;
+import com.banking.account.ledger.BalanceLedger;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.BalanceShardRepository;
+import com.banking.account.repository.InterestRunRepository;
+import com.banking.account.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Monthly interest on SAVINGS accounts: balance x annual-rate / 12, rounded half-even to cents,
+// booked as an INTEREST transaction.
+//
+// The calling thread walks SAVINGS accounts by account number in chunks of chunk-size and hands
+// each chunk to one of parallelism workers. A worker locks its chunk's account rows, then writes
+// the new balances, the INTEREST rows and the summaries in one transaction. All three are changed
+// or created as entities, so Hibernate sends them in JDBC batches instead of a round trip per account.
+//
+// Each INTEREST row's reference is INT + yyyyMM + account number, unique like every reference.
+// The checkpoint in interest_runs moves past a chunk once it and every chunk before it have
+// committed. A run restarted after a crash carries on from the checkpoint and leaves out accounts
+// whose reference already exists, so no account is credited twice for a month. In ledger mode
+// a chunk's credits are journaled as one prepared group before it commits and settled after, and
+// a crash in between is settled by ledger recovery from the chunk's commit note. A resumed chunk
+// that finds reference rows also has the ledger settle any committed group it still holds open,
+// so an account skipped for its row never misses the credit in the ledger.
+@Service
+@Slf4j
+public class InterestAccrualService {
+
+    private static final BigDecimal MONTHS_PER_YEAR = BigDecimal.valueOf(12);
+    private static final DateTimeFormatter REFERENCE_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final InterestRunRepository interestRunRepository;
+    private final BalanceShardRepository balanceShardRepository;
+    private final AccountSummaryService accountSummaryService;
+    private final AccountCache accountCache;
+    private final AccountEventHub accountEventHub;
+    private final TransactionTemplate transactionTemplate;
+    private final Optional<BalanceLedger> balanceLedger;
+    private final BigDecimal annualRate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Counter credited;
+    private final Timer chunks;
+
+    // SAVINGS accounts the current run has not reached yet
+    private final AtomicLong remaining = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public InterestAccrualService(AccountRepository accountRepository,
+                                  TransactionRepository transactionRepository,
+                                  InterestRunRepository interestRunRepository,
+                                  BalanceShardRepository balanceShardRepository,
+                                  AccountSummaryService accountSummaryService,
+                                  AccountCache accountCache,
+                                  AccountEventHub accountEventHub,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  Optional<BalanceLedger> balanceLedger,
+                                  @Value("${banking.interest.annual-rate:0.02}") BigDecimal annualRate,
+                                  @Value("${banking.interest.chunk-size:500}") int chunkSize,
+                                  @Value("${banking.interest.parallelism:4}") int parallelism) {
+        if (annualRate.signum() < 0 || chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "banking.interest.annual-rate must not be negative, chunk-size and parallelism must be positive");
+        }
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.interestRunRepository = interestRunRepository;
+        this.balanceShardRepository = balanceShardRepository;
+        this.accountSummaryService = accountSummaryService;
+        this.accountCache = accountCache;
+        this.accountEventHub = accountEventHub;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.balanceLedger = balanceLedger;
+        this.annualRate = annualRate;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.credited = Counter.builder("banking.interest.credited")
+                .description("Accounts credited with interest")
+                .register(meterRegistry);
+        this.chunks = Timer.builder("banking.interest.chunks")
+                .description("Interest accrual chunks, each written in one transaction")
+                .register(meterRegistry);
+        Gauge.builder("banking.interest.remaining", remaining, AtomicLong::get)
+                .description("SAVINGS accounts the running interest accrual has not reached yet")
+                .register(meterRegistry);
+    }
+
+    // Starts the month's run, or resumes it from its checkpoint. A completed run is returned as is.
+    // Throws IllegalStateException while another run is in progress.
+    public InterestAccrual accrue(YearMonth month) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An interest accrual run is already in progress");
+        }
+        try {
+            long started = System.nanoTime();
+            InterestRun run = transactionTemplate.execute(status -> interestRunRepository.findById(month.toString())
+                    .orElseGet(() -> {
+                        LocalDateTime now = LocalDateTime.now();
+                        return interestRunRepository.save(new InterestRun(month.toString(), "RUNNING", annualRate,
+                                "", 0, BigDecimal.ZERO, now, now, null));
+                    }));
+            if ("COMPLETED".equals(run.getStatus())) {
+                return toAccrual(run, false, 0, started);
+            }
+            boolean resumed = !run.getCheckpoint().isEmpty();
+            if (resumed) {
+                log.info("Resuming interest accrual for {} after account {}", month, run.getCheckpoint());
+            }
+
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            remaining.set(accountRepository.countSavingsAccountsAfter(run.getCheckpoint(), to));
+            long visited = run(run, month, to);
+
+            run.setStatus("COMPLETED");
+            run.setCompletedAt(LocalDateTime.now());
+            run.setUpdatedAt(run.getCompletedAt());
+            interestRunRepository.save(run);
+
+            InterestAccrual accrual = toAccrual(run, resumed, visited, started);
+            log.info("Credited interest to {} accounts for {}, {} in total ({} accounts/s)",
+                    run.getAccountsCredited(), month, run.getTotalInterest(), (long) accrual.getAccountsPerSecond());
+            return accrual;
+        } finally {
+            remaining.set(0);
+            running.set(false);
+        }
+    }
+
+    public Optional<InterestAccrual> getRun(YearMonth month) {
+        return interestRunRepository.findById(month.toString()).map(run -> toAccrual(run, false, 0, System.nanoTime()));
+    }
+
+    // Reads the next chunk while up to 2 x parallelism chunks are in flight, and moves the
+    // checkpoint as they complete in order
+    private long run(InterestRun run, YearMonth month, LocalDateTime to) {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "interest-accrual-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<ChunkResult>> inFlight = new ArrayDeque<>();
+        long visited = 0;
+        try {
+            String after = run.getCheckpoint();
+            while (true) {
+                List<String> accountNumbers = accountRepository.findSavingsAccountNumbersAfter(
+                        after, to, Limit.of(chunkSize));
+                if (accountNumbers.isEmpty()) {
+                    break;
+                }
+                after = accountNumbers.get(accountNumbers.size() - 1);
+                inFlight.add(workers.submit(() -> chunks.recordCallable(
+                        () -> accrueChunk(month, run.getAnnualRate(), accountNumbers))));
+                if (inFlight.size() >= parallelism * 2) {
+                    visited += checkpoint(run, inFlight.removeFirst().get());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                visited += checkpoint(run, inFlight.removeFirst().get());
+            }
+            return visited;
+        } catch (ExecutionException e) {
+            // Chunks already committed past the checkpoint are recognised by reference when resumed
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interest accrual interrupted", e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private long checkpoint(InterestRun run, ChunkResult result) {
+        run.setCheckpoint(result.last);
+        run.setAccountsCredited(run.getAccountsCredited() + result.credited);
+        run.setTotalInterest(run.getTotalInterest().add(result.interest.toBigDecimal()));
+        run.setUpdatedAt(LocalDateTime.now());
+        interestRunRepository.save(run);
+        remaining.addAndGet(-result.visited);
+        return result.visited;
+    }
+
+    private ChunkResult accrueChunk(YearMonth month, BigDecimal rate, List<String> accountNumbers) {
+        return transactionTemplate.execute(status -> {
+            ChunkResult result = new ChunkResult(accountNumbers.get(accountNumbers.size() - 1), accountNumbers.size());
+
+            Map<String, String> references = new HashMap<>();
+            for (String accountNumber : accountNumbers) {
+                references.put("INT" + month.format(REFERENCE_MONTH) + accountNumber, accountNumber);
+            }
+            // Written by an earlier attempt that crashed before its checkpoint
+            List<TransactionDTO> done = transactionRepository.findDTOsByReferenceIn(references.keySet());
+            for (TransactionDTO credit : done) {
+                references.remove(credit.getReference());
+                result.add(credit.getAmount());
+            }
+            if (!done.isEmpty()) {
+                // Its rows committed, so its ledger group must settle too
+                balanceLedger.ifPresent(BalanceLedger::settleCommitted);
+            }
+            if (references.isEmpty()) {
+                return result;
+            }
+
+            List<Account> accounts = accountRepository.findByAccountNumberInForUpdate(references.values());
+            Map<String, BigDecimal> pending = new HashMap<>();
+            if (balanceLedger.isEmpty()) {
+                // Hot account deposits still sitting in shards earn interest too
+                for (ShardTotals shards : balanceShardRepository.findShardTotalsByAccountNumberIn(references.values())) {
+                    pending.put(shards.getAccountNumber(), shards.getBalance());
+                }
+            }
+
+            Map<String, Money> credits = new TreeMap<>();
+            List<Transaction> rows = new ArrayList<>(accounts.size());
+            List<BalanceLedger.Pending> prepared = new ArrayList<>();
+            for (Account account : accounts) {
+                String accountNumber = account.getAccountNumber();
+                Money balance = balanceLedger
+                        .flatMap(ledger -> ledger.balanceOf(accountNumber))
+                        .orElse(account.getBalance());
+                if (pending.get(accountNumber) != null) {
+                    balance = balance.plus(Money.of(pending.get(accountNumber)));
+                }
+                Money interest = interest(balance, rate);
+                if (interest.signum() <= 0) {
+                    continue;
+                }
+
+                Money balanceAfter;
+                if (balanceLedger.isPresent()) {
+                    BalanceLedger.Pending update = balanceLedger.get().prepareCredit(accountNumber, interest);
+                    if (update.getOutcome() != TransactionResult.Outcome.COMPLETED) {
+                        continue;
+                    }
+                    prepared.add(update);
+                    balanceAfter = update.getBalance();
+                } else {
+                    // Managed entity - flushed with the rest of the chunk as batched, versioned UPDATEs
+                    account.setBalance(account.getBalance().plus(interest));
+                    balanceAfter = balance.plus(interest);
+                    accountCache.evictAfterCommit(account);
+                }
+
+                Transaction transaction = new Transaction();
+                transaction.setAccountId(account.getId());
+                transaction.setAccountNumber(accountNumber);
+                transaction.setTransactionType("INTEREST");
+                transaction.setAmount(interest);
+                transaction.setBalanceAfter(balanceAfter);
+                transaction.setDescription("Interest for " + month);
+                transaction.setStatus("COMPLETED");
+                transaction.setReference("INT" + month.format(REFERENCE_MONTH) + accountNumber);
+                rows.add(transaction);
+                credits.put(accountNumber, interest);
+                result.add(interest);
+            }
+
+            // Prepared in the journal before the chunk commits, with a commit note in this transaction,
+            // so a crash after the commit leaves neither a row without its credit nor the reverse
+            balanceLedger.ifPresent(ledger -> ledger.settleOnCompletion(prepared));
+            transactionRepository.saveAll(rows);
+            accountSummaryService.recordCredits(credits);
+            accountEventHub.publishAfterCommit(rows);
+            credited.increment(rows.size());
+            return result;
+        });
+    }
+
+    private static Money interest(Money balance, BigDecimal rate) {
+        if (balance.signum() <= 0) {
+            return Money.ZERO;
+        }
+        return Money.of(balance.toBigDecimal().multiply(rate).divide(MONTHS_PER_YEAR, 2, RoundingMode.HALF_EVEN));
+    }
+
+    private static InterestAccrual toAccrual(InterestRun run, boolean resumed, long visited, long started) {
+        long elapsedNanos = System.nanoTime() - started;
+        return InterestAccrual.builder()
+                .month(run.getMonth())
+                .status(run.getStatus())
+                .annualRate(run.getAnnualRate())
+                .checkpoint(run.getCheckpoint())
+                .accountsCredited(run.getAccountsCredited())
+                .totalInterest(run.getTotalInterest())
+                .startedAt(run.getStartedAt())
+                .completedAt(run.getCompletedAt())
+                .resumed(resumed)
+                .accountsVisited(visited)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .accountsPerSecond(elapsedNanos > 0 ? visited * 1e9 / elapsedNanos : 0)
+                .build();
+    }
+
+    private static final class ChunkResult {
+        private final String last;
+        private final int visited;
+        private long credited;
+        private Money interest = Money.ZERO;
+
+        private ChunkResult(String last, int visited) {
+            this.last = last;
+            this.visited = visited;
+        }
+
+        private void add(Money amount) {
+            credited++;
+            interest = interest.plus(amount);
+        }
+    }
+}
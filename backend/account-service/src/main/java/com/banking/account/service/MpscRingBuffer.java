@@ -0,0 +1,86 @@
+package com.banking.account.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded multi-producer, single-consumer queue over a power-of-two array.
+//
+// Every slot carries a sequence: a producer may write slot (t & mask) once its sequence equals t,
+// claims it by moving the tail with a CAS and publishes by setting the sequence to t + 1. The
+// consumer reads a slot once its sequence is head + 1 and hands it back as head + capacity.
+// Producers never block each other or the consumer; a full buffer is reported, not waited on.
+final class MpscRingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Written only by the consumer, volatile so size() is sane from other threads
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+        }
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // Returns false if the buffer is full
+    boolean offer(E element) {
+        long claimed;
+        int index;
+        while (true) {
+            claimed = tail.get();
+            index = (int) (claimed & mask);
+            long available = sequences.getAcquire(index) - claimed;
+            if (available == 0) {
+                if (tail.compareAndSet(claimed, claimed + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                // The consumer has not released this slot from the previous lap yet
+                return false;
+            }
+            // Another producer claimed it first, retry with the new tail
+        }
+        slots[index] = element;
+        sequences.setRelease(index, claimed + 1);
+        return true;
+    }
+
+    // Moves up to max published elements into the target, in the order they were claimed.
+    // Single consumer only, the caller serializes drains.
+    @SuppressWarnings("unchecked")
+    int drainTo(List<E> target, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.getAcquire(index) != position + 1) {
+                // Empty, or the next producer has claimed but not yet published
+                break;
+            }
+            target.add((E) slots[index]);
+            slots[index] = null;
+            sequences.setRelease(index, position + slots.length);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
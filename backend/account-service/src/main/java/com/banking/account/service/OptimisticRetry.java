@@ -0,0 +1,114 @@
+package com.banking.account.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Runs a read-modify-write of account rows in its own transaction and runs it again when the
+// commit loses a @Version check to a concurrent writer. Each attempt re-reads the rows, so the
+// retry starts from the winner's balance. Between attempts the caller sleeps for a random time up
+// to initial-backoff * 2^(attempt - 1), capped at max-backoff, so colliding writers spread out.
+//
+// With locking=PESSIMISTIC the rows are read with SELECT ... FOR UPDATE instead and conflicts
+// cannot happen, for deployments whose writers keep landing on the same accounts. Deposits and
+// withdrawals never come through here: each is one guarded UPDATE that bumps the version itself,
+// so they cannot lose a version check, they only make a concurrent transfer or batch retry.
+@Component
+@Slf4j
+public class OptimisticRetry {
+
+    public enum LockingMode { OPTIMISTIC, PESSIMISTIC }
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final LockingMode lockingMode;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    public OptimisticRetry(PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${banking.account.locking:OPTIMISTIC}") LockingMode lockingMode,
+                           @Value("${banking.account.retry.max-attempts:5}") int maxAttempts,
+                           @Value("${banking.account.retry.initial-backoff:2ms}") Duration initialBackoff,
+                           @Value("${banking.account.retry.max-backoff:50ms}") Duration maxBackoff) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Retry max attempts must be greater than 0");
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.lockingMode = lockingMode;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    public boolean isPessimistic() {
+        return lockingMode == LockingMode.PESSIMISTIC;
+    }
+
+    // Inside a caller's transaction the work joins it and runs once: a lost version check has
+    // already doomed that transaction, so the retry belongs at the caller's boundary.
+    public <T> T execute(String operation, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transactionTemplate.execute(status -> work.get());
+                attempts(operation).record(attempt);
+                return result;
+            } catch (OptimisticLockingFailureException e) {
+                conflicts(operation).increment();
+                if (attempt >= maxAttempts) {
+                    attempts(operation).record(attempt);
+                    exhausted(operation).increment();
+                    log.warn("Giving up {} after {} conflicting attempts", operation, attempt);
+                    throw e;
+                }
+                log.debug("Version conflict on {} attempt {}, retrying", operation, attempt);
+                LockSupport.parkNanos(backoffNanos(attempt));
+            }
+        }
+    }
+
+    long backoffNanos(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    // attempts count / sum give calls and attempts, conflicts / attempts sum is the conflict rate
+    private DistributionSummary attempts(String operation) {
+        return DistributionSummary.builder("banking.account.write.attempts")
+                .description("Attempts per account write, 1 unless it lost a version check")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private Counter conflicts(String operation) {
+        return Counter.builder("banking.account.write.conflicts")
+                .description("Account writes rolled back by a concurrent update")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private Counter exhausted(String operation) {
+        return Counter.builder("banking.account.write.exhausted")
+                .description("Account writes that still conflicted after the last attempt")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,107 @@
+package com.banking.account.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets per account number and per client, checked before a request reaches the database.
+//
+// Each bucket is one AtomicLong in GCRA form: the time at which it would be full again. Taking a
+// token moves that time one interval (1 / rate) later and is refused when it would land more than
+// burst intervals ahead of now, so refill needs no timer and an update is a single CAS. Buckets
+// live in a size-bounded Caffeine map and expire once idle long enough to have refilled, which is
+// when dropping one loses nothing.
+@Component
+public class RateLimiter {
+
+    public enum Scope { ACCOUNT, CLIENT }
+
+    private final Ticker ticker;
+    private final boolean enabled;
+    private final Limit accounts;
+    private final Limit clients;
+
+    @Autowired
+    public RateLimiter(MeterRegistry meterRegistry,
+                       @Value("${banking.ratelimit.enabled:true}") boolean enabled,
+                       @Value("${banking.ratelimit.account.rate:1000}") double accountRate,
+                       @Value("${banking.ratelimit.account.burst:2000}") int accountBurst,
+                       @Value("${banking.ratelimit.client.rate:5000}") double clientRate,
+                       @Value("${banking.ratelimit.client.burst:10000}") int clientBurst,
+                       @Value("${banking.ratelimit.max-keys:100000}") long maxKeys) {
+        this(meterRegistry, enabled, accountRate, accountBurst, clientRate, clientBurst, maxKeys, Ticker.systemTicker());
+    }
+
+    RateLimiter(MeterRegistry meterRegistry, boolean enabled, double accountRate, int accountBurst,
+                double clientRate, int clientBurst, long maxKeys, Ticker ticker) {
+        this.ticker = ticker;
+        this.enabled = enabled;
+        this.accounts = new Limit(meterRegistry, Scope.ACCOUNT, accountRate, accountBurst, maxKeys, ticker);
+        this.clients = new Limit(meterRegistry, Scope.CLIENT, clientRate, clientBurst, maxKeys, ticker);
+    }
+
+    // 0 when admitted, otherwise the nanoseconds until the next token
+    public long tryAcquire(Scope scope, String key) {
+        if (!enabled) {
+            return 0;
+        }
+        return (scope == Scope.ACCOUNT ? accounts : clients).tryAcquire(key, ticker.read());
+    }
+
+    // Retry-After takes whole seconds, round up so an immediate retry is not refused again
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static final class Limit {
+
+        private final long intervalNanos;
+        private final long capacityNanos;
+        private final Cache<String, AtomicLong> buckets;
+        private final Counter rejected;
+
+        Limit(MeterRegistry meterRegistry, Scope scope, double rate, int burst, long maxKeys, Ticker ticker) {
+            if (rate <= 0 || burst <= 0) {
+                throw new IllegalArgumentException("Rate limit rate and burst must be greater than 0");
+            }
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+            this.capacityNanos = intervalNanos * burst;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(Duration.ofNanos(capacityNanos))
+                    .ticker(ticker)
+                    .build();
+            this.rejected = Counter.builder("banking.ratelimit.rejected")
+                    .description("Requests refused with 429 by the token-bucket limiter")
+                    .tag("scope", scope.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+
+        long tryAcquire(String key, long now) {
+            // A new bucket starts full: it would have been full since now
+            AtomicLong fullAt = buckets.get(key, ignored -> new AtomicLong(now));
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long wait = next - now - capacityNanos;
+                if (wait > 0) {
+                    rejected.increment();
+                    return wait;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.banking.account.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Snowflake-style transaction references: 41 bits of milliseconds since 2024-01-01,
+// 10 bits of node id and a 12 bit per-millisecond sequence. Unique across nodes as long
+// as every node runs with its own banking.node-id.
+@Component
+public class ReferenceGenerator {
+
+    public static final String PREFIX = "TXN";
+    public static final String TRANSFER_PREFIX = "TRF";
+
+    static final long EPOCH = 1704067200000L;  // 2024-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    // 2^63 - 1 has 19 digits, padding keeps references sortable as strings
+    private static final int ID_DIGITS = 19;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public ReferenceGenerator(@Value("${banking.node-id:0}") int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    ReferenceGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public String next() {
+        return next(PREFIX);
+    }
+
+    public String next(String prefix) {
+        String digits = Long.toString(nextId());
+        StringBuilder reference = new StringBuilder(prefix.length() + ID_DIGITS).append(prefix);
+        for (int i = digits.length(); i < ID_DIGITS; i++) {
+            reference.append('0');
+        }
+        return reference.append(digits).toString();
+    }
+
+    // Lock-free: a CAS on the packed (timestamp, sequence) state. When the sequence for the
+    // current millisecond runs out, or the clock steps backwards, the increment carries into
+    // the timestamp bits, so ids stay strictly increasing without waiting on the clock.
+    public long nextId() {
+        long now = clock.getAsLong() - EPOCH;
+        while (true) {
+            long previous = state.get();
+            long candidate = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (state.compareAndSet(previous, candidate)) {
+                long timestamp = candidate >>> SEQUENCE_BITS;
+                long sequence = candidate & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | sequence;
+            }
+        }
+    }
+}
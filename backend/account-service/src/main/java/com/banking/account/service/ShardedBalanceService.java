@@ -0,0 +1,314 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.ShardTotals;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.AccountSummary;
+import com.banking.account.entity.BalanceShard;
+import com.banking.account.ledger.BalanceLedger;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.BalanceShardRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Hot accounts: an account's balance split into N shard rows so that concurrent deposits lock
+// different rows instead of queueing on one accounts row. The balance of a hot account is
+// accounts.balance plus the sum of its shards, and a deposit's summary delta waits on its shard
+// too, so the account_summaries row is not a hot spot either.
+//
+// A withdrawal takes the amount from one random shard, else from accounts.balance, else folds
+// every shard into accounts.balance and tries that once more. Transfers and batches work on the
+// accounts row and fold a hot account's shards into it first when the row alone is short. A
+// background job does the same fold on every hot account each consolidate-interval.
+//
+// Locks are always taken accounts row first, then shards in shard order. Deposits lock a single
+// shard and nothing else, so they cannot be part of a deadlock.
+//
+// Which accounts are hot is kept in memory and reloaded from balance_shards by every
+// consolidation run. A stale entry only sends a write to the accounts row, which stays correct.
+@Service
+@Slf4j
+public class ShardedBalanceService implements ApplicationRunner {
+
+    private final BalanceShardRepository balanceShardRepository;
+    private final AccountRepository accountRepository;
+    private final AccountSummaryService accountSummaryService;
+    private final AccountCache accountCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Optional<BalanceLedger> balanceLedger;
+    private final int maxShards;
+    private final Duration consolidateInterval;
+    private final Counter consolidations;
+
+    // Account number -> shard count
+    private final Map<String, Integer> shardCounts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    public ShardedBalanceService(BalanceShardRepository balanceShardRepository,
+                                 AccountRepository accountRepository,
+                                 AccountSummaryService accountSummaryService,
+                                 AccountCache accountCache,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 Optional<BalanceLedger> balanceLedger,
+                                 @Value("${banking.hot-accounts.max-shards:64}") int maxShards,
+                                 @Value("${banking.hot-accounts.consolidate-interval:1s}") Duration consolidateInterval) {
+        this.balanceShardRepository = balanceShardRepository;
+        this.accountRepository = accountRepository;
+        this.accountSummaryService = accountSummaryService;
+        this.accountCache = accountCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.balanceLedger = balanceLedger;
+        this.maxShards = maxShards;
+        this.consolidateInterval = consolidateInterval;
+        this.consolidations = Counter.builder("banking.hot_accounts.consolidations")
+                .description("Hot account shard sets folded back into the account balance")
+                .register(meterRegistry);
+        Gauge.builder("banking.hot_accounts", shardCounts, Map::size)
+                .description("Accounts whose balance is split into shards")
+                .register(meterRegistry);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-account-consolidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // The ledger holds every balance in memory, there is no row to spread
+        if (balanceLedger.isPresent()) {
+            return;
+        }
+        consolidateAll();
+        long millis = consolidateInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::consolidateAll, millis, millis, TimeUnit.MILLISECONDS);
+        log.info("{} hot accounts, consolidating every {}", shardCounts.size(), consolidateInterval);
+    }
+
+    public boolean isSharded(String accountNumber) {
+        return !shardCounts.isEmpty() && shardCounts.containsKey(accountNumber);
+    }
+
+    // Splits the account's balance into the given number of shards, or re-splits a hot account.
+    // Returns false when the account does not exist.
+    @Transactional
+    public boolean enable(String accountNumber, int shards) {
+        if (balanceLedger.isPresent()) {
+            throw new IllegalStateException("Hot accounts are not available in ledger mode");
+        }
+        if (shards < 2 || shards > maxShards) {
+            throw new IllegalArgumentException("Shard count must be between 2 and " + maxShards);
+        }
+        Optional<Account> account = accountRepository.findByAccountNumberForUpdate(accountNumber);
+        if (account.isEmpty()) {
+            return false;
+        }
+
+        consolidate(accountNumber);
+        balanceShardRepository.deleteShards(accountNumber);
+        LocalDateTime now = LocalDateTime.now();
+        List<BalanceShard> rows = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            rows.add(new BalanceShard(accountNumber, shard, Money.ZERO, Money.ZERO, 0, now));
+        }
+        balanceShardRepository.saveAll(rows);
+        // Deposits to the shards no longer take the account row lock that guards the first summary insert
+        accountSummaryService.ensureSummary(accountNumber);
+
+        afterCommit(() -> shardCounts.put(accountNumber, shards));
+        log.info("Account {} is now hot, {} shards", accountNumber, shards);
+        return true;
+    }
+
+    // Folds the shards back in and removes them. Returns false when the account was not hot.
+    @Transactional
+    public boolean disable(String accountNumber) {
+        if (accountRepository.findByAccountNumberForUpdate(accountNumber).isEmpty()) {
+            return false;
+        }
+        consolidate(accountNumber);
+        boolean removed = balanceShardRepository.deleteShards(accountNumber) > 0;
+        afterCommit(() -> shardCounts.remove(accountNumber));
+        return removed;
+    }
+
+    // Credits a random shard. False when the shards are gone, the caller then credits the account row.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean credit(String accountNumber, Money amount) {
+        Integer shards = shardCounts.get(accountNumber);
+        return shards != null && balanceShardRepository.creditShard(accountNumber,
+                ThreadLocalRandom.current().nextInt(shards), amount.toBigDecimal(), LocalDateTime.now()) == 1;
+    }
+
+    // False when the account does not hold the amount, or does not exist
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean debit(String accountNumber, Money amount) {
+        BigDecimal value = amount.toBigDecimal();
+        LocalDateTime now = LocalDateTime.now();
+        Integer shards = shardCounts.get(accountNumber);
+        if (shards != null && balanceShardRepository.debitShard(accountNumber,
+                ThreadLocalRandom.current().nextInt(shards), value, now) == 1) {
+            return true;
+        }
+        if (accountRepository.debitBalance(accountNumber, value, now) == 1) {
+            return true;
+        }
+        // Neither alone covers it, gather the shards into the account row and try that again
+        return consolidate(accountNumber) && accountRepository.debitBalance(accountNumber, value, now) == 1;
+    }
+
+    // Account row plus shards, empty when the account does not exist
+    @Transactional(readOnly = true)
+    public Optional<Money> totalBalance(String accountNumber) {
+        return balanceShardRepository.findTotalBalance(accountNumber).map(Money::of);
+    }
+
+    // What a hot account's shards hold on top of its row, zero for any other account
+    public Money shardBalance(String accountNumber) {
+        if (!isSharded(accountNumber)) {
+            return Money.ZERO;
+        }
+        List<ShardTotals> totals = balanceShardRepository.findShardTotalsByAccountNumberIn(List.of(accountNumber));
+        return totals.isEmpty() || totals.get(0).getBalance() == null
+                ? Money.ZERO
+                : Money.of(totals.get(0).getBalance());
+    }
+
+    // List rows carry only the account row's part of a hot account's balance
+    public List<AccountDTO> withShardBalances(List<AccountDTO> accounts) {
+        if (shardCounts.isEmpty()) {
+            return accounts;
+        }
+        List<String> hot = accounts.stream().map(AccountDTO::getAccountNumber).filter(this::isSharded).toList();
+        if (hot.isEmpty()) {
+            return accounts;
+        }
+        Map<String, BigDecimal> pending = balanceShardRepository.findShardTotalsByAccountNumberIn(hot).stream()
+                .collect(Collectors.toMap(ShardTotals::getAccountNumber, ShardTotals::getBalance));
+        accounts.forEach(dto -> {
+            BigDecimal shards = pending.get(dto.getAccountNumber());
+            if (shards != null) {
+                dto.setBalance(dto.getBalance().plus(Money.of(shards)));
+            }
+        });
+        return accounts;
+    }
+
+    // The stored summary plus deposits still waiting on the account's shards
+    public Optional<AccountSummary> withPendingDeposits(String accountNumber, Optional<AccountSummary> stored) {
+        if (!isSharded(accountNumber)) {
+            return stored;
+        }
+        List<ShardTotals> totals = balanceShardRepository.findShardTotalsByAccountNumberIn(List.of(accountNumber));
+        if (totals.isEmpty() || totals.get(0).getDepositCount() == 0) {
+            return stored;
+        }
+        ShardTotals pending = totals.get(0);
+        AccountSummary summary = stored.orElseGet(() -> new AccountSummary(accountNumber,
+                Money.ZERO, Money.ZERO, 0, 0, null));
+        LocalDateTime updatedAt = summary.getUpdatedAt() == null || pending.getUpdatedAt().isAfter(summary.getUpdatedAt())
+                ? pending.getUpdatedAt() : summary.getUpdatedAt();
+        return Optional.of(new AccountSummary(accountNumber,
+                summary.getTotalDeposits().plus(Money.of(pending.getDeposits())),
+                summary.getTotalWithdrawals(),
+                summary.getCompletedCount() + pending.getDepositCount(),
+                summary.getFailedCount(),
+                updatedAt));
+    }
+
+    // Moves everything the shards hold into the account row and the summary. False when there was
+    // nothing to move or the account does not exist.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean consolidate(String accountNumber) {
+        Optional<Account> account = accountRepository.findByAccountNumberForUpdate(accountNumber);
+        if (account.isEmpty()) {
+            return false;
+        }
+        Money balance = Money.ZERO;
+        Money deposits = Money.ZERO;
+        long depositCount = 0;
+        for (BalanceShard shard : balanceShardRepository.findByAccountNumberForUpdate(accountNumber)) {
+            balance = balance.plus(shard.getBalance());
+            deposits = deposits.plus(shard.getDeposits());
+            depositCount += shard.getDepositCount();
+        }
+        if (balance.signum() == 0 && depositCount == 0) {
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        balanceShardRepository.resetShards(accountNumber, now);
+        accountRepository.creditBalance(accountNumber, balance.toBigDecimal(), now);
+        if (depositCount > 0) {
+            accountSummaryService.recordDeposits(accountNumber, deposits, depositCount);
+        }
+        accountCache.evictAfterCommit(account.get());
+        consolidations.increment();
+        return true;
+    }
+
+    // One transaction per account, so a slow or failing account does not hold up the others
+    void consolidateAll() {
+        try {
+            Map<String, Integer> current = new ConcurrentHashMap<>();
+            for (ShardTotals totals : balanceShardRepository.findShardTotals()) {
+                current.put(totals.getAccountNumber(), totals.getShards().intValue());
+                if (totals.getBalance().signum() != 0 || totals.getDepositCount() > 0) {
+                    transactionTemplate.executeWithoutResult(status -> consolidate(totals.getAccountNumber()));
+                }
+            }
+            shardCounts.keySet().retainAll(current.keySet());
+            shardCounts.putAll(current);
+        } catch (RuntimeException e) {
+            // Keep the schedule alive, the shards still hold everything
+            log.error("Hot account consolidation failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package com.banking.account.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// CSV rows buffered in a direct buffer and written to a FileChannel. Almost every field is ASCII
+// (numbers, references, timestamps), those are copied in char by char without an encoder.
+final class StatementFileWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean firstField = true;
+
+    StatementFileWriter(Path path, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    // RFC 4180 quoting - only when the value needs it. Null is an empty field.
+    StatementFileWriter field(String value) throws IOException {
+        if (!firstField) {
+            put(',');
+        }
+        firstField = false;
+        if (value == null) {
+            return this;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            write(value);
+            return this;
+        }
+        put('"');
+        write(value.replace("\"", "\"\""));
+        put('"');
+        return this;
+    }
+
+    void endLine() throws IOException {
+        put('\n');
+        firstField = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            // On disk before the caller publishes the file
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void write(String value) throws IOException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                write(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        if (length > buffer.capacity()) {
+            write(value.getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (buffer.remaining() < length) {
+            drain();
+        }
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) c);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
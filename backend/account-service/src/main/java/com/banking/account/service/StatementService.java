@@ -0,0 +1,326 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.ShardTotals;
+import com.banking.account.dto.StatementRun;
+import com.banking.account.dto.StatementTotals;
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.ledger.BalanceLedger;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.BalanceShardRepository;
+import com.banking.account.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Monthly statements: opening balance, every line with its running balance, closing balance.
+//
+// Accounts are cut into ranges of accounts-per-partition account numbers and each range is one
+// CSV file. A fork-join pool splits the ranges between parallelism workers. A worker streams its
+// range's accounts and the month's transactions side by side, both ordered by account number, so
+// each transaction is read once and only one row of each is in memory at a time.
+//
+// The opening balance is the current balance less everything booked since the month began, summed
+// by one aggregate query per range. Each range is read in one repeatable-read transaction, so the
+// balances, the sums and the lines agree even while deposits and withdrawals keep coming in.
+//
+// Files are written to <directory>/<yyyy-MM>.partial and moved to <directory>/<yyyy-MM> once every
+// range is done, replacing an earlier run for the same month.
+@Service
+@Slf4j
+public class StatementService {
+
+    private static final List<String> COLUMNS = List.of(
+            "accountNumber", "line", "timestamp", "reference", "status", "description", "amount", "balance");
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final BalanceShardRepository balanceShardRepository;
+    private final TransactionTemplate readTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final Optional<BalanceLedger> balanceLedger;
+    private final Path directory;
+    private final int parallelism;
+    private final int accountsPerPartition;
+    private final int bufferSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StatementService(AccountRepository accountRepository,
+                            TransactionRepository transactionRepository,
+                            BalanceShardRepository balanceShardRepository,
+                            PlatformTransactionManager transactionManager,
+                            Optional<BalanceLedger> balanceLedger,
+                            @Value("${banking.statements.directory:./data/statements}") Path directory,
+                            @Value("${banking.statements.parallelism:4}") int parallelism,
+                            @Value("${banking.statements.accounts-per-partition:1000}") int accountsPerPartition,
+                            @Value("${banking.statements.buffer-size:262144}") int bufferSize) {
+        if (parallelism < 1 || accountsPerPartition < 1 || bufferSize < 1) {
+            throw new IllegalArgumentException(
+                    "banking.statements.parallelism, accounts-per-partition and buffer-size must be positive");
+        }
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.balanceShardRepository = balanceShardRepository;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setReadOnly(true);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.balanceLedger = balanceLedger;
+        this.directory = directory;
+        this.parallelism = parallelism;
+        this.accountsPerPartition = accountsPerPartition;
+        this.bufferSize = bufferSize;
+    }
+
+    // Throws IllegalStateException while another run is in progress
+    public StatementRun generate(YearMonth month) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A statement run is already in progress");
+        }
+        try {
+            long started = System.nanoTime();
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+
+            List<Partition> partitions = partitions();
+            Path target = directory.resolve(month.toString());
+            Path partial = directory.resolve(month + ".partial");
+            deleteRecursively(partial);
+            Files.createDirectories(partial);
+
+            LongAdder accounts = new LongAdder();
+            LongAdder lines = new LongAdder();
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new PartitionTask(partitions, 0, partitions.size(), partial, from, to, accounts, lines));
+            } finally {
+                pool.shutdown();
+            }
+
+            deleteRecursively(target);
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+
+            StatementRun run = StatementRun.builder()
+                    .month(month)
+                    .directory(target.toString())
+                    .partitions(partitions.size())
+                    .accounts(accounts.sum())
+                    .transactions(lines.sum())
+                    .elapsedMillis((System.nanoTime() - started) / 1_000_000)
+                    .build();
+            log.info("Wrote {} statements ({} lines) for {} in {} ms", run.getAccounts(), run.getTransactions(),
+                    month, run.getElapsedMillis());
+            return run;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Inclusive account number ranges, cut while the account numbers stream past
+    private List<Partition> partitions() {
+        return readTemplate.execute(status -> {
+            List<Partition> partitions = new ArrayList<>();
+            try (Stream<String> accountNumbers = accountRepository.streamAccountNumbers()) {
+                Iterator<String> iterator = accountNumbers.iterator();
+                String first = null;
+                String last = null;
+                int count = 0;
+                while (iterator.hasNext()) {
+                    last = iterator.next();
+                    if (count == 0) {
+                        first = last;
+                    }
+                    if (++count == accountsPerPartition) {
+                        partitions.add(new Partition(first, last));
+                        count = 0;
+                    }
+                }
+                if (count > 0) {
+                    partitions.add(new Partition(first, last));
+                }
+            }
+            return partitions;
+        });
+    }
+
+    private void writePartition(Partition partition, Path file, LocalDateTime from, LocalDateTime to,
+                                LongAdder accountCount, LongAdder lineCount) {
+        snapshotTemplate.executeWithoutResult(status -> {
+            Map<String, StatementTotals> totals = transactionRepository
+                    .sumStatementTotals(partition.first, partition.last, from, to).stream()
+                    .collect(Collectors.toMap(StatementTotals::getAccountNumber, Function.identity()));
+            // Hot account deposits still sitting in shards are part of the current balance
+            Map<String, ShardTotals> pending = balanceLedger.isPresent() ? Map.of()
+                    : balanceShardRepository.findShardTotals().stream()
+                    .filter(shards -> partition.contains(shards.getAccountNumber()))
+                    .collect(Collectors.toMap(ShardTotals::getAccountNumber, Function.identity()));
+
+            try (Stream<AccountDTO> accounts = accountRepository.streamStatementAccounts(
+                         partition.first, partition.last, to);
+                 Stream<TransactionDTO> lines = transactionRepository.streamStatementLines(
+                         partition.first, partition.last, from, to);
+                 StatementFileWriter writer = new StatementFileWriter(file, bufferSize)) {
+
+                for (String column : COLUMNS) {
+                    writer.field(column);
+                }
+                writer.endLine();
+
+                Iterator<TransactionDTO> lineIterator = lines.iterator();
+                TransactionDTO next = lineIterator.hasNext() ? lineIterator.next() : null;
+                Iterator<AccountDTO> accountIterator = accounts.iterator();
+                while (accountIterator.hasNext()) {
+                    AccountDTO account = accountIterator.next();
+                    String accountNumber = account.getAccountNumber();
+
+                    // Lines of accounts deleted since, or opened after the period, have no statement
+                    while (next != null && next.getAccountNumber().compareTo(accountNumber) < 0) {
+                        next = lineIterator.hasNext() ? lineIterator.next() : null;
+                    }
+
+                    Money balance = openingBalance(account, totals.get(accountNumber), pending.get(accountNumber));
+                    row(writer, accountNumber, "OPENING", from, null, null, account.getAccountHolderName(),
+                            null, balance);
+
+                    int line = 0;
+                    while (next != null && next.getAccountNumber().equals(accountNumber)) {
+                        Money amount = signedAmount(next);
+                        if ("COMPLETED".equals(next.getStatus())) {
+                            balance = balance.plus(amount);
+                        }
+                        row(writer, accountNumber, Integer.toString(++line), next.getTimestamp(),
+                                next.getReference(), next.getStatus(), next.getDescription(), amount, balance);
+                        next = lineIterator.hasNext() ? lineIterator.next() : null;
+                    }
+
+                    row(writer, accountNumber, "CLOSING", to, null, null, null, null, balance);
+                    accountCount.increment();
+                    lineCount.add(line);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Money openingBalance(AccountDTO account, StatementTotals totals, ShardTotals pending) {
+        Money current = balanceLedger
+                .flatMap(ledger -> ledger.balanceOf(account.getAccountNumber()))
+                .orElse(account.getBalance());
+        if (pending != null && pending.getBalance() != null) {
+            current = current.plus(Money.of(pending.getBalance()));
+        }
+        if (totals == null) {
+            return current;
+        }
+        return current.minus(Money.of(totals.getLaterNet())).minus(Money.of(totals.getPeriodNet()));
+    }
+
+    private static Money signedAmount(TransactionDTO transaction) {
+        return "WITHDRAWAL".equals(transaction.getTransactionType())
+                ? transaction.getAmount().negate()
+                : transaction.getAmount();
+    }
+
+    private static void row(StatementFileWriter writer, String accountNumber, String line, LocalDateTime timestamp,
+                            String reference, String status, String description, Money amount, Money balance)
+            throws IOException {
+        writer.field(accountNumber)
+                .field(line)
+                .field(timestamp.toString())
+                .field(reference)
+                .field(status)
+                .field(description)
+                .field(amount != null ? amount.toString() : null)
+                .field(balance.toString());
+        writer.endLine();
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    private static final class Partition {
+        private final String first;
+        private final String last;
+
+        private Partition(String first, String last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        private boolean contains(String accountNumber) {
+            return accountNumber.compareTo(first) >= 0 && accountNumber.compareTo(last) <= 0;
+        }
+    }
+
+    // Halves the partition range until one partition is left, then writes its file
+    private final class PartitionTask extends RecursiveAction {
+        private final List<Partition> partitions;
+        private final int start;
+        private final int end;
+        private final Path directory;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final LongAdder accounts;
+        private final LongAdder lines;
+
+        private PartitionTask(List<Partition> partitions, int start, int end, Path directory,
+                              LocalDateTime from, LocalDateTime to, LongAdder accounts, LongAdder lines) {
+            this.partitions = partitions;
+            this.start = start;
+            this.end = end;
+            this.directory = directory;
+            this.from = from;
+            this.to = to;
+            this.accounts = accounts;
+            this.lines = lines;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                Path file = directory.resolve(String.format("statements-%04d.csv", start));
+                writePartition(partitions.get(start), file, from, to, accounts, lines);
+            } else if (end - start > 1) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new PartitionTask(partitions, start, middle, directory, from, to, accounts, lines),
+                        new PartitionTask(partitions, middle, end, directory, from, to, accounts, lines));
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.entity.Transaction;
+import com.banking.account.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Writes an account's history row by row straight from the JDBC cursor to the output stream.
+// Each entity is detached once written, so the persistence context never holds more than one row.
+@Service
+@Slf4j
+public class TransactionExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final String CSV_HEADER =
+            "id,accountNumber,transactionType,amount,balanceAfter,description,status,reference,timestamp";
+
+    private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter ndjsonWriter;
+
+    public TransactionExportService(TransactionRepository transactionRepository,
+                                    EntityManager entityManager,
+                                    ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
+        this.ndjsonWriter = objectMapper.writerFor(TransactionDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    // Dates are optional, both must be given to restrict the export to a range
+    @Transactional(readOnly = true)
+    public long export(String accountNumber, LocalDateTime startDate, LocalDateTime endDate,
+                       Format format, OutputStream out) throws IOException {
+        try (Stream<Transaction> rows = startDate != null && endDate != null
+                ? transactionRepository.streamByDateRange(accountNumber, startDate, endDate)
+                : transactionRepository.streamByAccountNumber(accountNumber)) {
+
+            long count = format == Format.CSV
+                    ? writeCsv(rows.iterator(), out)
+                    : writeNdjson(rows.iterator(), out);
+
+            log.debug("Exported {} transactions for account: {}", count, accountNumber);
+            return count;
+        }
+    }
+
+    private long writeNdjson(Iterator<Transaction> rows, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = ndjsonWriter.getFactory().createGenerator(out)) {
+            // The servlet owns the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (rows.hasNext()) {
+                Transaction transaction = rows.next();
+                ndjsonWriter.writeValue(generator, convertToDTO(transaction));
+                generator.writeRaw('\n');
+                entityManager.detach(transaction);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<Transaction> rows, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (rows.hasNext()) {
+            Transaction transaction = rows.next();
+            writeCsvField(writer, transaction.getId());
+            writer.write(',');
+            writeCsvField(writer, transaction.getAccountNumber());
+            writer.write(',');
+            writeCsvField(writer, transaction.getTransactionType());
+            writer.write(',');
+            writeCsvField(writer, transaction.getAmount() != null ? transaction.getAmount().toString() : null);
+            writer.write(',');
+            writeCsvField(writer, transaction.getBalanceAfter() != null ? transaction.getBalanceAfter().toString() : null);
+            writer.write(',');
+            writeCsvField(writer, transaction.getDescription());
+            writer.write(',');
+            writeCsvField(writer, transaction.getStatus());
+            writer.write(',');
+            writeCsvField(writer, transaction.getReference());
+            writer.write(',');
+            writeCsvField(writer, transaction.getTimestamp() != null ? transaction.getTimestamp().toString() : null);
+            writer.write('\n');
+            entityManager.detach(transaction);
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    // RFC 4180 quoting - only when the value needs it
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private TransactionDTO convertToDTO(Transaction transaction) {
+        return TransactionDTO.builder()
+                .id(transaction.getId())
+                .accountNumber(transaction.getAccountNumber())
+                .transactionType(transaction.getTransactionType())
+                .amount(transaction.getAmount())
+                .balanceAfter(transaction.getBalanceAfter())
+                .description(transaction.getDescription())
+                .status(transaction.getStatus())
+                .reference(transaction.getReference())
+                .transferReference(transaction.getTransferReference())
+                .timestamp(transaction.getTimestamp())
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Account;
+import com.banking.account.entity.Transaction;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransactionResult {
+
+    public enum Outcome {
+        COMPLETED,
+        ACCOUNT_NOT_FOUND,
+        INSUFFICIENT_FUNDS
+    }
+
+    private final Outcome outcome;
+    private final Account account;
+    private final Transaction transaction;
+
+    public static TransactionResult completed(Account account, Transaction transaction) {
+        return new TransactionResult(Outcome.COMPLETED, account, transaction);
+    }
+
+    public static TransactionResult accountNotFound() {
+        return new TransactionResult(Outcome.ACCOUNT_NOT_FOUND, null, null);
+    }
+
+    public static TransactionResult insufficientFunds(Account account, Transaction transaction) {
+        return new TransactionResult(Outcome.INSUFFICIENT_FUNDS, account, transaction);
+    }
+
+    public boolean isCompleted() {
+        return outcome == Outcome.COMPLETED;
+    }
+}
@@ -0,0 +1,37 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Account;
+import com.banking.account.entity.Transaction;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransferResult {
+
+    private final TransactionResult.Outcome outcome;
+    private final String reference;
+    private final Account fromAccount;
+    private final Account toAccount;
+    private final Transaction debit;
+    private final Transaction credit;
+
+    public static TransferResult completed(String reference, Account fromAccount, Account toAccount,
+                                           Transaction debit, Transaction credit) {
+        return new TransferResult(TransactionResult.Outcome.COMPLETED, reference, fromAccount, toAccount, debit, credit);
+    }
+
+    public static TransferResult accountNotFound() {
+        return new TransferResult(TransactionResult.Outcome.ACCOUNT_NOT_FOUND, null, null, null, null, null);
+    }
+
+    // The failed debit is recorded against the source account
+    public static TransferResult insufficientFunds(Account fromAccount, Transaction failedDebit) {
+        return new TransferResult(TransactionResult.Outcome.INSUFFICIENT_FUNDS, null, fromAccount, null, failedDebit, null);
+    }
+
+    public boolean isCompleted() {
+        return outcome == TransactionResult.Outcome.COMPLETED;
+    }
+}
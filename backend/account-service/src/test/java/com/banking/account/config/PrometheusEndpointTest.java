@@ -0,0 +1,55 @@
+package com.banking.account.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Drives real requests through the full context and checks every metric family reaches the scrape output
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class PrometheusEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testScrapeExposesRequestRepositoryHibernateAndOutcomeMetrics() throws Exception {
+        mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"accountNumber":"5550000001","accountHolderName":"Metrics Test",
+                                 "email":"metrics@test.com","balance":100.00,"accountType":"SAVINGS"}
+                                """))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/accounts/5550000001/withdraw").param("amount", "500.00"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/accounts/5550000999/deposit").param("amount", "5.00"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/accounts/number/5550000001"))
+                .andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket{")
+                .containsPattern("http_server_requests_seconds\\{.*uri=\"/api/accounts/\\{accountNumber}/withdraw\".*quantile=\"0\\.999\"")
+                .containsPattern("spring_data_repository_invocations_seconds_count\\{.*method=\"debitBalance\".*repository=\"AccountRepository\"")
+                .contains("hibernate_statements_total{")
+                .contains("hibernate_flushes_total{")
+                .contains("hibernate_entities_loads_total{")
+                .containsPattern("hibernate_statements_per_request_count\\{.*uri=\"/api/accounts/\\{accountNumber}/withdraw\"")
+                .containsPattern("banking_transactions_total\\{.*outcome=\"INSUFFICIENT_FUNDS\".*type=\"WITHDRAWAL\".*} 1\\.0")
+                .containsPattern("banking_transactions_total\\{.*outcome=\"ACCOUNT_NOT_FOUND\".*type=\"DEPOSIT\".*} 1\\.0");
+    }
+}
@@ -1,33 +1,75 @@
 package com.banking.account.controller;
 
+import com.banking.account.config.BinaryFormatConfig;
 import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.AccountVersion;
+import com.banking.account.dto.BatchTransactionRequest;
 import com.banking.account.dto.TransactionRequest;
 import com.banking.account.entity.Account;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
 import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.AccountSummaryRepository;
+import com.banking.account.repository.BalanceShardRepository;
 import com.banking.account.repository.TransactionRepository;
+import com.banking.account.service.AccountCache;
+import com.banking.account.service.AccountEventHub;
+import com.banking.account.service.AccountSearchService;
+import com.banking.account.service.AccountSummaryService;
+import com.banking.account.service.AccountTransactionService;
+import com.banking.account.service.FailedTransactionWriter;
+import com.banking.account.service.InterestAccrualService;
+import com.banking.account.service.OptimisticRetry;
+import com.banking.account.service.RateLimiter;
+import com.banking.account.service.ReferenceGenerator;
+import com.banking.account.service.ShardedBalanceService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @ExtendWith(SpringExtension.class)
-@WebMvcTest(AccountController.class)
+// Buckets that refill once every 1000 s, so emptying one in a test keeps it empty. Optimistic
+// locking, so the transfer tests see version conflicts and retries.
+@WebMvcTest(value = AccountController.class, properties = {"banking.account.locking=OPTIMISTIC",
+        "banking.ratelimit.enabled=true",
+        "banking.ratelimit.account.rate=0.001", "banking.ratelimit.account.burst=1000",
+        "banking.ratelimit.client.rate=0.001", "banking.ratelimit.client.burst=1000"})
+@Import({AccountTransactionService.class, AccountSummaryService.class, AccountCache.class,
+        ReferenceGenerator.class, OptimisticRetry.class, AccountSearchService.class, AccountEventHub.class,
+        BinaryFormatConfig.class, RateLimiter.class, ShardedBalanceService.class, SimpleMeterRegistry.class})
 public class AccountControllerTest {
 
     @Autowired
@@ -39,20 +81,52 @@ public class AccountControllerTest {
     @MockBean
     private TransactionRepository transactionRepository;
 
+    @MockBean
+    private AccountSummaryRepository accountSummaryRepository;
+
+    @MockBean
+    private BalanceShardRepository balanceShardRepository;
+
+    @MockBean
+    private EntityManager entityManager;
+
+    @MockBean
+    private FailedTransactionWriter failedTransactionWriter;
+
+    @MockBean
+    private InterestAccrualService interestAccrualService;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AccountSearchService accountSearchService;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
     private Account testAccount;
     private AccountDTO testAccountDTO;
 
     @BeforeEach
     void setUp() {
+        accountCache.evictAll();
+
         testAccount = new Account();
         testAccount.setId("test-id-123");
         testAccount.setAccountNumber("1234567890");
         testAccount.setAccountHolderName("John Doe");
         testAccount.setEmail("john@test.com");
-        testAccount.setBalance(new BigDecimal("1000.00"));
+        testAccount.setBalance(Money.of("1000.00"));
         testAccount.setAccountType("SAVINGS");
         testAccount.setStatus("ACTIVE");
 
@@ -60,7 +134,7 @@ public class AccountControllerTest {
         testAccountDTO.setAccountNumber("1234567890");
         testAccountDTO.setAccountHolderName("John Doe");
         testAccountDTO.setEmail("john@test.com");
-        testAccountDTO.setBalance(new BigDecimal("1000.00"));
+        testAccountDTO.setBalance(Money.of("1000.00"));
         testAccountDTO.setAccountType("SAVINGS");
     }
 
@@ -77,6 +151,9 @@ public class AccountControllerTest {
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.message").value("Account created successfully"))
                 .andExpect(jsonPath("$.data.accountNumber").value("1234567890"));
+
+        // Opened with an empty summary, so later writers only update it
+        verify(accountSummaryRepository).insertSummary(eq("1234567890"), any(), any(), eq(0L), eq(0L), any());
     }
 
     @Test
@@ -106,16 +183,17 @@ public class AccountControllerTest {
 
     @Test
     void testGetAllAccounts() throws Exception {
-        Account secondAccount = new Account();
-        secondAccount.setId("test-id-456");
-        secondAccount.setAccountNumber("0987654321");
-        secondAccount.setAccountHolderName("Jane Smith");
-        secondAccount.setEmail("jane@test.com");
-        secondAccount.setBalance(new BigDecimal("2500.00"));
-        secondAccount.setAccountType("CHECKING");
-        secondAccount.setStatus("ACTIVE");
-
-        when(accountRepository.findAll()).thenReturn(Arrays.asList(testAccount, secondAccount));
+        AccountDTO secondAccount = AccountDTO.builder()
+                .id("test-id-456")
+                .accountNumber("0987654321")
+                .accountHolderName("Jane Smith")
+                .email("jane@test.com")
+                .balance(Money.of("2500.00"))
+                .accountType("CHECKING")
+                .status("ACTIVE")
+                .build();
+
+        when(accountRepository.findAllDTOs()).thenReturn(Arrays.asList(testAccountDTO, secondAccount));
 
         mockMvc.perform(get("/api/accounts"))
                 .andExpect(status().isOk())
@@ -123,6 +201,74 @@ public class AccountControllerTest {
                 .andExpect(jsonPath("$.data.length()").value(2));
     }
 
+    @Test
+    void testGetAllAccounts_Cbor() throws Exception {
+        when(accountRepository.findAllDTOs()).thenReturn(List.of(testAccountDTO));
+
+        byte[] body = mockMvc.perform(get("/api/accounts").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode response = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertThat(response.get("success").booleanValue()).isTrue();
+        assertThat(response.get("data").get(0).get("accountNumber").textValue()).isEqualTo("1234567890");
+        assertThat(response.get("data").get(0).get("balance").decimalValue()).isEqualByComparingTo("1000.00");
+
+        mockMvc.perform(get("/api/accounts"))
+                .andExpect(content().contentType("application/json"));
+    }
+
+    @Test
+    void testSearchAccounts_ByName() throws Exception {
+        Account account = new Account();
+        account.setAccountNumber("5550000001");
+        account.setAccountHolderName("Zoe Quartermaine");
+        account.setAccountType("CHECKING");
+        account.setStatus("ACTIVE");
+        accountSearchService.indexAccount(account);
+        AccountDTO row = AccountDTO.builder()
+                .accountNumber("5550000001")
+                .accountHolderName("Zoe Quartermaine")
+                .balance(Money.of("75.00"))
+                .accountType("CHECKING")
+                .status("ACTIVE")
+                .build();
+        when(accountRepository.findDTOsByAccountNumberIn(List.of("5550000001"))).thenReturn(List.of(row));
+
+        mockMvc.perform(get("/api/accounts/search").param("name", "QUARTER").param("type", "CHECKING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items.length()").value(1))
+                .andExpect(jsonPath("$.data.items[0].accountHolderName").value("Zoe Quartermaine"))
+                .andExpect(jsonPath("$.data.totalElements").value(1))
+                .andExpect(jsonPath("$.data.size").value(20));
+
+        mockMvc.perform(get("/api/accounts/search").param("name", "quarter").param("type", "SAVINGS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.totalElements").value(0));
+        verify(accountRepository, never()).findAllDTOs();
+    }
+
+    @Test
+    void testSearchAccounts_UnsupportedSort() throws Exception {
+        mockMvc.perform(get("/api/accounts/search").param("sort", "email"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void testStreamAccountEvents() throws Exception {
+        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
+        when(accountRepository.findByAccountNumber("0000000000")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/accounts/1234567890/events"))
+                .andExpect(request().asyncStarted());
+        mockMvc.perform(get("/api/accounts/events"))
+                .andExpect(request().asyncStarted());
+        mockMvc.perform(get("/api/accounts/0000000000/events"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testGetAccountById_Found() throws Exception {
         when(accountRepository.findById("test-id-123")).thenReturn(Optional.of(testAccount));
@@ -133,6 +279,93 @@ public class AccountControllerTest {
                 .andExpect(jsonPath("$.data.accountNumber").value("1234567890"));
     }
 
+    @Test
+    void testGetAccountById_ServedFromCache() throws Exception {
+        when(accountRepository.findById("test-id-123")).thenReturn(Optional.of(testAccount));
+        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
+        CacheStats before = accountCache.stats();
+
+        mockMvc.perform(get("/api/accounts/test-id-123")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/accounts/test-id-123")).andExpect(status().isOk());
+        // Each view loads its own copy
+        mockMvc.perform(get("/api/accounts/number/1234567890"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value("test-id-123"));
+        mockMvc.perform(get("/api/accounts/number/1234567890")).andExpect(status().isOk());
+
+        verify(accountRepository, times(1)).findById("test-id-123");
+        verify(accountRepository, times(1)).findByAccountNumber("1234567890");
+
+        CacheStats delta = accountCache.stats().minus(before);
+        assertThat(delta.hitCount()).isEqualTo(2);
+        assertThat(delta.missCount()).isEqualTo(2);
+
+        mockMvc.perform(get("/api/accounts/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.size").value(1));
+    }
+
+    @Test
+    void testDeposit_EvictsCachedAccount() throws Exception {
+        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
+        when(accountRepository.creditBalance(eq("1234567890"), any(BigDecimal.class), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        mockMvc.perform(get("/api/accounts/number/1234567890"))
+                .andExpect(jsonPath("$.data.balance").value(1000.00));
+
+        Account updated = new Account();
+        updated.setId("test-id-123");
+        updated.setAccountNumber("1234567890");
+        updated.setBalance(Money.of("1500.00"));
+        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(updated));
+        when(accountRepository.findById("test-id-123")).thenReturn(Optional.of(updated));
+
+        mockMvc.perform(post("/api/accounts/1234567890/deposit")
+                        .param("amount", "500.00"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/accounts/number/1234567890"))
+                .andExpect(jsonPath("$.data.balance").value(1500.00));
+        mockMvc.perform(get("/api/accounts/test-id-123"))
+                .andExpect(jsonPath("$.data.balance").value(1500.00));
+    }
+
+    @Test
+    void testGetAccountByNumber_ConditionalGet() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 3, 1, 9, 30);
+        testAccount.setVersion(3L);
+        testAccount.setUpdatedAt(updatedAt);
+        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
+
+        mockMvc.perform(get("/api/accounts/number/1234567890"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"test-id-123.3\""))
+                .andExpect(header().doesNotExist("Last-Modified"));
+
+        // Matched against the cached copy
+        mockMvc.perform(get("/api/accounts/number/1234567890").header("If-None-Match", "\"test-id-123.3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"test-id-123.3\""))
+                .andExpect(content().string(""));
+
+        // Matched against the version columns, the account is not loaded
+        accountCache.evictAll();
+        when(accountRepository.findVersionByAccountNumber("1234567890"))
+                .thenReturn(Optional.of(new AccountVersion("test-id-123", "1234567890", 3L, updatedAt)));
+        mockMvc.perform(get("/api/accounts/number/1234567890").header("If-None-Match", "\"other\", \"test-id-123.3\""))
+                .andExpect(status().isNotModified());
+        verify(accountRepository, times(1)).findByAccountNumber("1234567890");
+
+        testAccount.setVersion(4L);
+        when(accountRepository.findVersionByAccountNumber("1234567890"))
+                .thenReturn(Optional.of(new AccountVersion("test-id-123", "1234567890", 4L, updatedAt)));
+        mockMvc.perform(get("/api/accounts/number/1234567890").header("If-None-Match", "\"test-id-123.3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"test-id-123.4\""))
+                .andExpect(jsonPath("$.data.accountNumber").value("1234567890"));
+    }
+
     @Test
     void testGetAccountById_NotFound() throws Exception {
         when(accountRepository.findById("non-existent")).thenReturn(Optional.empty());
@@ -145,8 +378,9 @@ public class AccountControllerTest {
 
     @Test
     void testDeposit_Success() throws Exception {
+        when(accountRepository.creditBalance(eq("1234567890"), any(BigDecimal.class), any(LocalDateTime.class)))
+                .thenReturn(1);
         when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
-        when(accountRepository.save(any(Account.class))).thenReturn(testAccount);
 
         mockMvc.perform(post("/api/accounts/1234567890/deposit")
                         .param("amount", "500.00"))
@@ -155,10 +389,75 @@ public class AccountControllerTest {
                 .andExpect(jsonPath("$.message").value(org.hamcrest.Matchers.containsString("Deposited $500.00")));
     }
 
+    @Test
+    void testDeposit_AccountRateLimited() throws Exception {
+        while (rateLimiter.tryAcquire(RateLimiter.Scope.ACCOUNT, "5550000009") == 0) {
+            // Empty the account's bucket
+        }
+
+        mockMvc.perform(post("/api/accounts/5550000009/deposit").param("amount", "10.00"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.success").value(false));
+        mockMvc.perform(post("/api/accounts/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"accountNumber\":\"5550000009\",\"transactionType\":\"WITHDRAWAL\",\"amount\":5}"))
+                .andExpect(status().isTooManyRequests());
+
+        verify(accountRepository, never()).creditBalance(eq("5550000009"), any(), any());
+        verify(accountRepository, never()).debitBalance(eq("5550000009"), any(), any());
+        assertThat(meterRegistry.get("banking.ratelimit.rejected").tag("scope", "account").counter().count())
+                .isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void testClientRateLimited() throws Exception {
+        while (rateLimiter.tryAcquire(RateLimiter.Scope.CLIENT, "10.9.9.9") == 0) {
+            // Empty the client's bucket
+        }
+
+        mockMvc.perform(get("/api/accounts").with(request -> {
+                    request.setRemoteAddr("10.9.9.9");
+                    return request;
+                }))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        verify(accountRepository, never()).findAllDTOs();
+    }
+
+    @Test
+    void testEnableShards_InvalidCount() throws Exception {
+        mockMvc.perform(put("/api/accounts/1234567890/shards").param("count", "1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Shard count must be between 2 and 64"));
+
+        verify(accountRepository, never()).findByAccountNumberForUpdate(anyString());
+        verifyNoInteractions(balanceShardRepository);
+    }
+
+    @Test
+    void testAccrueInterest_AlreadyRunning() throws Exception {
+        when(interestAccrualService.accrue(YearMonth.of(2024, 6)))
+                .thenThrow(new IllegalStateException("An interest accrual run is already in progress"));
+
+        mockMvc.perform(post("/api/accounts/interest").param("month", "2024-06"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void testGetInterestRun_NotFound() throws Exception {
+        when(interestAccrualService.getRun(YearMonth.of(2024, 6))).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/accounts/interest/2024-06"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testWithdraw_Success() throws Exception {
+        when(accountRepository.debitBalance(eq("1234567890"), any(BigDecimal.class), any(LocalDateTime.class)))
+                .thenReturn(1);
         when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
-        when(accountRepository.save(any(Account.class))).thenReturn(testAccount);
 
         mockMvc.perform(post("/api/accounts/1234567890/withdraw")
                         .param("amount", "200.00"))
@@ -169,23 +468,152 @@ public class AccountControllerTest {
 
     @Test
     void testWithdraw_InsufficientFunds() throws Exception {
+        when(accountRepository.debitBalance(eq("1234567890"), any(BigDecimal.class), any(LocalDateTime.class)))
+                .thenReturn(0);
         when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
+        double before = outcomeCount("WITHDRAWAL", "INSUFFICIENT_FUNDS");
 
         mockMvc.perform(post("/api/accounts/1234567890/withdraw")
                         .param("amount", "2000.00"))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.message").value("Insufficient funds"));
+
+        assertThat(outcomeCount("WITHDRAWAL", "INSUFFICIENT_FUNDS")).isEqualTo(before + 1);
+        // The audit row is handed to the writer, nothing is saved on the request thread
+        verify(failedTransactionWriter).submit(argThat(transaction -> "FAILED".equals(transaction.getStatus())));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void testDeposit_AccountNotFound() throws Exception {
+        when(accountRepository.creditBalance(eq("0000000000"), any(BigDecimal.class), any(LocalDateTime.class)))
+                .thenReturn(0);
+        double before = outcomeCount("DEPOSIT", "ACCOUNT_NOT_FOUND");
+
+        mockMvc.perform(post("/api/accounts/0000000000/deposit")
+                        .param("amount", "500.00"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("Account not found"));
+
+        assertThat(outcomeCount("DEPOSIT", "ACCOUNT_NOT_FOUND")).isEqualTo(before + 1);
+    }
+
+    @Test
+    void testProcessTransactionBatch() throws Exception {
+        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
+
+        TransactionRequest deposit = new TransactionRequest();
+        deposit.setAccountNumber("1234567890");
+        deposit.setTransactionType("DEPOSIT");
+        deposit.setAmount(Money.of("100.00"));
+
+        TransactionRequest withdrawal = new TransactionRequest();
+        withdrawal.setAccountNumber("1234567890");
+        withdrawal.setTransactionType("WITHDRAWAL");
+        withdrawal.setAmount(Money.of("5000.00"));
+
+        BatchTransactionRequest batch = new BatchTransactionRequest();
+        batch.setTransactions(Arrays.asList(deposit, withdrawal));
+
+        mockMvc.perform(post("/api/accounts/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].success").value(true))
+                .andExpect(jsonPath("$.data[0].balanceAfter").value(1100.00))
+                .andExpect(jsonPath("$.data[1].success").value(false))
+                .andExpect(jsonPath("$.data[1].message").value("Insufficient funds"));
+    }
+
+    @Test
+    void testProcessTransactionBatch_Empty() throws Exception {
+        mockMvc.perform(post("/api/accounts/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transactions\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testTransfer_Success() throws Exception {
+        Account target = new Account();
+        target.setId("test-id-456");
+        target.setAccountNumber("0987654321");
+        target.setBalance(Money.of("10.00"));
+        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(target));
+        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
+
+        mockMvc.perform(post("/api/accounts/transfers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fromAccountNumber\":\"1234567890\",\"toAccountNumber\":\"0987654321\",\"amount\":250.00}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.reference").value(org.hamcrest.Matchers.startsWith("TRF")))
+                .andExpect(jsonPath("$.data.fromBalanceAfter").value(750.00))
+                .andExpect(jsonPath("$.data.toBalanceAfter").value(260.00));
+
+        // Canonical order: the lower account number is read first, whichever side it is on
+        InOrder reads = inOrder(accountRepository);
+        reads.verify(accountRepository).findByAccountNumber("0987654321");
+        reads.verify(accountRepository).findByAccountNumber("1234567890");
+        verify(accountRepository, never()).findByAccountNumberForUpdate(anyString());
+    }
+
+    @Test
+    void testTransfer_ConflictExhaustsRetries() throws Exception {
+        Account target = new Account();
+        target.setId("test-id-456");
+        target.setAccountNumber("0987654321");
+        target.setBalance(Money.of("10.00"));
+        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(target));
+        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(testAccount));
+        // Every attempt loses its version check. The mocks hand back the same entities each time,
+        // so keep the amount small enough that the balance never runs out across attempts.
+        when(transactionRepository.saveAll(any())).thenThrow(
+                new ObjectOptimisticLockingFailureException(Account.class, "test-id-123"));
+        double completedBefore = outcomeCount("TRANSFER", "COMPLETED");
+
+        mockMvc.perform(post("/api/accounts/transfers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fromAccountNumber\":\"1234567890\",\"toAccountNumber\":\"0987654321\",\"amount\":1.00}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.success").value(false));
+
+        verify(accountRepository, times(5)).findByAccountNumber("1234567890");
+        assertThat(meterRegistry.get("banking.account.write.conflicts").tag("operation", "transfer")
+                .counter().count()).isEqualTo(5.0);
+        assertThat(meterRegistry.get("banking.account.write.exhausted").tag("operation", "transfer")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(outcomeCount("TRANSFER", "COMPLETED")).isEqualTo(completedBefore);
+    }
+
+    @Test
+    void testTransfer_SameAccount() throws Exception {
+        mockMvc.perform(post("/api/accounts/transfers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fromAccountNumber\":\"1234567890\",\"toAccountNumber\":\"1234567890\",\"amount\":1.00}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cannot transfer to the same account"));
     }
 
     @Test
     void testDeleteAccount_Success() throws Exception {
-        when(accountRepository.existsById("test-id-123")).thenReturn(true);
-        doNothing().when(accountRepository).deleteById("test-id-123");
+        when(accountRepository.findById("test-id-123")).thenReturn(Optional.of(testAccount));
+        doNothing().when(accountRepository).delete(testAccount);
 
         mockMvc.perform(delete("/api/accounts/test-id-123"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.message").value("Account deleted successfully"));
+
+        verify(accountRepository).delete(testAccount);
+    }
+
+    private double outcomeCount(String type, String outcome) {
+        Counter counter = meterRegistry.find("banking.transactions").tag("type", type).tag("outcome", outcome).counter();
+        return counter != null ? counter.count() : 0;
     }
-}
\ No newline at end of file
+}
@@ -1,28 +1,53 @@
 package com.banking.account.controller;
 
+import com.banking.account.dto.StatementRun;
+import com.banking.account.dto.TransactionCursor;
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.entity.AccountSummary;
 import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountSummaryRepository;
+import com.banking.account.repository.BalanceShardRepository;
 import com.banking.account.repository.TransactionRepository;
+import com.banking.account.service.AccountSummaryService;
+import com.banking.account.service.RateLimiter;
+import com.banking.account.service.ShardedBalanceService;
+import com.banking.account.service.StatementService;
+import com.banking.account.service.TransactionExportService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
-import java.math.BigDecimal;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.Arrays;
 import java.util.Optional;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(TransactionController.class)
+@Import({AccountSummaryService.class, RateLimiter.class, SimpleMeterRegistry.class})
 public class TransactionControllerTest {
 
     @Autowired
@@ -31,6 +56,24 @@ public class TransactionControllerTest {
     @MockBean
     private TransactionRepository transactionRepository;
 
+    @MockBean
+    private TransactionExportService transactionExportService;
+
+    @MockBean
+    private AccountSummaryRepository accountSummaryRepository;
+
+    @MockBean
+    private BalanceShardRepository balanceShardRepository;
+
+    @MockBean
+    private EntityManager entityManager;
+
+    @MockBean
+    private ShardedBalanceService shardedBalanceService;
+
+    @MockBean
+    private StatementService statementService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -39,12 +82,15 @@ public class TransactionControllerTest {
 
     @BeforeEach
     void setUp() {
+        // No hot accounts, summaries pass through unchanged
+        when(shardedBalanceService.withPendingDeposits(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+
         depositTransaction = new Transaction();
         depositTransaction.setId("txn-1");
         depositTransaction.setAccountNumber("1234567890");
         depositTransaction.setTransactionType("DEPOSIT");
-        depositTransaction.setAmount(new BigDecimal("500.00"));
-        depositTransaction.setBalanceAfter(new BigDecimal("1500.00"));
+        depositTransaction.setAmount(Money.of("500.00"));
+        depositTransaction.setBalanceAfter(Money.of("1500.00"));
         depositTransaction.setStatus("COMPLETED");
         depositTransaction.setReference("TXN123456");
         depositTransaction.setTimestamp(LocalDateTime.now());
@@ -53,8 +99,8 @@ public class TransactionControllerTest {
         withdrawalTransaction.setId("txn-2");
         withdrawalTransaction.setAccountNumber("1234567890");
         withdrawalTransaction.setTransactionType("WITHDRAWAL");
-        withdrawalTransaction.setAmount(new BigDecimal("200.00"));
-        withdrawalTransaction.setBalanceAfter(new BigDecimal("1300.00"));
+        withdrawalTransaction.setAmount(Money.of("200.00"));
+        withdrawalTransaction.setBalanceAfter(Money.of("1300.00"));
         withdrawalTransaction.setStatus("COMPLETED");
         withdrawalTransaction.setReference("TXN123457");
         withdrawalTransaction.setTimestamp(LocalDateTime.now().minusHours(1));
@@ -62,30 +108,65 @@ public class TransactionControllerTest {
 
     @Test
     void testGetAccountTransactions() throws Exception {
-        when(transactionRepository.findByAccountNumberOrderByTimestampDesc("1234567890"))
-                .thenReturn(Arrays.asList(depositTransaction, withdrawalTransaction));
+        when(transactionRepository.findByAccountNumberOrderByTimestampDescIdDesc(eq("1234567890"), any(Limit.class)))
+                .thenReturn(Arrays.asList(row(depositTransaction), row(withdrawalTransaction)));
 
         mockMvc.perform(get("/api/transactions/account/1234567890"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data.length()").value(2));
+                .andExpect(jsonPath("$.data.items.length()").value(2))
+                .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void testGetAccountTransactions_NextPage() throws Exception {
+        when(transactionRepository.findByAccountNumberOrderByTimestampDescIdDesc("1234567890", Limit.of(2)))
+                .thenReturn(Arrays.asList(row(depositTransaction), row(withdrawalTransaction)));
+
+        String cursor = new TransactionCursor(depositTransaction.getTimestamp(), depositTransaction.getId()).encode();
+
+        mockMvc.perform(get("/api/transactions/account/1234567890").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items.length()").value(1))
+                .andExpect(jsonPath("$.data.items[0].reference").value("TXN123456"))
+                .andExpect(jsonPath("$.data.nextCursor").value(cursor));
+
+        when(transactionRepository.findPageAfter("1234567890", depositTransaction.getTimestamp(), "txn-1", Limit.of(2)))
+                .thenReturn(Arrays.asList(row(withdrawalTransaction)));
+
+        mockMvc.perform(get("/api/transactions/account/1234567890")
+                        .param("size", "1")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items.length()").value(1))
+                .andExpect(jsonPath("$.data.items[0].reference").value("TXN123457"))
+                .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void testGetAccountTransactions_InvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/transactions/account/1234567890").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
     }
 
     @Test
     void testGetTransactionsByType() throws Exception {
-        when(transactionRepository.findByAccountNumberAndTransactionTypeOrderByTimestampDesc("1234567890", "DEPOSIT"))
-                .thenReturn(Arrays.asList(depositTransaction));
+        when(transactionRepository.findByAccountNumberAndTransactionTypeOrderByTimestampDescIdDesc(
+                eq("1234567890"), eq("DEPOSIT"), any(Limit.class)))
+                .thenReturn(Arrays.asList(row(depositTransaction)));
 
         mockMvc.perform(get("/api/transactions/account/1234567890/type/DEPOSIT"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data.length()").value(1))
-                .andExpect(jsonPath("$.data[0].transactionType").value("DEPOSIT"));
+                .andExpect(jsonPath("$.data.items.length()").value(1))
+                .andExpect(jsonPath("$.data.items[0].transactionType").value("DEPOSIT"));
     }
 
     @Test
     void testGetTransactionByReference() throws Exception {
-        when(transactionRepository.findById("TXN123456")).thenReturn(Optional.of(depositTransaction));
+        when(transactionRepository.findByReference("TXN123456")).thenReturn(Optional.of(depositTransaction));
 
         mockMvc.perform(get("/api/transactions/reference/TXN123456"))
                 .andExpect(status().isOk())
@@ -93,20 +174,104 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.data.reference").value("TXN123456"));
     }
 
+    @Test
+    void testGetTransactionByReference_NotFound() throws Exception {
+        when(transactionRepository.findByReference("TXN000")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/transactions/reference/TXN000"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testGetTransactionSummary() throws Exception {
-        when(transactionRepository.getTotalByType("1234567890", "DEPOSIT"))
-                .thenReturn(new BigDecimal("500.00"));
-        when(transactionRepository.getTotalByType("1234567890", "WITHDRAWAL"))
-                .thenReturn(new BigDecimal("200.00"));
-        when(transactionRepository.findByAccountNumberOrderByTimestampDesc("1234567890"))
-                .thenReturn(Arrays.asList(depositTransaction, withdrawalTransaction));
+        when(accountSummaryRepository.findById("1234567890")).thenReturn(Optional.of(new AccountSummary(
+                "1234567890", Money.of("500.00"), Money.of("200.00"), 2, 1, LocalDateTime.now())));
 
         mockMvc.perform(get("/api/transactions/account/1234567890/summary"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.data.totalDeposits").value(500.00))
                 .andExpect(jsonPath("$.data.totalWithdrawals").value(200.00))
-                .andExpect(jsonPath("$.data.totalTransactions").value(2));
+                .andExpect(jsonPath("$.data.netBalance").value(300.00))
+                .andExpect(jsonPath("$.data.totalTransactions").value(3))
+                .andExpect(jsonPath("$.data.failedTransactions").value(1));
+    }
+
+    @Test
+    void testGetTransactionSummary_ConditionalGet() throws Exception {
+        when(accountSummaryRepository.findById("1234567890")).thenReturn(Optional.of(new AccountSummary(
+                "1234567890", Money.of("500.00"), Money.of("200.00"), 2, 1,
+                LocalDateTime.of(1970, 1, 1, 0, 0, 1, 5000))));
+
+        mockMvc.perform(get("/api/transactions/account/1234567890/summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2.1.1000005\""))
+                .andExpect(header().doesNotExist("Last-Modified"));
+        mockMvc.perform(get("/api/transactions/account/1234567890/summary").header("If-None-Match", "\"2.1.1000005\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/transactions/account/1234567890/summary").header("If-None-Match", "\"2.0.1000005\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testGetTransactionSummary_NoTransactions() throws Exception {
+        when(accountSummaryRepository.findById("1234567890")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/transactions/account/1234567890/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.totalDeposits").value(0))
+                .andExpect(jsonPath("$.data.totalTransactions").value(0));
+    }
+
+    @Test
+    void testExportTransactions_UnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/transactions/account/1234567890/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportTransactions_Csv() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/transactions/account/1234567890/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition",
+                        org.hamcrest.Matchers.containsString("transactions-1234567890.csv")));
+
+        verify(transactionExportService).export(eq("1234567890"), isNull(), isNull(),
+                eq(TransactionExportService.Format.CSV), any(OutputStream.class));
+    }
+
+    @Test
+    void testGenerateStatements() throws Exception {
+        when(statementService.generate(YearMonth.of(2024, 6))).thenReturn(StatementRun.builder()
+                .month(YearMonth.of(2024, 6)).partitions(1).accounts(2).transactions(5).build());
+
+        mockMvc.perform(post("/api/transactions/statements").param("month", "2024-06"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.accounts").value(2))
+                .andExpect(jsonPath("$.data.transactions").value(5));
+    }
+
+    @Test
+    void testGenerateStatements_AlreadyRunning() throws Exception {
+        when(statementService.generate(any())).thenThrow(new IllegalStateException("A statement run is already in progress"));
+
+        mockMvc.perform(post("/api/transactions/statements").param("month", "2024-06"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    // History pages come back from the repository as projections
+    private static TransactionDTO row(Transaction transaction) {
+        return new TransactionDTO(transaction.getId(), transaction.getAccountNumber(),
+                transaction.getTransactionType(), transaction.getAmount(), transaction.getBalanceAfter(),
+                transaction.getDescription(), transaction.getStatus(), transaction.getReference(),
+                transaction.getTransferReference(), transaction.getTimestamp());
     }
-}
\ No newline at end of file
+}
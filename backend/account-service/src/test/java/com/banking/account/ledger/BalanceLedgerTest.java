@@ -0,0 +1,434 @@
+package com.banking.account.ledger;
+
+import com.banking.account.money.Money;
+import com.banking.account.service.TransactionResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BalanceLedgerTest {
+
+    // Small chunks so the tests cross chunk boundaries
+    private static final int RECORDS_PER_CHUNK = 128;
+
+    @TempDir
+    Path directory;
+
+    // Stands in for the database: a group is here once the transaction behind it committed
+    private final Set<Long> committedGroups = ConcurrentHashMap.newKeySet();
+
+    private final LedgerCommitLog commitLog = new LedgerCommitLog() {
+        @Override
+        public void recordCommit(long group) {
+            committedGroups.add(group);
+        }
+
+        @Override
+        public Set<Long> findCommitted(Collection<Long> groups) {
+            return groups.stream().filter(committedGroups::contains).collect(Collectors.toSet());
+        }
+
+        @Override
+        public void deleteBefore(long group) {
+            committedGroups.removeIf(committed -> committed < group);
+        }
+    };
+
+    @Test
+    void testCreditDebitAndOutcomes() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.open("1234567890", Money.of("100.00"))).isTrue();
+            assertThat(ledger.open("1234567890", Money.of("5.00"))).isFalse();
+
+            assertThat(ledger.credit("1234567890", Money.of("50.25")).getBalance())
+                    .isEqualTo(Money.of("150.25"));
+            assertThat(ledger.debit("1234567890", Money.of("200.00")).getOutcome())
+                    .isEqualTo(TransactionResult.Outcome.INSUFFICIENT_FUNDS);
+            assertThat(ledger.debit("1234567890", Money.of("150.25")).getBalance())
+                    .isEqualTo(Money.of("0"));
+            assertThat(ledger.credit("0000000000", Money.of("1")).getOutcome())
+                    .isEqualTo(TransactionResult.Outcome.ACCOUNT_NOT_FOUND);
+
+            ledger.close("1234567890");
+            assertThat(ledger.balanceOf("1234567890")).isEmpty();
+        }
+    }
+
+    @Test
+    void testRestartReplaysJournal() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.of("10.00"));
+            ledger.open("2222222222", Money.ZERO);
+            for (int i = 0; i < 1_000; i++) {
+                ledger.credit("1111111111", Money.of("1.0001"));
+                ledger.credit("2222222222", Money.of("2.00"));
+                ledger.debit("2222222222", Money.of("1.00"));
+            }
+            ledger.open("3333333333", Money.of("1"));
+            ledger.close("3333333333");
+        }
+
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.getRecoveredSequence()).isEqualTo(3_004);
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("1010.1000"));
+            assertThat(ledger.balanceOf("2222222222")).contains(Money.of("1000.0000"));
+            assertThat(ledger.contains("3333333333")).isFalse();
+
+            // Appends continue after the recovered tail
+            ledger.credit("2222222222", Money.of("1"));
+            assertThat(ledger.getLastSequence()).isEqualTo(3_005);
+        }
+    }
+
+    @Test
+    void testRestartFromSnapshotReplaysOnlyTail() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.ZERO);
+            for (int i = 0; i < 500; i++) {
+                ledger.credit("1111111111", Money.of("1"));
+            }
+            assertThat(ledger.snapshot()).isEqualTo(501);
+            for (int i = 0; i < 20; i++) {
+                ledger.debit("1111111111", Money.of("1"));
+            }
+        }
+
+        List<Long> replayed = new ArrayList<>();
+        LedgerJournal.open(directory, RECORDS_PER_CHUNK, 501,
+                (sequence, type, accountNumber, amount) -> replayed.add(sequence)).close();
+        assertThat(replayed).hasSize(20).startsWith(502L);
+
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("480.0000"));
+        }
+    }
+
+    @Test
+    void testPreparedChangesJournaledOnlyOnCommit() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.of("100.00"));
+            ledger.open("2222222222", Money.ZERO);
+            long opened = ledger.getLastSequence();
+
+            BalanceLedger.Pending debit = ledger.prepareDebit("1111111111", Money.of("70.00"));
+            assertThat(debit.getBalance()).isEqualTo(Money.of("30.00"));
+            // The hold is not spendable twice, and a prepared credit is not spendable at all
+            assertThat(ledger.prepareDebit("1111111111", Money.of("40.00")).getOutcome())
+                    .isEqualTo(TransactionResult.Outcome.INSUFFICIENT_FUNDS);
+            ledger.prepareCredit("2222222222", Money.of("5.00"));
+            assertThat(ledger.prepareTransfer("2222222222", "1111111111", Money.of("1.00")).getOutcome())
+                    .isEqualTo(TransactionResult.Outcome.INSUFFICIENT_FUNDS);
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("100.00"));
+            assertThat(ledger.getLastSequence()).isEqualTo(opened);
+
+            // Rolled back: nothing journaled and the hold is given back
+            ledger.release(List.of(debit));
+            BalanceLedger.Pending transfer = ledger.prepareTransfer("1111111111", "2222222222", Money.of("100.00"));
+            assertThat(transfer.getToBalance()).isEqualTo(Money.of("100.00"));
+            ledger.commit(List.of(transfer));
+            ledger.commit(List.of(transfer));
+            assertThat(ledger.getLastSequence()).isEqualTo(opened + 2);
+
+            // Credits earlier in the same transaction may be spent by its later debits
+            BalanceLedger.Pending credit = ledger.prepareCredit("1111111111", Money.of("10.00"));
+            BalanceLedger.Pending spend = ledger.prepareDebit("1111111111", Money.of("10.00"), Money.of("10.00"));
+            assertThat(spend.getBalance()).isEqualTo(Money.ZERO);
+            ledger.commit(List.of(credit, spend));
+        }
+
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.ZERO);
+            assertThat(ledger.balanceOf("2222222222")).contains(Money.of("100.00"));
+        }
+    }
+
+    @Test
+    void testCrashAfterDatabaseCommitSettlesOnRestart() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.of("100.00"));
+            ledger.open("2222222222", Money.ZERO);
+
+            // The database commits, then the process dies before the SETTLE is journaled
+            BalanceLedger.Pending debit = ledger.prepareDebit("1111111111", Money.of("30.00"));
+            BalanceLedger.Pending transfer = ledger.prepareTransfer("1111111111", "2222222222", Money.of("20.00"));
+            commitLog.recordCommit(ledger.journalPrepared(List.of(debit, transfer)));
+
+            // The process dies before the database commits
+            ledger.journalPrepared(List.of(ledger.prepareCredit("2222222222", Money.of("5.00"))));
+
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("100.00"));
+        }
+
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("50.00"));
+            assertThat(ledger.balanceOf("2222222222")).contains(Money.of("20.00"));
+            // No hold survives the restart
+            assertThat(ledger.debit("1111111111", Money.of("50.00")).getOutcome())
+                    .isEqualTo(TransactionResult.Outcome.COMPLETED);
+        }
+
+        // The outcome was journaled, the next start does not settle the group again
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.ZERO);
+            assertThat(ledger.balanceOf("2222222222")).contains(Money.of("20.00"));
+        }
+    }
+
+    @Test
+    void testCommittedGroupWithLostCompletionSettlesOnce() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.of("100.00"));
+
+            // The database commits, then the completion never reaches the ledger
+            BalanceLedger.Pending credit = ledger.prepareCredit("1111111111", Money.of("2.00"));
+            long group = ledger.journalPrepared(List.of(credit));
+            commitLog.recordCommit(group);
+            // Prepared but not committed yet, left in flight
+            BalanceLedger.Pending pending = ledger.prepareCredit("1111111111", Money.of("5.00"));
+            ledger.journalPrepared(List.of(pending));
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("100.00"));
+
+            assertThat(ledger.settleCommitted()).isEqualTo(1);
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("102.00"));
+            // A late completion finds the group settled
+            ledger.commitPrepared(group, List.of(credit));
+            assertThat(ledger.settleCommitted()).isZero();
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("102.00"));
+        }
+
+        // One SETTLE was journaled, the group in flight is dropped
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("102.00"));
+        }
+    }
+
+    @Test
+    void testSettledAndAbortedGroupsReplayOnce() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.of("100.00"));
+
+            BalanceLedger.Pending debit = ledger.prepareDebit("1111111111", Money.of("60.00"));
+            long group = ledger.journalPrepared(List.of(debit));
+            commitLog.recordCommit(group);
+            ledger.commitPrepared(group, List.of(debit));
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("40.00"));
+
+            BalanceLedger.Pending rolledBack = ledger.prepareDebit("1111111111", Money.of("40.00"));
+            ledger.abortPrepared(ledger.journalPrepared(List.of(rolledBack)), List.of(rolledBack));
+            assertThat(ledger.debit("1111111111", Money.of("40.00")).getOutcome())
+                    .isEqualTo(TransactionResult.Outcome.COMPLETED);
+        }
+
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.ZERO);
+        }
+    }
+
+    @Test
+    void testGroupInDoubtAcrossSnapshotsSettlesOnRestart() throws Exception {
+        long group;
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.of("100.00"));
+            BalanceLedger.Pending debit = ledger.prepareDebit("1111111111", Money.of("40.00"));
+            group = ledger.journalPrepared(List.of(debit));
+            commitLog.recordCommit(group);
+
+            // Enough snapshots that the segment holding the PREPARE is deleted
+            for (int i = 0; i < 3; i++) {
+                ledger.credit("1111111111", Money.of("1"));
+                ledger.snapshot();
+            }
+            assertThat(LedgerJournal.segmentFile(directory, 1)).doesNotExist();
+            // Still in flight at every cut, so its note is kept
+            assertThat(committedGroups).contains(group);
+        }
+
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("63.00"));
+            ledger.snapshot();
+        }
+        // Settled before that cut, the note is no longer needed
+        assertThat(committedGroups).doesNotContain(group);
+    }
+
+    @Test
+    void testSnapshotDeletesCoveredJournalSegments() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.ZERO);
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 300; i++) {
+                    ledger.credit("1111111111", Money.of("1"));
+                }
+                ledger.snapshot();
+            }
+            ledger.credit("1111111111", Money.of("1"));
+        }
+
+        // Two snapshots are kept, so the journal keeps the segments after the older one
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(path -> path.getFileName().toString()).filter(name -> name.startsWith("journal-")))
+                    .containsExactlyInAnyOrder(LedgerJournal.segmentFile(directory, 1202).getFileName().toString(),
+                            LedgerJournal.segmentFile(directory, 1502).getFileName().toString());
+        }
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("1501.0000"));
+            assertThat(ledger.getRecoveredSequence()).isEqualTo(1_502);
+        }
+    }
+
+    @Test
+    void testTornTailIsDiscarded() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.ZERO);
+            for (int i = 0; i < 10; i++) {
+                ledger.credit("1111111111", Money.of("1"));
+            }
+        }
+
+        // Flip a byte inside the amount of the last record, its checksum no longer matches
+        try (RandomAccessFile file = new RandomAccessFile(LedgerJournal.segmentFile(directory, 1).toFile(), "rw")) {
+            long offset = 10L * LedgerJournal.RECORD_SIZE + 16;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xFF);
+        }
+
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.getRecoveredSequence()).isEqualTo(10);
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("9.0000"));
+
+            ledger.credit("1111111111", Money.of("5.00"));
+        }
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("14.0000"));
+        }
+    }
+
+    @Test
+    void testCorruptSnapshotFallsBackToPrevious() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.ZERO);
+            ledger.credit("1111111111", Money.of("1"));
+            ledger.snapshot();
+            ledger.credit("1111111111", Money.of("1"));
+            ledger.snapshot();
+            ledger.credit("1111111111", Money.of("1"));
+        }
+
+        Path newest;
+        try (Stream<Path> files = Files.list(directory)) {
+            newest = files.filter(path -> path.getFileName().toString().startsWith("snapshot-"))
+                    .max(Path::compareTo).orElseThrow();
+        }
+        Files.write(newest, new byte[]{1, 2, 3});
+
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111")).contains(Money.of("3.0000"));
+        }
+    }
+
+    @Test
+    void testConcurrentWritersConserveMoneyAcrossRestart() throws Exception {
+        int accounts = 16;
+        int threads = 8;
+        int transfersPerThread = 2_000;
+
+        try (BalanceLedger ledger = open()) {
+            for (int i = 0; i < accounts; i++) {
+                ledger.open(String.format("%010d", i), Money.of("1000.00"));
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < transfersPerThread; i++) {
+                        String from = String.format("%010d", ThreadLocalRandom.current().nextInt(accounts));
+                        String to = String.format("%010d", ThreadLocalRandom.current().nextInt(accounts));
+                        Money amount = Money.ofUnits(ThreadLocalRandom.current().nextInt(1, 5000) * 100L);
+                        if (ledger.debit(from, amount).getOutcome() == TransactionResult.Outcome.COMPLETED) {
+                            ledger.credit(to, amount);
+                        }
+                        if (i == transfersPerThread / 2) {
+                            ledger.snapshot();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        try (BalanceLedger ledger = open()) {
+            Money total = Money.ZERO;
+            for (int i = 0; i < accounts; i++) {
+                Money balance = ledger.balanceOf(String.format("%010d", i)).orElseThrow();
+                assertThat(balance.isNegative()).isFalse();
+                total = total.plus(balance);
+            }
+            assertThat(total).isEqualTo(Money.of("16000.00"));
+        }
+    }
+
+    @Test
+    void testOpposingTransfersConserveMoneyAcrossRestart() throws Exception {
+        try (BalanceLedger ledger = open()) {
+            ledger.open("1111111111", Money.of("500.00"));
+            ledger.open("2222222222", Money.of("500.00"));
+            assertThat(ledger.transfer("1111111111", "2222222222", Money.of("600.00"), true).getOutcome())
+                    .isEqualTo(TransactionResult.Outcome.INSUFFICIENT_FUNDS);
+            assertThat(ledger.transfer("1111111111", "3333333333", Money.of("1.00"), true).getOutcome())
+                    .isEqualTo(TransactionResult.Outcome.ACCOUNT_NOT_FOUND);
+
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            List<Future<?>> futures = new ArrayList<>();
+            for (String[] pair : new String[][]{{"1111111111", "2222222222"}, {"2222222222", "1111111111"}}) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        ledger.transfer(pair[0], pair[1], Money.of("0.37"), false);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        try (BalanceLedger ledger = open()) {
+            assertThat(ledger.balanceOf("1111111111").orElseThrow()
+                    .plus(ledger.balanceOf("2222222222").orElseThrow())).isEqualTo(Money.of("1000.00"));
+        }
+    }
+
+    private BalanceLedger open() throws Exception {
+        return BalanceLedger.open(directory, RECORDS_PER_CHUNK, 2, true, commitLog);
+    }
+}
@@ -0,0 +1,217 @@
+package com.banking.account.ledger;
+
+import com.banking.account.entity.Account;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.LedgerCommitRepository;
+import com.banking.account.repository.TransactionRepository;
+import com.banking.account.service.AccountTransactionService;
+import com.banking.account.service.FailedTransactionWriter;
+import com.banking.account.service.InterestAccrualService;
+import com.banking.account.service.TransactionResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Closed after the class so the ledger shuts down before its temp directory is removed
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+public class LedgerModeTest {
+
+    @TempDir
+    static Path ledgerDirectory;
+
+    @DynamicPropertySource
+    static void ledgerProperties(DynamicPropertyRegistry registry) {
+        registry.add("banking.ledger.enabled", () -> "true");
+        registry.add("banking.ledger.directory", ledgerDirectory::toString);
+        // Separate database so the row left behind does not leak into other full-context tests
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:ledgerdb;DB_CLOSE_DELAY=-1");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BalanceLedger balanceLedger;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private FailedTransactionWriter failedTransactionWriter;
+
+    @Autowired
+    private AccountTransactionService accountTransactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private InterestAccrualService interestAccrualService;
+
+    @Autowired
+    private LedgerCommitRepository ledgerCommitRepository;
+
+    @Test
+    void testBalancesLiveInLedgerNotAccountsTable() throws Exception {
+        mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"accountNumber":"7770000001","accountHolderName":"Ledger Test",
+                                 "email":"ledger@test.com","balance":100.00,"accountType":"CHECKING"}
+                                """))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/accounts/7770000001/deposit").param("amount", "50.00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.balance").value(150.00));
+        mockMvc.perform(post("/api/accounts/7770000001/withdraw").param("amount", "500.00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Insufficient funds"));
+        mockMvc.perform(post("/api/accounts/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"transactions":[
+                                  {"accountNumber":"7770000001","transactionType":"WITHDRAWAL","amount":30.00},
+                                  {"accountNumber":"7770000001","transactionType":"DEPOSIT","amount":5.00}
+                                ]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].balanceAfter").value(120.00))
+                .andExpect(jsonPath("$.data[1].balanceAfter").value(125.00));
+
+        mockMvc.perform(get("/api/accounts/number/7770000001"))
+                .andExpect(jsonPath("$.data.balance").value(125.00));
+        // The rejected withdrawal's row is written behind the response
+        failedTransactionWriter.flush();
+        mockMvc.perform(get("/api/transactions/account/7770000001/summary"))
+                .andExpect(jsonPath("$.data.completedTransactions").value(3))
+                .andExpect(jsonPath("$.data.failedTransactions").value(1));
+
+        assertThat(balanceLedger.balanceOf("7770000001")).contains(Money.of("125.0000"));
+        // Each committed transaction left the note recovery would settle its group by
+        assertThat(ledgerCommitRepository.count()).isGreaterThanOrEqualTo(2);
+        // The row keeps its opening balance, no UPDATE on the write path
+        assertThat(accountRepository.findByAccountNumber("7770000001").orElseThrow().getBalance())
+                .isEqualTo(Money.of("100.00"));
+    }
+
+    @Test
+    void testRolledBackChangesNeverReachLedger() throws Exception {
+        for (String accountNumber : new String[]{"7770000002", "7770000003"}) {
+            mockMvc.perform(post("/api/accounts")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"accountNumber\":\"" + accountNumber + "\",\"accountHolderName\":\"Ledger Test\","
+                                    + "\"email\":\"" + accountNumber + "@test.com\",\"balance\":100.00,"
+                                    + "\"accountType\":\"CHECKING\"}"))
+                    .andExpect(status().isCreated());
+        }
+        long sequence = balanceLedger.getLastSequence();
+
+        // The caller's transaction rolls back after the rows were written
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(accountTransactionService.withdraw("7770000002", Money.of("80.00"), "Test", "Failed")
+                    .getOutcome()).isEqualTo(TransactionResult.Outcome.COMPLETED);
+            accountTransactionService.deposit("7770000003", Money.of("5.00"), "Test");
+            accountTransactionService.transfer("7770000002", "7770000003", Money.of("20.00"), "Test");
+            // Held until the transaction ends, so it cannot be spent twice
+            assertThat(accountTransactionService.withdraw("7770000002", Money.of("10.00"), "Test", "Failed")
+                    .getOutcome()).isEqualTo(TransactionResult.Outcome.INSUFFICIENT_FUNDS);
+            status.setRollbackOnly();
+        });
+
+        assertThat(balanceLedger.getLastSequence()).isEqualTo(sequence);
+        assertThat(balanceLedger.balanceOf("7770000002")).contains(Money.of("100.00"));
+        assertThat(balanceLedger.balanceOf("7770000003")).contains(Money.of("100.00"));
+        assertThat(transactionRepository.findByAccountNumberOrderByTimestampDesc("7770000003")).isEmpty();
+
+        // The holds were released
+        assertThat(accountTransactionService.withdraw("7770000002", Money.of("100.00"), "Test", "Failed")
+                .getOutcome()).isEqualTo(TransactionResult.Outcome.COMPLETED);
+        assertThat(balanceLedger.balanceOf("7770000002")).contains(Money.ZERO);
+    }
+
+    @Test
+    void testInterestCreditedToLedgerOnceAfterCommit() throws Exception {
+        mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"accountNumber":"7770000004","accountHolderName":"Ledger Saver",
+                                 "email":"saver@test.com","balance":1200.00,"accountType":"SAVINGS"}
+                                """))
+                .andExpect(status().isCreated());
+
+        // 2% a year on 1200.00
+        YearMonth month = YearMonth.now();
+        interestAccrualService.accrue(month);
+        assertThat(balanceLedger.balanceOf("7770000004")).contains(Money.of("1202.00"));
+        assertThat(transactionRepository.findByReference(
+                        "INT" + month.format(DateTimeFormatter.ofPattern("yyyyMM")) + "7770000004").orElseThrow().getBalanceAfter())
+                .isEqualTo(Money.of("1202.00"));
+
+        interestAccrualService.accrue(month);
+        assertThat(balanceLedger.balanceOf("7770000004")).contains(Money.of("1202.00"));
+    }
+
+    // An earlier attempt's chunk committed its row and commit note, but its SETTLE never reached the
+    // journal. The resumed chunk skips the account for its row and settles the credit in the ledger.
+    @Test
+    void testResumedInterestChunkSettlesCommittedCredit() throws Exception {
+        mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"accountNumber":"7770000005","accountHolderName":"Ledger Saver",
+                                 "email":"saver5@test.com","balance":1200.00,"accountType":"SAVINGS"}
+                                """))
+                .andExpect(status().isCreated());
+
+        YearMonth month = YearMonth.now().plusMonths(1);
+        String reference = "INT" + month.format(DateTimeFormatter.ofPattern("yyyyMM")) + "7770000005";
+        Account account = accountRepository.findByAccountNumber("7770000005").orElseThrow();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            BalanceLedger.Pending credit = balanceLedger.prepareCredit("7770000005", Money.of("2.00"));
+            ledgerCommitRepository.insertCommit(balanceLedger.journalPrepared(List.of(credit)), LocalDateTime.now());
+            Transaction transaction = new Transaction();
+            transaction.setAccountId(account.getId());
+            transaction.setAccountNumber("7770000005");
+            transaction.setTransactionType("INTEREST");
+            transaction.setAmount(Money.of("2.00"));
+            transaction.setBalanceAfter(Money.of("1202.00"));
+            transaction.setStatus("COMPLETED");
+            transaction.setReference(reference);
+            transactionRepository.save(transaction);
+        });
+        assertThat(balanceLedger.balanceOf("7770000005")).contains(Money.of("1200.00"));
+
+        interestAccrualService.accrue(month);
+        assertThat(balanceLedger.balanceOf("7770000005")).contains(Money.of("1202.00"));
+        assertThat(transactionRepository.findByReference(reference).orElseThrow().getAmount())
+                .isEqualTo(Money.of("2.00"));
+    }
+}
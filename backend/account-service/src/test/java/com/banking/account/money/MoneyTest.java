@@ -0,0 +1,93 @@
+package com.banking.account.money;
+
+import com.banking.account.dto.TransactionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new MoneyModule());
+
+    @Test
+    void testParseMatchesBigDecimal() {
+        for (String text : new String[]{"0", "1", "-1", "0.5", "12.34", "1000.0001", "-0.0001", "99999999.99", "+7.10"}) {
+            assertThat(Money.parse(text).toBigDecimal()).isEqualByComparingTo(new BigDecimal(text));
+            assertThat(Money.of(new BigDecimal(text))).isEqualTo(Money.parse(text));
+        }
+        assertThat(Money.parse("1.230000").getUnits()).isEqualTo(12_300);
+
+        assertThatThrownBy(() -> Money.parse("1.00001")).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.parse("1.2.3")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("-")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("1e3")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("9999999999999999")).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void testArithmeticAndFormatting() {
+        Money balance = Money.of("100.00");
+        assertThat(balance.plus(Money.of("0.25")).minus(Money.of("50"))).isEqualTo(Money.of("50.25"));
+        assertThat(Money.of("10").isLessThan(Money.of("10.0001"))).isTrue();
+        assertThatThrownBy(() -> Money.ofUnits(Long.MAX_VALUE).plus(Money.ofUnits(1)))
+                .isInstanceOf(ArithmeticException.class);
+
+        assertThat(Money.of("150").toString()).isEqualTo("150.00");
+        assertThat(Money.of("1.0001").toString()).isEqualTo("1.0001");
+        assertThat(Money.of("-0.5").toString()).isEqualTo("-0.50");
+        assertThat(Money.of("0.005").toString()).isEqualTo("0.005");
+
+        for (String text : new String[]{"200", "1234.5", "0.005", "0.0049", "-2.345", "12.9999"}) {
+            assertThat(Money.of(text).toDisplayString()).isEqualTo(String.format("%.2f", new BigDecimal(text)));
+        }
+    }
+
+    @Test
+    void testJsonKeepsNumberShape() throws Exception {
+        TransactionRequest request = objectMapper.readValue(
+                "{\"accountNumber\":\"1234567890\",\"transactionType\":\"DEPOSIT\",\"amount\":250.5}",
+                TransactionRequest.class);
+        assertThat(request.getAmount()).isEqualTo(Money.of("250.50"));
+        assertThat(objectMapper.readValue("\"12.75\"", Money.class)).isEqualTo(Money.of("12.75"));
+        assertThat(objectMapper.readValue("1.5E2", Money.class)).isEqualTo(Money.of("150"));
+
+        assertThat(objectMapper.writeValueAsString(request)).contains("\"amount\":250.50");
+
+        assertThatThrownBy(() -> objectMapper.readValue("0.00001", Money.class))
+                .isInstanceOf(InvalidFormatException.class);
+    }
+
+    @Test
+    void testCborWritesDecimal() throws Exception {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory()).registerModule(new MoneyModule());
+        byte[] encoded = cbor.writeValueAsBytes(Money.of("250.50"));
+
+        // Tag 4, decimal fraction [exponent, mantissa], not a text number
+        assertThat(encoded[0]).isEqualTo((byte) 0xC4);
+        assertThat(cbor.readValue(encoded, Money.class)).isEqualTo(Money.of("250.50"));
+        assertThat(cbor.readTree(encoded).isTextual()).isFalse();
+    }
+
+    @Test
+    void testDecimalMinAppliesToMoney() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        TransactionRequest request = new TransactionRequest();
+        request.setAccountNumber("1234567890");
+        request.setTransactionType("DEPOSIT");
+
+        request.setAmount(Money.of("0.01"));
+        assertThat(validator.validate(request)).isEmpty();
+
+        request.setAmount(Money.ZERO);
+        assertThat(validator.validate(request)).extracting(violation -> violation.getMessage())
+                .containsExactly("Amount must be greater than 0");
+    }
+}
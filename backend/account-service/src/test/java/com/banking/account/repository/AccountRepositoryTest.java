@@ -1,12 +1,14 @@
 package com.banking.account.repository;
 
 import com.banking.account.entity.Account;
+import com.banking.account.money.Money;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,7 +29,7 @@ public class AccountRepositoryTest {
         account.setAccountNumber("9999999999");
         account.setAccountHolderName("Test User");
         account.setEmail("test@test.com");
-        account.setBalance(new BigDecimal("5000.00"));
+        account.setBalance(Money.of("5000.00"));
         account.setAccountType("SAVINGS");
         account.setStatus("ACTIVE");
 
@@ -47,7 +49,7 @@ public class AccountRepositoryTest {
         account.setAccountNumber("8888888888");
         account.setAccountHolderName("Find Test");
         account.setEmail("find@test.com");
-        account.setBalance(new BigDecimal("3000.00"));
+        account.setBalance(Money.of("3000.00"));
         account.setAccountType("CHECKING");
         account.setStatus("ACTIVE");
 
@@ -68,7 +70,7 @@ public class AccountRepositoryTest {
         account.setAccountNumber("7777777777");
         account.setAccountHolderName("Exists Test");
         account.setEmail("exists@test.com");
-        account.setBalance(new BigDecimal("1000.00"));
+        account.setBalance(Money.of("1000.00"));
         account.setAccountType("SAVINGS");
         account.setStatus("ACTIVE");
 
@@ -82,4 +84,46 @@ public class AccountRepositoryTest {
         assertThat(exists).isTrue();
         assertThat(notExists).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreditBalance() {
+        Account account = new Account();
+        account.setAccountNumber("6666666666");
+        account.setAccountHolderName("Credit Test");
+        account.setEmail("credit@test.com");
+        account.setBalance(Money.of("100.00"));
+        account.setAccountType("CHECKING");
+        account.setStatus("ACTIVE");
+
+        entityManager.persistAndFlush(account);
+
+        int updated = accountRepository.creditBalance("6666666666", new BigDecimal("50.00"), LocalDateTime.now());
+        int missing = accountRepository.creditBalance("0000000000", new BigDecimal("50.00"), LocalDateTime.now());
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(missing).isEqualTo(0);
+        assertThat(accountRepository.findByAccountNumber("6666666666").get().getBalance())
+                .isEqualTo(Money.of("150.00"));
+    }
+
+    @Test
+    public void testDebitBalanceGuardsInsufficientFunds() {
+        Account account = new Account();
+        account.setAccountNumber("5555555555");
+        account.setAccountHolderName("Debit Test");
+        account.setEmail("debit@test.com");
+        account.setBalance(Money.of("100.00"));
+        account.setAccountType("SAVINGS");
+        account.setStatus("ACTIVE");
+
+        entityManager.persistAndFlush(account);
+
+        int rejected = accountRepository.debitBalance("5555555555", new BigDecimal("150.00"), LocalDateTime.now());
+        int accepted = accountRepository.debitBalance("5555555555", new BigDecimal("100.00"), LocalDateTime.now());
+
+        assertThat(rejected).isEqualTo(0);
+        assertThat(accepted).isEqualTo(1);
+        assertThat(accountRepository.findByAccountNumber("5555555555").get().getBalance())
+                .isEqualTo(Money.of("0.00"));
+    }
+}
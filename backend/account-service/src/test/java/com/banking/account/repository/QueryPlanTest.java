@@ -0,0 +1,363 @@
+package com.banking.account.repository;
+
+import com.banking.account.dto.AccountDTO;
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.BalanceShard;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.service.ReferenceGenerator;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs EXPLAIN on the SQL behind every declared repository query and fails on table scans.
+// Adding a query method without a case here fails testEveryDeclaredQueryIsCovered.
+@DataJpaTest
+@TestPropertySource(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.banking.account.repository.QueryPlanTest$RecordingInspector")
+public class QueryPlanTest {
+
+    // Queries that must read the whole table, and why
+    private static final Map<String, String> EXPECTED_SCANS = Map.of(
+            "AccountRepository.findByAccountHolderNameContainingIgnoreCase",
+            "LIKE '%name%' cannot use a B-tree index",
+            "AccountRepository.findAllDTOs",
+            "Lists every account",
+            "AccountRepository.searchDTOs",
+            "Search without a name pages through accounts, names go to AccountSearchIndex",
+            "AccountRepository.streamAllDTOs",
+            "Loads the search index at startup",
+            "AccountSummaryRepository.deleteAllSummaries",
+            "Rebuild clears every summary",
+            "AccountSummaryRepository.insertSummariesFromTransactions",
+            "Rebuild aggregates the whole transactions table",
+            "BalanceShardRepository.findShardTotals",
+            "Consolidation visits every hot account, a handful of rows each",
+            "BalanceShardRepository.clearPendingDeposits",
+            "Rebuild clears every pending deposit",
+            "AccountSummaryRepository.lockAllAccounts",
+            "Rebuild locks every account against balance writers",
+            "BalanceShardRepository.lockAllShards",
+            "Rebuild locks every shard against hot account deposits"
+    );
+
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountSummaryRepository accountSummaryRepository;
+
+    @Autowired
+    private BalanceShardRepository balanceShardRepository;
+
+    @Autowired
+    private LedgerCommitRepository ledgerCommitRepository;
+
+    private final ReferenceGenerator referenceGenerator = new ReferenceGenerator(0);
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        // Enough rows that the optimizer has a real choice between an index and a scan
+        for (int i = 0; i < 50; i++) {
+            Account account = new Account();
+            account.setAccountNumber(String.format("%010d", i));
+            account.setAccountHolderName("Plan Holder " + i);
+            account.setEmail("plan" + i + "@test.com");
+            account.setBalance(Money.of("100.00"));
+            account.setAccountType(i % 2 == 0 ? "SAVINGS" : "CHECKING");
+            account.setStatus(i % 10 == 0 ? "FROZEN" : "ACTIVE");
+            entityManager.persist(account);
+
+            for (int j = 0; j < 20; j++) {
+                Transaction transaction = new Transaction();
+                transaction.setAccountId(account.getAccountNumber());
+                transaction.setAccountNumber(account.getAccountNumber());
+                transaction.setTransactionType(j % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL");
+                transaction.setAmount(Money.of("1.00"));
+                transaction.setBalanceAfter(Money.of("100.00"));
+                transaction.setStatus(j % 7 == 0 ? "FAILED" : "COMPLETED");
+                transaction.setReference(referenceGenerator.next());
+                entityManager.persist(transaction);
+            }
+
+            for (int shard = 0; shard < 4; shard++) {
+                entityManager.persist(new BalanceShard(account.getAccountNumber(), shard,
+                        Money.of("1.00"), Money.of("1.00"), 1, now));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Map<String, Runnable> queries() {
+        String accountNumber = "0000000007";
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+
+        queries.put("AccountRepository.findByAccountNumber",
+                () -> accountRepository.findByAccountNumber(accountNumber));
+        queries.put("AccountRepository.findByAccountHolderNameContainingIgnoreCase",
+                () -> accountRepository.findByAccountHolderNameContainingIgnoreCase("holder 7"));
+        queries.put("AccountRepository.findAllDTOs",
+                () -> accountRepository.findAllDTOs());
+        queries.put("AccountRepository.findDTOsByAccountNumberIn",
+                () -> accountRepository.findDTOsByAccountNumberIn(List.of(accountNumber, "0000000008")));
+        queries.put("AccountRepository.searchDTOs",
+                () -> accountRepository.searchDTOs("ACTIVE", null, PageRequest.of(1, 20, Sort.by("accountNumber"))));
+        queries.put("AccountRepository.streamAllDTOs", () -> {
+            try (Stream<AccountDTO> rows = accountRepository.streamAllDTOs()) {
+                rows.findFirst();
+            }
+        });
+        queries.put("AccountRepository.streamAccountNumbers", () -> {
+            try (Stream<String> rows = accountRepository.streamAccountNumbers()) {
+                rows.findFirst();
+            }
+        });
+        queries.put("AccountRepository.streamStatementAccounts", () -> {
+            try (Stream<AccountDTO> rows = accountRepository.streamStatementAccounts(
+                    accountNumber, "0000000009", now)) {
+                rows.findFirst();
+            }
+        });
+        queries.put("AccountRepository.findByStatus",
+                () -> accountRepository.findByStatus("FROZEN"));
+        queries.put("AccountRepository.findVersionById",
+                () -> accountRepository.findVersionById("00000000-0000-0000-0000-000000000007"));
+        queries.put("AccountRepository.findVersionByAccountNumber",
+                () -> accountRepository.findVersionByAccountNumber(accountNumber));
+        queries.put("AccountRepository.existsByAccountNumber",
+                () -> accountRepository.existsByAccountNumber(accountNumber));
+        queries.put("AccountRepository.existsByEmail",
+                () -> accountRepository.existsByEmail("plan7@test.com"));
+        queries.put("AccountRepository.findByAccountNumberForUpdate",
+                () -> accountRepository.findByAccountNumberForUpdate(accountNumber));
+        queries.put("AccountRepository.findSavingsAccountNumbersAfter",
+                () -> accountRepository.findSavingsAccountNumbersAfter(accountNumber, now, Limit.of(20)));
+        queries.put("AccountRepository.countSavingsAccountsAfter",
+                () -> accountRepository.countSavingsAccountsAfter(accountNumber, now));
+        queries.put("AccountRepository.findByAccountNumberInForUpdate",
+                () -> accountRepository.findByAccountNumberInForUpdate(List.of(accountNumber, "0000000008")));
+        queries.put("AccountRepository.creditBalance",
+                () -> accountRepository.creditBalance(accountNumber, BigDecimal.ONE, now));
+        queries.put("AccountRepository.debitBalance",
+                () -> accountRepository.debitBalance(accountNumber, BigDecimal.ONE, now));
+
+        queries.put("TransactionRepository.findByAccountNumberOrderByTimestampDesc",
+                () -> transactionRepository.findByAccountNumberOrderByTimestampDesc(accountNumber));
+        queries.put("TransactionRepository.findByAccountNumberAndTransactionTypeOrderByTimestampDesc",
+                () -> transactionRepository.findByAccountNumberAndTransactionTypeOrderByTimestampDesc(
+                        accountNumber, "DEPOSIT"));
+        queries.put("TransactionRepository.findTransactionsByDateRange",
+                () -> transactionRepository.findTransactionsByDateRange(
+                        accountNumber, now.minusDays(30), now));
+        queries.put("TransactionRepository.findByReference",
+                () -> transactionRepository.findByReference("TXN0000000000000000001"));
+        queries.put("TransactionRepository.getTotalByType",
+                () -> transactionRepository.getTotalByType(accountNumber, "DEPOSIT"));
+        queries.put("TransactionRepository.findByAccountNumberOrderByTimestampDescIdDesc",
+                () -> transactionRepository.findByAccountNumberOrderByTimestampDescIdDesc(
+                        accountNumber, Limit.of(20)));
+        queries.put("TransactionRepository.findPageAfter",
+                () -> transactionRepository.findPageAfter(accountNumber, now, "id", Limit.of(20)));
+        queries.put("TransactionRepository.findByAccountNumberAndTransactionTypeOrderByTimestampDescIdDesc",
+                () -> transactionRepository.findByAccountNumberAndTransactionTypeOrderByTimestampDescIdDesc(
+                        accountNumber, "DEPOSIT", Limit.of(20)));
+        queries.put("TransactionRepository.findPageByTypeAfter",
+                () -> transactionRepository.findPageByTypeAfter(
+                        accountNumber, "DEPOSIT", now, "id", Limit.of(20)));
+        queries.put("TransactionRepository.findPageByDateRange",
+                () -> transactionRepository.findPageByDateRange(
+                        accountNumber, now.minusDays(30), now, Limit.of(20)));
+        queries.put("TransactionRepository.findPageByDateRangeAfter",
+                () -> transactionRepository.findPageByDateRangeAfter(
+                        accountNumber, now.minusDays(30), now, now, "id", Limit.of(20)));
+        queries.put("TransactionRepository.streamByAccountNumber", () -> {
+            try (Stream<Transaction> rows = transactionRepository.streamByAccountNumber(accountNumber)) {
+                rows.findFirst();
+            }
+        });
+        queries.put("TransactionRepository.streamByDateRange", () -> {
+            try (Stream<Transaction> rows = transactionRepository.streamByDateRange(
+                    accountNumber, now.minusDays(30), now)) {
+                rows.findFirst();
+            }
+        });
+        queries.put("TransactionRepository.streamStatementLines", () -> {
+            try (Stream<TransactionDTO> rows = transactionRepository.streamStatementLines(
+                    accountNumber, "0000000009", now.minusDays(30), now)) {
+                rows.findFirst();
+            }
+        });
+        queries.put("TransactionRepository.sumStatementTotals",
+                () -> transactionRepository.sumStatementTotals(
+                        accountNumber, "0000000009", now.minusDays(30), now));
+        queries.put("TransactionRepository.findDTOsByReferenceIn",
+                () -> transactionRepository.findDTOsByReferenceIn(List.of("INT2024060000000007")));
+
+        queries.put("AccountSummaryRepository.applyDelta",
+                () -> accountSummaryRepository.applyDelta(accountNumber, BigDecimal.ONE, BigDecimal.ZERO, 1, 0, now));
+        queries.put("AccountSummaryRepository.insertSummary",
+                () -> accountSummaryRepository.insertSummary(accountNumber, BigDecimal.ONE, BigDecimal.ZERO, 1, 0, now));
+        queries.put("AccountSummaryRepository.lockAccount",
+                () -> accountSummaryRepository.lockAccount(accountNumber));
+        queries.put("AccountSummaryRepository.lockAllAccounts",
+                () -> accountSummaryRepository.lockAllAccounts());
+        queries.put("AccountSummaryRepository.findByAccountNumberInForUpdate",
+                () -> accountSummaryRepository.findByAccountNumberInForUpdate(List.of(accountNumber, "0000000008")));
+        queries.put("AccountSummaryRepository.deleteAllSummaries",
+                () -> accountSummaryRepository.deleteAllSummaries());
+        queries.put("AccountSummaryRepository.insertSummariesFromTransactions",
+                () -> accountSummaryRepository.insertSummariesFromTransactions(now));
+
+        queries.put("BalanceShardRepository.creditShard",
+                () -> balanceShardRepository.creditShard(accountNumber, 1, BigDecimal.ONE, now));
+        queries.put("BalanceShardRepository.debitShard",
+                () -> balanceShardRepository.debitShard(accountNumber, 1, BigDecimal.ONE, now));
+        queries.put("BalanceShardRepository.findTotalBalance",
+                () -> balanceShardRepository.findTotalBalance(accountNumber));
+        queries.put("BalanceShardRepository.findShardTotals",
+                () -> balanceShardRepository.findShardTotals());
+        queries.put("BalanceShardRepository.findShardTotalsByAccountNumberIn",
+                () -> balanceShardRepository.findShardTotalsByAccountNumberIn(List.of(accountNumber)));
+        queries.put("BalanceShardRepository.findByAccountNumberForUpdate",
+                () -> balanceShardRepository.findByAccountNumberForUpdate(accountNumber));
+        queries.put("BalanceShardRepository.lockAllShards",
+                () -> balanceShardRepository.lockAllShards());
+        queries.put("BalanceShardRepository.resetShards",
+                () -> balanceShardRepository.resetShards(accountNumber, now));
+        queries.put("BalanceShardRepository.deleteShards",
+                () -> balanceShardRepository.deleteShards(accountNumber));
+        queries.put("BalanceShardRepository.clearPendingDeposits",
+                () -> balanceShardRepository.clearPendingDeposits());
+
+        queries.put("LedgerCommitRepository.insertCommit",
+                () -> ledgerCommitRepository.insertCommit(7, now));
+        queries.put("LedgerCommitRepository.findCommittedGroups",
+                () -> ledgerCommitRepository.findCommittedGroups(List.of(7L, 8L)));
+        queries.put("LedgerCommitRepository.deleteBefore",
+                () -> ledgerCommitRepository.deleteBefore(7));
+
+        return queries;
+    }
+
+    @Test
+    void testEveryDeclaredQueryIsCovered() {
+        Set<String> declared = new TreeSet<>();
+        for (Class<?> repository : List.of(
+                AccountRepository.class, TransactionRepository.class, AccountSummaryRepository.class,
+                BalanceShardRepository.class, LedgerCommitRepository.class)) {
+            Arrays.stream(repository.getDeclaredMethods())
+                    .filter(method -> !method.isDefault() && !method.isSynthetic())
+                    .map(Method::getName)
+                    .forEach(name -> declared.add(repository.getSimpleName() + "." + name));
+        }
+
+        assertThat(queries().keySet()).containsExactlyInAnyOrderElementsOf(declared);
+    }
+
+    @Test
+    void testNoQueryFallsBackToTableScan() {
+        List<String> violations = new ArrayList<>();
+
+        for (Map.Entry<String, Runnable> query : queries().entrySet()) {
+            RecordingInspector.STATEMENTS.clear();
+            query.getValue().run();
+            entityManager.flush();
+
+            List<String> statements = new ArrayList<>(RecordingInspector.STATEMENTS);
+            assertThat(statements).as("SQL issued by %s", query.getKey()).isNotEmpty();
+
+            for (String sql : statements) {
+                String plan = explain(sql);
+                boolean scans = plan.contains(".tableScan");
+                if (scans && !EXPECTED_SCANS.containsKey(query.getKey())) {
+                    violations.add(query.getKey() + " -> " + plan.replaceAll("\\s+", " "));
+                }
+            }
+        }
+
+        assertThat(violations).as("Queries falling back to a table scan").isEmpty();
+    }
+
+    // Type-filtered history pages read idx_transactions_account_type_timestamp in order and stop at the
+    // limit. A sort step would read every transaction of that type before returning the first page.
+    @Test
+    void testTypeFilteredPagesReadIndexInOrder() {
+        for (String key : List.of("TransactionRepository.findPageByTypeAfter",
+                "TransactionRepository.findByAccountNumberAndTransactionTypeOrderByTimestampDescIdDesc")) {
+            RecordingInspector.STATEMENTS.clear();
+            queries().get(key).run();
+
+            assertThat(RecordingInspector.STATEMENTS).as("SQL issued by %s", key).hasSize(1);
+            String plan = explain(RecordingInspector.STATEMENTS.get(0));
+            assertThat(plan).as(key)
+                    .contains("IDX_TRANSACTIONS_ACCOUNT_TYPE_TIMESTAMP")
+                    .contains("/* index sorted */");
+        }
+    }
+
+    // Plans do not depend on parameter values here, so every parameter is bound as NULL
+    private String explain(String sql) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    List<String> lines = new ArrayList<>();
+                    while (rs.next()) {
+                        lines.add(rs.getString(1));
+                    }
+                    return lines.stream().collect(Collectors.joining("\n"));
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package com.banking.account.repository;
+
+import com.banking.account.dto.TransactionDTO;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.service.ReferenceGenerator;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+public class TransactionRepositoryTest {
+
+    private final ReferenceGenerator referenceGenerator = new ReferenceGenerator(0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    public void testKeysetPagesCoverHistoryWithoutGapsOrDuplicates() {
+        // Arrange - several rows share a timestamp so the id tie-break matters
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < 7; i++) {
+            persistTransaction("1234567890", i % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL", base.plusMinutes(i / 3));
+        }
+        persistTransaction("0987654321", "DEPOSIT", base);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<TransactionDTO> seen = new ArrayList<>();
+        List<TransactionDTO> page = transactionRepository
+                .findByAccountNumberOrderByTimestampDescIdDesc("1234567890", Limit.of(3));
+        while (!page.isEmpty()) {
+            seen.addAll(page);
+            TransactionDTO last = page.get(page.size() - 1);
+            page = transactionRepository.findPageAfter(
+                    "1234567890", last.getTimestamp(), last.getId(), Limit.of(3));
+        }
+
+        // Assert
+        assertThat(seen).hasSize(7);
+        assertThat(seen).extracting(TransactionDTO::getId).doesNotHaveDuplicates();
+        assertThat(seen).allSatisfy(row -> assertThat(row.getAmount()).isEqualTo(Money.of("10.00")));
+        // Projections, nothing was loaded into the persistence context
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+        assertThat(seen).isSortedAccordingTo((a, b) -> {
+            int byTime = b.getTimestamp().compareTo(a.getTimestamp());
+            return byTime != 0 ? byTime : b.getId().compareTo(a.getId());
+        });
+    }
+
+    @Test
+    public void testTypeAndDateRangePages() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < 6; i++) {
+            persistTransaction("1234567890", i % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL", base.plusDays(i));
+        }
+        entityManager.flush();
+
+        List<TransactionDTO> deposits = transactionRepository
+                .findByAccountNumberAndTransactionTypeOrderByTimestampDescIdDesc("1234567890", "DEPOSIT", Limit.of(2));
+        TransactionDTO last = deposits.get(1);
+        List<TransactionDTO> moreDeposits = transactionRepository.findPageByTypeAfter(
+                "1234567890", "DEPOSIT", last.getTimestamp(), last.getId(), Limit.of(2));
+
+        List<TransactionDTO> inRange = transactionRepository.findPageByDateRange(
+                "1234567890", base.plusDays(1), base.plusDays(4), Limit.of(10));
+
+        assertThat(deposits).hasSize(2);
+        assertThat(moreDeposits).hasSize(1);
+        assertThat(moreDeposits.get(0).getTimestamp()).isEqualTo(base);
+        assertThat(inRange).hasSize(4);
+    }
+
+    private void persistTransaction(String accountNumber, String type, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountId("account-" + accountNumber);
+        transaction.setAccountNumber(accountNumber);
+        transaction.setTransactionType(type);
+        transaction.setAmount(Money.of("10.00"));
+        transaction.setBalanceAfter(Money.of("100.00"));
+        transaction.setStatus("COMPLETED");
+        transaction.setReference(referenceGenerator.next());
+        entityManager.persist(transaction);
+        // @PrePersist stamps the current time, override it to control ordering
+        transaction.setTimestamp(timestamp);
+    }
+}
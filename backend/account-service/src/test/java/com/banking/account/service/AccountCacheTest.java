@@ -0,0 +1,99 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Account;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class AccountCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+
+    private AccountRepository accountRepository;
+    private AccountCache accountCache;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        accountCache = new AccountCache(accountRepository, 100, Duration.ofMinutes(5), ticker);
+        for (int i = 0; i < 200; i++) {
+            Account account = account(i);
+            when(accountRepository.findById(account.getId())).thenReturn(Optional.of(account));
+            when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(account));
+        }
+    }
+
+    @Test
+    void testCachedValueIsDetachedCopy() {
+        Account cached = accountCache.findById("id-1").orElseThrow();
+        cached.setBalance(Money.ZERO);
+
+        // Mutating a returned copy must not leak into the source entity
+        assertThat(accountRepository.findById("id-1").orElseThrow().getBalance())
+                .isEqualTo(Money.of("100.00"));
+    }
+
+    @Test
+    void testMissingAccountIsNotCached() {
+        assertThat(accountCache.findByAccountNumber("unknown")).isEmpty();
+        assertThat(accountCache.findByAccountNumber("unknown")).isEmpty();
+
+        verify(accountRepository, times(2)).findByAccountNumber("unknown");
+        assertThat(accountCache.size()).isZero();
+    }
+
+    @Test
+    void testEvictRemovesBothKeys() {
+        Account account = accountCache.findByAccountNumber("0000000001").orElseThrow();
+        accountCache.findById("id-1");
+        accountCache.evict(account);
+
+        assertThat(accountCache.size()).isZero();
+        assertThat(accountCache.peekById("id-1")).isEmpty();
+        accountCache.findById("id-1");
+        verify(accountRepository, times(2)).findById("id-1");
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() {
+        accountCache.findById("id-1");
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        accountCache.findById("id-1");
+
+        verify(accountRepository, times(2)).findById("id-1");
+    }
+
+    @Test
+    void testSizeBoundEvictsAndCounts() {
+        for (int i = 0; i < 200; i++) {
+            accountCache.findByAccountNumber(String.format("%010d", i));
+        }
+        accountCache.cleanUp();
+
+        assertThat(accountCache.size()).isLessThanOrEqualTo(100);
+        assertThat(accountCache.stats().evictionCount()).isGreaterThanOrEqualTo(100);
+        assertThat(accountCache.stats().missCount()).isEqualTo(200);
+    }
+
+    private static Account account(int i) {
+        Account account = new Account();
+        account.setId("id-" + i);
+        account.setAccountNumber(String.format("%010d", i));
+        account.setAccountHolderName("Holder " + i);
+        account.setEmail("holder" + i + "@test.com");
+        account.setBalance(Money.of("100.00"));
+        account.setAccountType("SAVINGS");
+        account.setStatus("ACTIVE");
+        return account;
+    }
+}
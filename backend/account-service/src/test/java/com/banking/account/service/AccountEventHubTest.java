@@ -0,0 +1,180 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.money.MoneyModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountEventHubTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AccountEventHub hub;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        hub.close();
+    }
+
+    @Test
+    void testDeliversToAccountAndFirehoseSubscribers() throws Exception {
+        hub = hub(16, 10);
+        RecordingEmitter one = new RecordingEmitter();
+        RecordingEmitter two = new RecordingEmitter();
+        RecordingEmitter all = new RecordingEmitter();
+        assertThat(hub.subscribe("1111111111", one)).isTrue();
+        assertThat(hub.subscribe("2222222222", two)).isTrue();
+        assertThat(hub.subscribe(null, all)).isTrue();
+
+        hub.publish(List.of(transaction("1111111111", "COMPLETED", 0), transaction("3333333333", "FAILED", 1)));
+
+        // Each subscriber is drained on its own, so wait for both
+        await(() -> all.frames.size() == 3 && one.frames.size() == 2);
+        assertThat(one.frames.get(0)).contains("event:balance", "\"balance\":125.0", "\"reference\":\"ref-0\"");
+        assertThat(one.frames.get(1)).contains("event:transaction", "\"status\":\"COMPLETED\"");
+        // A rejection changes no balance
+        assertThat(all.frames.get(2)).contains("event:transaction", "\"accountNumber\":\"3333333333\"");
+        assertThat(two.frames).isEmpty();
+        assertThat(hub.subscriberCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testPublishesOnlyAfterCommit() throws Exception {
+        hub = hub(16, 10);
+        RecordingEmitter emitter = new RecordingEmitter();
+        hub.subscribe("1111111111", emitter);
+
+        TransactionSynchronizationManager.initSynchronization();
+        hub.publishAfterCommit(List.of(transaction("1111111111", "COMPLETED", 0)));
+        List<TransactionSynchronization> rolledBack = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        rolledBack.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        TransactionSynchronizationManager.initSynchronization();
+        hub.publishAfterCommit(List.of(transaction("1111111111", "COMPLETED", 1)));
+        Thread.sleep(50);
+        assertThat(emitter.frames).isEmpty();
+        List<TransactionSynchronization> committed = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        committed.forEach(TransactionSynchronization::afterCommit);
+
+        await(() -> emitter.frames.size() == 2);
+        assertThat(emitter.frames).allSatisfy(frame -> assertThat(frame).contains("ref-1"));
+    }
+
+    @Test
+    void testEvictsSlowSubscriber() throws Exception {
+        hub = hub(4, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter stuck = new RecordingEmitter(release);
+        RecordingEmitter healthy = new RecordingEmitter();
+        hub.subscribe("1111111111", stuck);
+        hub.subscribe("1111111111", healthy);
+
+        // The stuck subscriber holds one frame in send and can queue four more. The healthy one
+        // keeps up, it is given time to drain before the next event.
+        for (int i = 0; i < 10; i++) {
+            hub.publish(List.of(transaction("1111111111", "FAILED", i)));
+            int delivered = i + 1;
+            await(() -> healthy.frames.size() == delivered && stuck.sending);
+        }
+
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("banking.events.evicted").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        await(() -> stuck.completed);
+        assertThat(stuck.frames).hasSizeLessThan(10);
+    }
+
+    @Test
+    void testSubscriberLimit() {
+        hub = hub(16, 1);
+        assertThat(hub.subscribe("1111111111", new RecordingEmitter())).isTrue();
+        assertThat(hub.subscribe(null, new RecordingEmitter())).isFalse();
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+    }
+
+    private AccountEventHub hub(int queueCapacity, int maxSubscribers) {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules().registerModule(new MoneyModule());
+        // Two dispatchers, so a stuck subscriber leaves one for the others
+        return new AccountEventHub(objectMapper, meterRegistry, queueCapacity, 2,
+                Duration.ofMinutes(1), Duration.ofHours(1), maxSubscribers);
+    }
+
+    private static Transaction transaction(String accountNumber, String status, int sequence) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountNumber(accountNumber);
+        transaction.setTransactionType("DEPOSIT");
+        transaction.setAmount(Money.of("25.00"));
+        transaction.setBalanceAfter(Money.of("125.00"));
+        transaction.setStatus(status);
+        transaction.setReference("ref-" + sequence);
+        transaction.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        return transaction;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    // Captures frames as written to the stream; optionally blocks in send like a client that stopped reading
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private volatile boolean sending;
+        private volatile boolean completed;
+
+        RecordingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            sending = true;
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            StringBuilder frame = new StringBuilder();
+            items.forEach(item -> frame.append(item.getData()));
+            frames.add(frame.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.banking.account.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountSearchIndexTest {
+
+    private static final String[] NAMES = {"John Johnson", "Mary Wilson", "Quentin Moore", "Maria Anderson",
+            "Zbigniew Lee", "Linda Thompson", "Oscar Martinez", "Anna Smith"};
+
+    private AccountSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AccountSearchIndex();
+        index.add("0000000003", "Anna Nanana", "ACTIVE", "SAVINGS");
+        index.add("0000000001", "John Smithson", "ACTIVE", "CHECKING");
+        index.add("0000000002", "Jane Smith", "FROZEN", "SAVINGS");
+        index.add("0000000004", "Abcxbcd Holder", "ACTIVE", "CHECKING");
+    }
+
+    @Test
+    void testSubstringIgnoresCaseAndFilters() {
+        assertThat(search("SMITH", null, null).getAccountNumbers()).containsExactly("0000000001", "0000000002");
+        assertThat(search("mithso", null, null).getAccountNumbers()).containsExactly("0000000001");
+        assertThat(search("smith", "ACTIVE", null).getAccountNumbers()).containsExactly("0000000001");
+        assertThat(search("smith", null, "SAVINGS").getAccountNumbers()).containsExactly("0000000002");
+        assertThat(search("nanan", null, null).getTotal()).isEqualTo(1);
+        // Has both trigrams of "abcd" but not the substring
+        assertThat(search("abcd", null, null).getTotal()).isZero();
+        assertThat(search("zzz", null, null).getTotal()).isZero();
+        // Too short for a trigram, answered by scanning
+        assertThat(search("j", null, null).getAccountNumbers()).containsExactly("0000000001", "0000000002");
+        assertThat(search(null, "ACTIVE", null).getTotal()).isEqualTo(3);
+    }
+
+    @Test
+    void testSortAndPaging() {
+        AccountSearchIndex.Hits byNameDesc = index.search(null, null, null,
+                AccountSearchIndex.SortField.ACCOUNT_HOLDER_NAME, true, 1, 2);
+        assertThat(byNameDesc.getTotal()).isEqualTo(4);
+        assertThat(byNameDesc.getAccountNumbers()).containsExactly("0000000002", "0000000003");
+
+        assertThat(index.search(null, null, null, AccountSearchIndex.SortField.ACCOUNT_NUMBER, false, 3, 2)
+                .getAccountNumbers()).containsExactly("0000000004");
+        assertThat(index.search(null, null, null, AccountSearchIndex.SortField.ACCOUNT_NUMBER, false, 10, 2)
+                .getAccountNumbers()).isEmpty();
+    }
+
+    @Test
+    void testRemovedAccountsAreNotFound() {
+        assertThat(index.remove("0000000001", "John Smithson")).isTrue();
+        assertThat(index.remove("0000000001", "John Smithson")).isFalse();
+
+        assertThat(search("smith", null, null).getAccountNumbers()).containsExactly("0000000002");
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testMatchesLinearScan() {
+        String[] parts = {"al", "ber", "ta", "son", "ma", "ri", "ne", "o", "kim", "lee"};
+        Random random = new Random(42);
+        AccountSearchIndex large = new AccountSearchIndex();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int p = 0, n = 2 + random.nextInt(4); p < n; p++) {
+                name.append(parts[random.nextInt(parts.length)]);
+                if (random.nextInt(4) == 0) {
+                    name.append(' ');
+                }
+            }
+            names.add(name.toString());
+            large.add(String.format("%010d", i), name.toString(), "ACTIVE", "CHECKING");
+        }
+
+        for (String query : new String[]{"son", "berta", "kimlee", "o m", "ALBER", "rine", "tao"}) {
+            String lower = query.toLowerCase(Locale.ROOT);
+            long expected = names.stream().filter(name -> name.toLowerCase(Locale.ROOT).contains(lower)).count();
+            assertThat(large.search(query, null, null, AccountSearchIndex.SortField.ACCOUNT_NUMBER, false, 0, 10)
+                    .getTotal()).as(query).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void testShortQueriesFindShortNames() {
+        index.add("0000000005", "Al", "ACTIVE", "SAVINGS");
+
+        assertThat(search("al", null, null).getAccountNumbers()).containsExactly("0000000005");
+        assertThat(search("h", null, null).getAccountNumbers())
+                .containsExactly("0000000001", "0000000002", "0000000004");
+        assertThat(search("zq", null, null).getTotal()).isZero();
+
+        assertThat(index.remove("0000000005", "Al")).isTrue();
+        assertThat(search("al", null, null).getTotal()).isZero();
+    }
+
+    @Test
+    void testBroadQueriesWalkSortOrder() {
+        // Small limits so most of these queries walk the sort order instead of collecting postings
+        AccountSearchIndex large = new AccountSearchIndex(64, 32);
+        Map<String, String> names = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            String accountNumber = String.format("%010d", random.nextInt(1_000_000_000));
+            String name = NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(100);
+            if (names.putIfAbsent(accountNumber, name) == null) {
+                large.add(accountNumber, name, i % 2 == 0 ? "ACTIVE" : "FROZEN", "CHECKING");
+            }
+        }
+        // Removed documents leave no trace and their numbers are reused
+        List<String> removed = names.keySet().stream().sorted().limit(100).toList();
+        for (String accountNumber : removed) {
+            assertThat(large.remove(accountNumber, names.remove(accountNumber))).isTrue();
+        }
+        large.add("0000000000", "Quentin Moore 7", "ACTIVE", "CHECKING");
+        names.put("0000000000", "Quentin Moore 7");
+
+        for (String query : new String[]{"son", "o", "ma", "moore 7", "quentin moore 42", "xyz"}) {
+            for (AccountSearchIndex.SortField field : AccountSearchIndex.SortField.values()) {
+                for (boolean descending : new boolean[]{false, true}) {
+                    Comparator<Map.Entry<String, String>> order = field == AccountSearchIndex.SortField.ACCOUNT_NUMBER
+                            ? Map.Entry.comparingByKey()
+                            : Comparator.<Map.Entry<String, String>, String>comparing(
+                                    entry -> entry.getValue().toLowerCase(Locale.ROOT))
+                                    .thenComparing(Map.Entry.comparingByKey());
+                    List<String> expected = names.entrySet().stream()
+                            .filter(entry -> entry.getValue().toLowerCase(Locale.ROOT).contains(query))
+                            .sorted(descending ? order.reversed() : order)
+                            .map(Map.Entry::getKey)
+                            .toList();
+
+                    AccountSearchIndex.Hits hits = large.search(query, null, null, field, descending, 10, 20);
+                    String description = query + " " + field + (descending ? " desc" : "");
+                    assertThat(hits.getAccountNumbers()).as(description)
+                            .isEqualTo(expected.subList(Math.min(10, expected.size()), Math.min(30, expected.size())));
+                    if (hits.isTotalExact()) {
+                        assertThat(hits.getTotal()).as(description).isEqualTo(expected.size());
+                    } else {
+                        assertThat(hits.getTotal()).as(description).isGreaterThanOrEqualTo(30);
+                    }
+                }
+            }
+        }
+        assertThat(large.search("son", null, null, AccountSearchIndex.SortField.ACCOUNT_NUMBER, false, 0, 20)
+                .isTotalExact()).isFalse();
+        assertThat(large.search("quentin moore 42", null, null, AccountSearchIndex.SortField.ACCOUNT_NUMBER,
+                false, 0, 20).isTotalExact()).isTrue();
+    }
+
+    private AccountSearchIndex.Hits search(String name, String status, String type) {
+        return index.search(name, status, type, AccountSearchIndex.SortField.ACCOUNT_NUMBER, false, 0, 10);
+    }
+}
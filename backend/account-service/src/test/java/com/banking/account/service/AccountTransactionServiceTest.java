@@ -0,0 +1,153 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.BatchTransactionResult;
+import com.banking.account.dto.TransactionRequest;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.AccountSummary;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Audit rows are flushed explicitly, inside the test transaction
+@DataJpaTest(properties = "banking.audit.flush-interval=1h")
+@Import({AccountTransactionService.class, AccountSummaryService.class, AccountCache.class,
+        ReferenceGenerator.class, FailedTransactionWriter.class, OptimisticRetry.class, AccountEventHub.class,
+        ShardedBalanceService.class, SimpleMeterRegistry.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class AccountTransactionServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AccountTransactionService accountTransactionService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountSummaryService accountSummaryService;
+
+    @Autowired
+    private FailedTransactionWriter failedTransactionWriter;
+
+    @BeforeEach
+    void setUp() {
+        entityManager.persistAndFlush(newAccount("1111111111", "one@test.com", "100.00"));
+        entityManager.persistAndFlush(newAccount("2222222222", "two@test.com", "50.00"));
+    }
+
+    @Test
+    void testDepositAndWithdraw() {
+        TransactionResult deposit = accountTransactionService.deposit(
+                "1111111111", Money.of("25.00"), "Deposit to account");
+        TransactionResult withdrawal = accountTransactionService.withdraw(
+                "1111111111", Money.of("500.00"), "Withdrawal from account", "Failed - Insufficient funds");
+
+        assertThat(deposit.isCompleted()).isTrue();
+        assertThat(deposit.getAccount().getBalance()).isEqualTo(Money.of("125.00"));
+        assertThat(withdrawal.getOutcome()).isEqualTo(TransactionResult.Outcome.INSUFFICIENT_FUNDS);
+        assertThat(withdrawal.getTransaction().getStatus()).isEqualTo("FAILED");
+
+        // Queued, not written, until the writer drains
+        assertThat(transactionRepository.findByReference(withdrawal.getTransaction().getReference())).isEmpty();
+        failedTransactionWriter.flush();
+        assertThat(failedTransactionWriter.queued()).isZero();
+        assertThat(transactionRepository.findByReference(withdrawal.getTransaction().getReference()))
+                .hasValueSatisfying(row -> {
+                    assertThat(row.getStatus()).isEqualTo("FAILED");
+                    assertThat(row.getTimestamp()).isEqualTo(withdrawal.getTransaction().getTimestamp());
+                });
+    }
+
+    @Test
+    void testProcessBatchAppliesItemsInOrderPerAccount() {
+        List<BatchTransactionResult> results = accountTransactionService.processBatch(List.of(
+                request("1111111111", "WITHDRAWAL", "80.00"),
+                request("2222222222", "DEPOSIT", "10.00"),
+                request("1111111111", "WITHDRAWAL", "30.00"),
+                request("1111111111", "DEPOSIT", "40.00"),
+                request("9999999999", "DEPOSIT", "5.00")
+        ));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(results).extracting(BatchTransactionResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(results).extracting(BatchTransactionResult::isSuccess)
+                .containsExactly(true, true, false, true, false);
+        assertThat(results.get(2).getMessage()).isEqualTo("Insufficient funds");
+        assertThat(results.get(3).getBalanceAfter()).isEqualTo(Money.of("60.00"));
+        assertThat(results.get(4).getMessage()).isEqualTo("Account not found");
+
+        assertThat(accountRepository.findByAccountNumber("1111111111").get().getBalance())
+                .isEqualTo(Money.of("60.00"));
+        assertThat(accountRepository.findByAccountNumber("2222222222").get().getBalance())
+                .isEqualTo(Money.of("60.00"));
+        assertThat(transactionRepository.findByAccountNumberOrderByTimestampDesc("1111111111")).hasSize(3);
+    }
+
+    @Test
+    void testSummaryMaintainedWithEveryWriteAndMatchesRebuild() {
+        accountTransactionService.deposit("1111111111", Money.of("25.00"), "Deposit to account");
+        accountTransactionService.withdraw("1111111111", Money.of("40.00"), "Withdrawal", "Failed");
+        accountTransactionService.withdraw("1111111111", Money.of("999.00"), "Withdrawal", "Failed");
+        accountTransactionService.processBatch(List.of(
+                request("1111111111", "DEPOSIT", "10.00"),
+                request("2222222222", "WITHDRAWAL", "5.00")
+        ));
+        failedTransactionWriter.flush();
+        entityManager.flush();
+        entityManager.clear();
+
+        AccountSummary summary = accountSummaryService.getSummary("1111111111").orElseThrow();
+        assertThat(summary.getTotalDeposits()).isEqualTo(Money.of("35.00"));
+        assertThat(summary.getTotalWithdrawals()).isEqualTo(Money.of("40.00"));
+        assertThat(summary.getCompletedCount()).isEqualTo(3);
+        assertThat(summary.getFailedCount()).isEqualTo(1);
+
+        int rebuilt = accountSummaryService.rebuild();
+        entityManager.clear();
+
+        AccountSummary rebuiltSummary = accountSummaryService.getSummary("1111111111").orElseThrow();
+        assertThat(rebuilt).isEqualTo(2);
+        assertThat(rebuiltSummary.getTotalDeposits()).isEqualTo(summary.getTotalDeposits());
+        assertThat(rebuiltSummary.getTotalWithdrawals()).isEqualTo(summary.getTotalWithdrawals());
+        assertThat(rebuiltSummary.getCompletedCount()).isEqualTo(summary.getCompletedCount());
+        assertThat(rebuiltSummary.getFailedCount()).isEqualTo(summary.getFailedCount());
+    }
+
+    private Account newAccount(String accountNumber, String email, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(accountNumber);
+        account.setAccountHolderName("Batch Test");
+        account.setEmail(email);
+        account.setBalance(Money.of(balance));
+        account.setAccountType("CHECKING");
+        account.setStatus("ACTIVE");
+        return account;
+    }
+
+    private TransactionRequest request(String accountNumber, String type, String amount) {
+        TransactionRequest request = new TransactionRequest();
+        request.setAccountNumber(accountNumber);
+        request.setTransactionType(type);
+        request.setAmount(Money.of(amount));
+        return request;
+    }
+}
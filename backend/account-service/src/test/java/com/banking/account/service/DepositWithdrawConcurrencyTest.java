@@ -0,0 +1,168 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Account;
+import com.banking.account.entity.AccountSummary;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Deposits and withdrawals hammer a handful of accounts from 1..8 threads against H2. Each one is a
+// single guarded UPDATE, so the row lock serializes writers to the same account and a lost update
+// shows up as a balance that differs from the completed operations. Prints ops/sec per thread count.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:depositwithdrawdb;DB_CLOSE_DELAY=-1")
+@DirtiesContext
+public class DepositWithdrawConcurrencyTest {
+
+    private static final int ACCOUNTS = 4;
+    private static final int OPS_PER_THREAD = 100;
+    private static final Money OPENING = Money.of("20.00");
+    private static final Money DEPOSIT = Money.of("1.00");
+    private static final Money WITHDRAWAL = Money.of("1.50");
+
+    @Autowired
+    private AccountTransactionService accountTransactionService;
+
+    @Autowired
+    private AccountSummaryService accountSummaryService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Test
+    void testNoLostUpdatesAcrossThreadCounts() throws Exception {
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            List<String> accountNumbers = new ArrayList<>();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accountNumbers.add(createAccount(String.format("77%02d%06d", threads, i)));
+            }
+            AtomicLongArray deposits = new AtomicLongArray(ACCOUNTS);
+            AtomicLongArray withdrawals = new AtomicLongArray(ACCOUNTS);
+
+            long elapsed = run(threads, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    int account = random.nextInt(ACCOUNTS);
+                    if (random.nextBoolean()) {
+                        accountTransactionService.deposit(accountNumbers.get(account), DEPOSIT, "Deposit");
+                        deposits.incrementAndGet(account);
+                    } else if (accountTransactionService.withdraw(accountNumbers.get(account), WITHDRAWAL,
+                            "Withdrawal", "Failed").isCompleted()) {
+                        withdrawals.incrementAndGet(account);
+                    }
+                }
+            });
+            System.out.printf("threads=%d ops/sec=%.0f%n", threads,
+                    (double) threads * OPS_PER_THREAD / (elapsed / 1_000_000_000.0));
+
+            for (int i = 0; i < ACCOUNTS; i++) {
+                Money expected = OPENING.plus(Money.ofUnits(DEPOSIT.getUnits() * deposits.get(i)))
+                        .minus(Money.ofUnits(WITHDRAWAL.getUnits() * withdrawals.get(i)));
+                Money balance = accountRepository.findByAccountNumber(accountNumbers.get(i)).orElseThrow()
+                        .getBalance();
+                assertThat(balance).as("threads=%d account=%d", threads, i).isEqualTo(expected);
+                assertThat(balance.isNegative()).isFalse();
+
+                AccountSummary summary = accountSummaryService.getSummary(accountNumbers.get(i)).orElseThrow();
+                assertThat(summary.getTotalDeposits())
+                        .isEqualTo(Money.ofUnits(DEPOSIT.getUnits() * deposits.get(i)));
+                assertThat(summary.getTotalWithdrawals())
+                        .isEqualTo(Money.ofUnits(WITHDRAWAL.getUnits() * withdrawals.get(i)));
+            }
+        }
+    }
+
+    // Rebuilds run between the writers. A delta that lands between the delete and the insert shows
+    // up as a summary that no longer matches the completed operations.
+    @Test
+    void testRebuildDuringWritesKeepsSummariesExact() throws Exception {
+        List<String> accountNumbers = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountNumbers.add(createAccount(String.format("7799%06d", i)));
+        }
+        AtomicLongArray deposits = new AtomicLongArray(ACCOUNTS);
+        AtomicLongArray withdrawals = new AtomicLongArray(ACCOUNTS);
+        AtomicInteger writers = new AtomicInteger();
+
+        run(4, () -> {
+            if (writers.getAndIncrement() == 0) {
+                for (int i = 0; i < 10; i++) {
+                    accountSummaryService.rebuild();
+                }
+                return;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                int account = random.nextInt(ACCOUNTS);
+                if (random.nextBoolean()) {
+                    accountTransactionService.deposit(accountNumbers.get(account), DEPOSIT, "Deposit");
+                    deposits.incrementAndGet(account);
+                } else if (accountTransactionService.withdraw(accountNumbers.get(account), WITHDRAWAL,
+                        "Withdrawal", "Failed").isCompleted()) {
+                    withdrawals.incrementAndGet(account);
+                }
+            }
+        });
+
+        for (int i = 0; i < ACCOUNTS; i++) {
+            AccountSummary summary = accountSummaryService.getSummary(accountNumbers.get(i)).orElseThrow();
+            assertThat(summary.getTotalDeposits()).as("account=%d", i)
+                    .isEqualTo(Money.ofUnits(DEPOSIT.getUnits() * deposits.get(i)));
+            assertThat(summary.getTotalWithdrawals()).as("account=%d", i)
+                    .isEqualTo(Money.ofUnits(WITHDRAWAL.getUnits() * withdrawals.get(i)));
+        }
+    }
+
+    private String createAccount(String accountNumber) {
+        Account account = new Account();
+        account.setAccountNumber(accountNumber);
+        account.setAccountHolderName("Stress Test");
+        account.setEmail(accountNumber + "@test.com");
+        account.setBalance(OPENING);
+        account.setAccountType("CHECKING");
+        account.setStatus("ACTIVE");
+        return accountRepository.save(account).getAccountNumber();
+    }
+
+    private interface Worker {
+        void run() throws Exception;
+    }
+
+    private static long run(int threads, Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                worker.run();
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        return elapsed;
+    }
+}
@@ -0,0 +1,144 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Transaction;
+import com.banking.account.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class FailedTransactionWriterTest {
+
+    private final List<Transaction> saved = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TransactionRepository transactionRepository;
+    private AccountSummaryService accountSummaryService;
+    private FailedTransactionWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        accountSummaryService = mock(AccountSummaryService.class);
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            saved.addAll(batch);
+            return batch;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    void testConcurrentProducersAreWrittenOnceInOrderPerProducer() throws Exception {
+        writer = writer(64, 16, Duration.ofMillis(1), FailedTransactionWriter.OverflowPolicy.BLOCK);
+        int producers = 4;
+        int perProducer = 10_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String accountNumber = String.format("%010d", p);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    writer.submit(transaction(accountNumber, i));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        writer.flush();
+
+        assertThat(saved).hasSize(producers * perProducer);
+        assertThat(batchSizes).allSatisfy(size -> assertThat(size).isBetween(1, 16));
+        Map<String, Integer> next = new HashMap<>();
+        for (Transaction transaction : saved) {
+            int expected = next.getOrDefault(transaction.getAccountNumber(), 0);
+            assertThat(transaction.getReference()).isEqualTo(transaction.getAccountNumber() + "-" + expected);
+            next.put(transaction.getAccountNumber(), expected + 1);
+        }
+        verify(accountSummaryService, atLeastOnce()).recordAll(anyList());
+    }
+
+    @Test
+    void testDropPolicyCountsOverflow() throws Exception {
+        writer = writer(4, 50, Duration.ofHours(1), FailedTransactionWriter.OverflowPolicy.DROP);
+        for (int i = 0; i < 6; i++) {
+            writer.submit(transaction("1111111111", i));
+        }
+
+        assertThat(writer.queued()).isEqualTo(4);
+        assertThat(count("dropped")).isEqualTo(2);
+        assertThat(saved).isEmpty();
+
+        writer.flush();
+        assertThat(saved).extracting(Transaction::getReference)
+                .containsExactly("1111111111-0", "1111111111-1", "1111111111-2", "1111111111-3");
+        assertThat(count("written")).isEqualTo(4);
+    }
+
+    @Test
+    void testCloseFlushesQueuedRows() throws Exception {
+        writer = writer(1024, 50, Duration.ofHours(1), FailedTransactionWriter.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 120; i++) {
+            writer.submit(transaction("1111111111", i));
+        }
+
+        writer.close();
+        writer = null;
+
+        assertThat(saved).hasSize(120);
+        assertThat(saved).allSatisfy(transaction -> assertThat(transaction.getTimestamp()).isNotNull());
+    }
+
+    private FailedTransactionWriter writer(int bufferSize, int batchSize, Duration flushInterval,
+                                           FailedTransactionWriter.OverflowPolicy policy) {
+        return new FailedTransactionWriter(transactionRepository, accountSummaryService, mock(AccountEventHub.class),
+                mock(PlatformTransactionManager.class), meterRegistry, bufferSize, batchSize, flushInterval, policy);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("banking.audit.records").tag("outcome", outcome).counter().count();
+    }
+
+    private Transaction transaction(String accountNumber, int index) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountNumber(accountNumber);
+        transaction.setTransactionType("WITHDRAWAL");
+        transaction.setStatus("FAILED");
+        transaction.setReference(accountNumber + "-" + index);
+        return transaction;
+    }
+}
@@ -0,0 +1,138 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.InterestAccrual;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.InterestRun;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.InterestRunRepository;
+import com.banking.account.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Real H2 database, two accounts per chunk so a handful of accounts spans several workers
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:interestdb;DB_CLOSE_DELAY=-1",
+        "banking.interest.annual-rate=0.02", "banking.interest.chunk-size=2", "banking.interest.parallelism=2"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class InterestAccrualServiceTest {
+
+    private static final YearMonth MONTH = YearMonth.now();
+
+    @Autowired
+    private InterestAccrualService interestAccrualService;
+
+    @Autowired
+    private AccountSummaryService accountSummaryService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private InterestRunRepository interestRunRepository;
+
+    @Test
+    void testCreditsSavingsAccountsOnce() {
+        createAccount("5550000001", "SAVINGS", "1200.00");
+        createAccount("5550000002", "SAVINGS", "600.00");
+        createAccount("5550000003", "SAVINGS", "0.00");
+        createAccount("5550000004", "SAVINGS", "2400.00");
+        createAccount("5550000005", "SAVINGS", "150.00");
+        createAccount("5550000006", "CHECKING", "1000.00");
+
+        InterestAccrual accrual = interestAccrualService.accrue(MONTH);
+
+        assertThat(accrual.getStatus()).isEqualTo("COMPLETED");
+        assertThat(accrual.isResumed()).isFalse();
+        assertThat(accrual.getAccountsVisited()).isEqualTo(5);
+        assertThat(accrual.getAccountsCredited()).isEqualTo(4);
+        assertThat(accrual.getTotalInterest()).isEqualByComparingTo("7.25");
+        assertThat(accrual.getCheckpoint()).isEqualTo("5550000005");
+        assertThat(balanceOf("5550000001")).isEqualTo(Money.of("1202.00"));
+        assertThat(balanceOf("5550000003")).isEqualTo(Money.of("0.00"));
+        assertThat(balanceOf("5550000005")).isEqualTo(Money.of("150.25"));
+        assertThat(balanceOf("5550000006")).isEqualTo(Money.of("1000.00"));
+
+        Transaction interest = transactionRepository.findByReference(reference("5550000004")).orElseThrow();
+        assertThat(interest.getTransactionType()).isEqualTo("INTEREST");
+        assertThat(interest.getAmount()).isEqualTo(Money.of("4.00"));
+        assertThat(interest.getBalanceAfter()).isEqualTo(Money.of("2404.00"));
+        assertThat(accountSummaryService.getSummary("5550000004").orElseThrow().getTotalDeposits())
+                .isEqualTo(Money.of("4"));
+
+        // A finished month is not credited again
+        InterestAccrual again = interestAccrualService.accrue(MONTH);
+        assertThat(again.getAccountsVisited()).isZero();
+        assertThat(again.getAccountsCredited()).isEqualTo(4);
+        assertThat(balanceOf("5550000001")).isEqualTo(Money.of("1202.00"));
+    }
+
+    @Test
+    void testResumesFromCheckpointAfterCrash() {
+        Account first = createAccount("5550000011", "SAVINGS", "1202.00");
+        createAccount("5550000012", "SAVINGS", "600.00");
+        Account third = createAccount("5550000013", "SAVINGS", "2404.00");
+
+        // The first chunk was checkpointed, a later one committed before the crash and was not
+        LocalDateTime now = LocalDateTime.now();
+        interestRunRepository.save(new InterestRun(MONTH.toString(), "RUNNING", new BigDecimal("0.02"),
+                "5550000011", 1, new BigDecimal("2.00"), now, now, null));
+        recordInterest(first, "2.00", "1202.00");
+        recordInterest(third, "4.00", "2404.00");
+
+        InterestAccrual accrual = interestAccrualService.accrue(MONTH);
+
+        assertThat(accrual.isResumed()).isTrue();
+        assertThat(accrual.getAccountsVisited()).isEqualTo(2);
+        assertThat(accrual.getAccountsCredited()).isEqualTo(3);
+        assertThat(accrual.getTotalInterest()).isEqualByComparingTo("7.00");
+        assertThat(balanceOf("5550000011")).isEqualTo(Money.of("1202.00"));
+        assertThat(balanceOf("5550000012")).isEqualTo(Money.of("601.00"));
+        assertThat(balanceOf("5550000013")).isEqualTo(Money.of("2404.00"));
+        assertThat(interestAccrualService.getRun(MONTH).orElseThrow().getStatus()).isEqualTo("COMPLETED");
+    }
+
+    private Money balanceOf(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance();
+    }
+
+    private static String reference(String accountNumber) {
+        return "INT" + MONTH.format(DateTimeFormatter.ofPattern("yyyyMM")) + accountNumber;
+    }
+
+    private Account createAccount(String accountNumber, String type, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(accountNumber);
+        account.setAccountHolderName("Saver " + accountNumber);
+        account.setEmail(accountNumber + "@test.com");
+        account.setBalance(Money.of(balance));
+        account.setAccountType(type);
+        account.setStatus("ACTIVE");
+        return accountRepository.save(account);
+    }
+
+    private void recordInterest(Account account, String amount, String balanceAfter) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountId(account.getId());
+        transaction.setAccountNumber(account.getAccountNumber());
+        transaction.setTransactionType("INTEREST");
+        transaction.setAmount(Money.of(amount));
+        transaction.setBalanceAfter(Money.of(balanceAfter));
+        transaction.setDescription("Interest for " + MONTH);
+        transaction.setStatus("COMPLETED");
+        transaction.setReference(reference(account.getAccountNumber()));
+        transactionRepository.save(transaction);
+    }
+}
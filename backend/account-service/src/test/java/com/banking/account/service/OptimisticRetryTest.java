@@ -0,0 +1,71 @@
+package com.banking.account.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class OptimisticRetryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OptimisticRetry retry = new OptimisticRetry(mock(PlatformTransactionManager.class), meterRegistry,
+            OptimisticRetry.LockingMode.OPTIMISTIC, 3, Duration.ofMillis(1), Duration.ofMillis(4));
+
+    @Test
+    void testRetriesUntilVersionCheckPasses() {
+        AtomicInteger calls = new AtomicInteger();
+        String result = retry.execute("transfer", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Account", "id");
+            }
+            return "done";
+        });
+
+        assertThat(result).isEqualTo("done");
+        DistributionSummary attempts = meterRegistry.get("banking.account.write.attempts").summary();
+        assertThat(attempts.count()).isEqualTo(1);
+        assertThat(attempts.totalAmount()).isEqualTo(3);
+        assertThat(meterRegistry.get("banking.account.write.conflicts").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+        assertThatThrownBy(() -> retry.execute("batch", () -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Account", "id");
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(meterRegistry.get("banking.account.write.exhausted").tag("operation", "batch")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testOtherFailuresAreNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        assertThatThrownBy(() -> retry.execute("batch", () -> {
+            calls.incrementAndGet();
+            throw new DataIntegrityViolationException("duplicate reference");
+        })).isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testBackoffIsJitteredWithinTheCap() {
+        for (int attempt = 1; attempt <= 40; attempt++) {
+            long ceiling = Math.min(Duration.ofMillis(4).toNanos(), Duration.ofMillis(1).toNanos() << Math.min(attempt - 1, 30));
+            assertThat(retry.backoffNanos(attempt)).isBetween(0L, ceiling);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.banking.account.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+// Same workload with SELECT ... FOR UPDATE: every transfer takes two row locks, opposing transfers
+// between the same pair queue on the first one. A lock-order bug shows up as a lock timeout.
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:pessimistictransferdb;DB_CLOSE_DELAY=-1",
+        "banking.account.locking=PESSIMISTIC"})
+@DirtiesContext
+public class PessimisticTransferConcurrencyTest extends TransferConcurrencyTest {
+}
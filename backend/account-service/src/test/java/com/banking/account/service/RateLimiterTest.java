@@ -0,0 +1,89 @@
+package com.banking.account.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    void testBurstThenSteadyRate() {
+        // 10 per second: one token every 100ms, up to 3 at once
+        RateLimiter limiter = limiter(true, 10, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, "1111111111")).isZero();
+        }
+        assertThat(limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, "1111111111"))
+                .isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        // Other accounts and the client scope have their own buckets
+        assertThat(limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, "2222222222")).isZero();
+        assertThat(limiter.tryAcquire(RateLimiter.Scope.CLIENT, "1111111111")).isZero();
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(40));
+        assertThat(limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, "1111111111"))
+                .isEqualTo(TimeUnit.MILLISECONDS.toNanos(60));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(60));
+        assertThat(limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, "1111111111")).isZero();
+        assertThat(limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, "1111111111")).isPositive();
+
+        // Idle long enough to refill completely
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, "1111111111")).isZero();
+        }
+
+        assertThat(meterRegistry.get("banking.ratelimit.rejected").tag("scope", "account").counter().count())
+                .isEqualTo(3);
+        assertThat(RateLimiter.retryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(100))).isEqualTo(1);
+        assertThat(RateLimiter.retryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(1500))).isEqualTo(2);
+    }
+
+    @Test
+    void testConcurrentCallersShareOneBurst() throws Exception {
+        RateLimiter limiter = limiter(true, 1, 1000);
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 500; i++) {
+                    if (limiter.tryAcquire(RateLimiter.Scope.CLIENT, "10.0.0.1") == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        // The clock is frozen, so exactly the burst gets through
+        assertThat(admitted.get()).isEqualTo(1000);
+    }
+
+    @Test
+    void testDisabled() {
+        RateLimiter limiter = limiter(false, 1, 1);
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire(RateLimiter.Scope.ACCOUNT, "1111111111")).isZero();
+        }
+    }
+
+    private RateLimiter limiter(boolean enabled, double rate, int burst) {
+        return new RateLimiter(meterRegistry, enabled, rate, burst, rate, burst, 1000, now::get);
+    }
+}
@@ -0,0 +1,115 @@
+package com.banking.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReferenceGeneratorTest {
+
+    private static final int REFERENCES_PER_THREAD = 500_000;
+
+    @Test
+    void testReferenceFormat() {
+        String reference = new ReferenceGenerator(1).next();
+
+        assertThat(reference).startsWith("TXN").hasSize(3 + 19);
+        assertThat(reference.substring(3)).containsOnlyDigits();
+    }
+
+    @Test
+    void testNodeIdValidated() {
+        assertThatThrownBy(() -> new ReferenceGenerator(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ReferenceGenerator(ReferenceGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testNodesNeverCollideOnSameClock() {
+        long fixed = ReferenceGenerator.EPOCH + 1_000;
+        ReferenceGenerator node1 = new ReferenceGenerator(1, () -> fixed);
+        ReferenceGenerator node2 = new ReferenceGenerator(2, () -> fixed);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(node1.nextId()).isNotEqualTo(node2.nextId());
+        }
+    }
+
+    @Test
+    void testMonotonicWhenSequenceExhaustedOrClockStepsBack() {
+        AtomicLong clock = new AtomicLong(ReferenceGenerator.EPOCH + 1_000);
+        ReferenceGenerator generator = new ReferenceGenerator(0, clock::get);
+
+        long previous = generator.nextId();
+        // More ids than one millisecond's sequence holds, with the clock standing still
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+
+        clock.addAndGet(-500);
+        assertThat(generator.nextId()).isGreaterThan(previous);
+    }
+
+    @Test
+    void testNoDuplicatesAcrossThreads() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ReferenceGenerator generator = new ReferenceGenerator(7);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                long[] ids = new long[REFERENCES_PER_THREAD];
+                start.await();
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = generator.nextId();
+                }
+                return ids;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        long[] all = new long[threads * REFERENCES_PER_THREAD];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] ids = future.get();
+            // Each thread sees strictly increasing ids
+            for (int i = 1; i < ids.length; i++) {
+                assertThat(ids[i]).isGreaterThan(ids[i - 1]);
+            }
+            System.arraycopy(ids, 0, all, offset, ids.length);
+            offset += ids.length;
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        Arrays.sort(all);
+        int duplicates = 0;
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                duplicates++;
+            }
+        }
+        assertThat(duplicates).isZero();
+
+        double perSec = all.length / (elapsed / 1_000_000_000.0);
+        System.out.printf("threads=%d references=%d references/sec=%.0f%n", threads, all.length, perSec);
+    }
+}
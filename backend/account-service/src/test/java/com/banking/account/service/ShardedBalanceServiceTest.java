@@ -0,0 +1,176 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.BatchTransactionResult;
+import com.banking.account.dto.TransactionRequest;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.AccountSummary;
+import com.banking.account.entity.BalanceShard;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.BalanceShardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Real transactions against H2. Consolidation only runs when the test calls it.
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:shardeddb;DB_CLOSE_DELAY=-1",
+        "banking.hot-accounts.consolidate-interval=1h"})
+@DirtiesContext
+public class ShardedBalanceServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int DEPOSITS_PER_THREAD = 50;
+
+    @Autowired
+    private ShardedBalanceService shardedBalanceService;
+
+    @Autowired
+    private AccountTransactionService accountTransactionService;
+
+    @Autowired
+    private AccountSummaryService accountSummaryService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private BalanceShardRepository balanceShardRepository;
+
+    @Test
+    void testConcurrentDepositsSpreadAcrossShards() throws Exception {
+        String accountNumber = createAccount("7770000001", "100.00");
+        assertThat(shardedBalanceService.enable(accountNumber, 8)).isTrue();
+        assertThat(shardedBalanceService.isSharded(accountNumber)).isTrue();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < DEPOSITS_PER_THREAD; i++) {
+                    TransactionResult result = accountTransactionService.deposit(
+                            accountNumber, Money.of("1.00"), "Settlement");
+                    assertThat(result.getOutcome()).isEqualTo(TransactionResult.Outcome.COMPLETED);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // The account row was left alone, the deposits sit on the shards
+        assertThat(accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance())
+                .isEqualTo(Money.of("100.00"));
+        List<BalanceShard> shards = balanceShardRepository.findAll().stream()
+                .filter(shard -> shard.getAccountNumber().equals(accountNumber)).toList();
+        assertThat(shards).hasSize(8);
+        assertThat(shards.stream().filter(shard -> shard.getDepositCount() > 0)).hasSizeGreaterThan(1);
+        assertThat(shardedBalanceService.totalBalance(accountNumber)).contains(Money.of("500.00"));
+
+        Optional<AccountSummary> summary = shardedBalanceService.withPendingDeposits(
+                accountNumber, accountSummaryService.getSummary(accountNumber));
+        assertThat(summary.orElseThrow().getCompletedCount()).isEqualTo(400);
+        assertThat(summary.get().getTotalDeposits()).isEqualTo(Money.of("400"));
+
+        shardedBalanceService.consolidateAll();
+
+        assertThat(accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance())
+                .isEqualTo(Money.of("500.00"));
+        assertThat(balanceShardRepository.findShardTotalsByAccountNumberIn(List.of(accountNumber)).get(0).getBalance())
+                .isEqualByComparingTo(BigDecimal.ZERO);
+        AccountSummary stored = accountSummaryService.getSummary(accountNumber).orElseThrow();
+        assertThat(stored.getCompletedCount()).isEqualTo(400);
+        assertThat(shardedBalanceService.withPendingDeposits(accountNumber, Optional.of(stored))).contains(stored);
+    }
+
+    @Test
+    void testWithdrawalDrawsAcrossShards() {
+        String accountNumber = createAccount("7770000002", "10.00");
+        shardedBalanceService.enable(accountNumber, 4);
+        for (int i = 0; i < 20; i++) {
+            accountTransactionService.deposit(accountNumber, Money.of("5.00"), "Settlement");
+        }
+
+        // No single shard nor the account row holds 100, all of them together do
+        TransactionResult withdrawal = accountTransactionService.withdraw(accountNumber, Money.of("100.00"),
+                "Sweep", "Sweep - Insufficient funds");
+        assertThat(withdrawal.getOutcome()).isEqualTo(TransactionResult.Outcome.COMPLETED);
+        assertThat(withdrawal.getAccount().getBalance()).isEqualTo(Money.of("10.00"));
+
+        TransactionResult refused = accountTransactionService.withdraw(accountNumber, Money.of("10.01"),
+                "Sweep", "Sweep - Insufficient funds");
+        assertThat(refused.getOutcome()).isEqualTo(TransactionResult.Outcome.INSUFFICIENT_FUNDS);
+
+        assertThat(shardedBalanceService.disable(accountNumber)).isTrue();
+        assertThat(shardedBalanceService.isSharded(accountNumber)).isFalse();
+        assertThat(accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance())
+                .isEqualTo(Money.of("10.00"));
+        AccountSummary summary = accountSummaryService.getSummary(accountNumber).orElseThrow();
+        assertThat(summary.getTotalDeposits()).isEqualTo(Money.of("100"));
+        assertThat(summary.getTotalWithdrawals()).isEqualTo(Money.of("100"));
+    }
+
+    @Test
+    void testTransfersAndBatchesSeeShardBalances() {
+        String hot = createAccount("7770000003", "10.00");
+        String other = createAccount("7770000004", "0.00");
+        shardedBalanceService.enable(hot, 4);
+        for (int i = 0; i < 10; i++) {
+            accountTransactionService.deposit(hot, Money.of("5.00"), "Settlement");
+        }
+
+        // The row holds 10.00, the shards the other 50.00
+        TransferResult transfer = accountTransactionService.transfer(hot, other, Money.of("40.00"), "Payout");
+        assertThat(transfer.getOutcome()).isEqualTo(TransactionResult.Outcome.COMPLETED);
+        assertThat(transfer.getDebit().getBalanceAfter()).isEqualTo(Money.of("20.00"));
+
+        accountTransactionService.deposit(hot, Money.of("5.00"), "Settlement");
+        TransferResult incoming = accountTransactionService.transfer(other, hot, Money.of("1.00"), "Refund");
+        assertThat(incoming.getCredit().getBalanceAfter()).isEqualTo(Money.of("26.00"));
+
+        accountTransactionService.deposit(hot, Money.of("5.00"), "Settlement");
+        List<BatchTransactionResult> batch = accountTransactionService.processBatch(List.of(
+                withdrawal(hot, "30.00"), withdrawal(hot, "2.00"), withdrawal(other, "1.00")));
+        assertThat(batch).extracting(BatchTransactionResult::isSuccess).containsExactly(true, false, true);
+        assertThat(batch.get(0).getBalanceAfter()).isEqualTo(Money.of("1.00"));
+
+        assertThat(shardedBalanceService.totalBalance(hot)).contains(Money.of("1.00"));
+        assertThat(shardedBalanceService.totalBalance(other)).contains(Money.of("38.00"));
+    }
+
+    private static TransactionRequest withdrawal(String accountNumber, String amount) {
+        TransactionRequest request = new TransactionRequest();
+        request.setAccountNumber(accountNumber);
+        request.setTransactionType("WITHDRAWAL");
+        request.setAmount(Money.of(amount));
+        return request;
+    }
+
+    private String createAccount(String accountNumber, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(accountNumber);
+        account.setAccountHolderName("Merchant Settlement");
+        account.setEmail(accountNumber + "@test.com");
+        account.setBalance(Money.of(balance));
+        account.setAccountType("CHECKING");
+        account.setStatus("ACTIVE");
+        return accountRepository.save(account).getAccountNumber();
+    }
+}
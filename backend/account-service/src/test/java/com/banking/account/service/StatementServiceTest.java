@@ -0,0 +1,120 @@
+package com.banking.account.service;
+
+import com.banking.account.dto.StatementRun;
+import com.banking.account.entity.Account;
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import com.banking.account.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Real H2 database, two accounts per partition file
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:statementdb;DB_CLOSE_DELAY=-1",
+        "banking.statements.accounts-per-partition=2", "banking.statements.buffer-size=64"})
+@DirtiesContext
+public class StatementServiceTest {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void statementDirectory(DynamicPropertyRegistry registry) {
+        registry.add("banking.statements.directory", () -> directory.toString());
+    }
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testOpeningRunningAndClosingBalances() throws Exception {
+        Account active = createAccount("8880000001", "Jane, Doe", "1000.00");
+        Account idle = createAccount("8880000003", "Idle Saver", "75.00");
+        createAccount("8880000005", "Opened Later", "10.00");
+        jdbcTemplate.update("UPDATE accounts SET created_at = ? WHERE account_number IN (?, ?)",
+                LocalDateTime.of(2024, 1, 1, 0, 0), active.getAccountNumber(), idle.getAccountNumber());
+
+        record(active, "DEPOSIT", "200.00", "COMPLETED", LocalDateTime.of(2024, 5, 31, 23, 59));
+        record(active, "DEPOSIT", "300.00", "COMPLETED", LocalDateTime.of(2024, 6, 1, 0, 0));
+        record(active, "WITHDRAWAL", "50.00", "COMPLETED", LocalDateTime.of(2024, 6, 15, 12, 0));
+        record(active, "WITHDRAWAL", "5000.00", "FAILED", LocalDateTime.of(2024, 6, 20, 9, 30));
+        record(active, "DEPOSIT", "100.00", "COMPLETED", LocalDateTime.of(2024, 7, 1, 0, 0));
+        // Lines of an account that has since been deleted are left out
+        Account deleted = createAccount("8880000002", "Closed", "0.00");
+        record(deleted, "DEPOSIT", "1.00", "COMPLETED", LocalDateTime.of(2024, 6, 2, 0, 0));
+        accountRepository.delete(deleted);
+
+        StatementRun run = statementService.generate(YearMonth.of(2024, 6));
+
+        assertThat(run.getPartitions()).isEqualTo(2);
+        assertThat(run.getAccounts()).isEqualTo(2);
+        assertThat(run.getTransactions()).isEqualTo(3);
+
+        Path month = directory.resolve("2024-06");
+        assertThat(Files.exists(directory.resolve("2024-06.partial"))).isFalse();
+        List<String> first = Files.readAllLines(month.resolve("statements-0000.csv"));
+        assertThat(first).hasSize(1 + 5 + 2);
+        assertThat(first.get(0)).isEqualTo("accountNumber,line,timestamp,reference,status,description,amount,balance");
+        assertThat(first.get(1)).isEqualTo("8880000001,OPENING,2024-06-01T00:00,,,\"Jane, Doe\",,650.00");
+        assertThat(first.get(2)).endsWith(",COMPLETED,Test,300.00,950.00");
+        assertThat(first.get(3)).endsWith(",COMPLETED,Test,-50.00,900.00");
+        assertThat(first.get(4)).endsWith(",FAILED,Test,-5000.00,900.00");
+        assertThat(first.get(5)).isEqualTo("8880000001,CLOSING,2024-07-01T00:00,,,,,900.00");
+        assertThat(first.get(6)).isEqualTo("8880000003,OPENING,2024-06-01T00:00,,,Idle Saver,,75.00");
+        assertThat(first.get(7)).isEqualTo("8880000003,CLOSING,2024-07-01T00:00,,,,,75.00");
+
+        // Opened after June, so its partition has no statements
+        assertThat(Files.readAllLines(month.resolve("statements-0001.csv"))).hasSize(1);
+
+        // A second run replaces the first
+        assertThat(statementService.generate(YearMonth.of(2024, 6)).getAccounts()).isEqualTo(2);
+        assertThat(Files.readAllLines(month.resolve("statements-0000.csv"))).isEqualTo(first);
+    }
+
+    private Account createAccount(String accountNumber, String holder, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(accountNumber);
+        account.setAccountHolderName(holder);
+        account.setEmail(accountNumber + "@test.com");
+        account.setBalance(Money.of(balance));
+        account.setAccountType("CHECKING");
+        account.setStatus("ACTIVE");
+        return accountRepository.save(account);
+    }
+
+    private void record(Account account, String type, String amount, String status, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountId(account.getId());
+        transaction.setAccountNumber(account.getAccountNumber());
+        transaction.setTransactionType(type);
+        transaction.setAmount(Money.of(amount));
+        transaction.setDescription("Test");
+        transaction.setStatus(status);
+        transaction.setReference(type + timestamp);
+        transaction.setTimestamp(timestamp);
+        transactionRepository.save(transaction);
+    }
+}
@@ -0,0 +1,124 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Transaction;
+import com.banking.account.money.Money;
+import com.banking.account.money.MoneyModule;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({TransactionExportService.class, MoneyModule.class, JacksonAutoConfiguration.class})
+public class TransactionExportServiceTest {
+
+    private final ReferenceGenerator referenceGenerator = new ReferenceGenerator(0);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Test
+    void testNdjsonExportWritesOneLinePerTransaction() throws Exception {
+        persistTransactions("1234567890", 3, "Deposit to account");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = transactionExportService.export(
+                "1234567890", null, null, TransactionExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(count).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("{").contains("\"accountNumber\":\"1234567890\"");
+    }
+
+    @Test
+    void testCsvExportQuotesFieldsThatNeedIt() throws Exception {
+        persistTransactions("1234567890", 1, "Rent, \"March\"");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transactionExportService.export(
+                "1234567890", null, null, TransactionExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("id,accountNumber,transactionType");
+        assertThat(lines[1]).contains(",\"Rent, \"\"March\"\"\",");
+    }
+
+    @Test
+    void testExportKeepsPersistenceContextFlat() throws Exception {
+        persistTransactions("1234567890", 5_000, "Deposit to account");
+        Session session = entityManager.unwrap(Session.class);
+
+        // Sample the number of managed entities every time the exporter pushes bytes downstream
+        int[] maxManaged = {0};
+        long[] bytes = {0};
+        OutputStream probe = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytes[0] += len;
+                maxManaged[0] = Math.max(maxManaged[0], session.getStatistics().getEntityCount());
+            }
+        };
+
+        long count = transactionExportService.export(
+                "1234567890", null, null, TransactionExportService.Format.NDJSON, probe);
+
+        assertThat(count).isEqualTo(5_000);
+        assertThat(bytes[0]).isGreaterThan(0);
+        // Memory held by the export does not grow with the number of rows
+        assertThat(maxManaged[0]).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void testExportRestrictedToDateRange() throws Exception {
+        persistTransactions("1234567890", 2, "Deposit to account");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = transactionExportService.export("1234567890",
+                LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2),
+                TransactionExportService.Format.NDJSON, out);
+
+        assertThat(count).isZero();
+        assertThat(out.size()).isZero();
+    }
+
+    private void persistTransactions(String accountNumber, int count, String description) {
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAccountId("account-" + accountNumber);
+            transaction.setAccountNumber(accountNumber);
+            transaction.setTransactionType("DEPOSIT");
+            transaction.setAmount(Money.of("10.00"));
+            transaction.setBalanceAfter(Money.of("100.00"));
+            transaction.setDescription(description);
+            transaction.setStatus("COMPLETED");
+            transaction.setReference(referenceGenerator.next());
+            entityManager.persist(transaction);
+            if (i % 500 == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
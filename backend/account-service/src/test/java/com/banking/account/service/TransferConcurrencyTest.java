@@ -0,0 +1,173 @@
+package com.banking.account.service;
+
+import com.banking.account.entity.Account;
+import com.banking.account.money.Money;
+import com.banking.account.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Real transactions against H2 with optimistic locking: with this few accounts concurrent transfers
+// regularly touch the same row, so version conflicts and retries happen. A lost update shows up as
+// a wrong total, an update-order bug as a lock timeout. Retries are generous so none run out.
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:transferdb;DB_CLOSE_DELAY=-1",
+        "banking.account.locking=OPTIMISTIC", "banking.account.retry.max-attempts=50"})
+@DirtiesContext
+public class TransferConcurrencyTest {
+
+    private static final int ACCOUNTS = 8;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 100;
+
+    @Autowired
+    private AccountTransactionService accountTransactionService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testConcurrentTransfersConserveMoney() throws Exception {
+        List<String> accountNumbers = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = new Account();
+            account.setAccountNumber(String.format("88800000%02d", i));
+            account.setAccountHolderName("Transfer Test");
+            account.setEmail("transfer" + i + "@test.com");
+            account.setBalance(Money.of("1000.00"));
+            account.setAccountType("CHECKING");
+            account.setStatus("ACTIVE");
+            accountNumbers.add(accountRepository.save(account).getAccountNumber());
+        }
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    Money amount = Money.ofUnits(random.nextLong(1, 300_0000));
+                    TransferResult result = accountTransactionService.transfer(
+                            accountNumbers.get(from), accountNumbers.get(to), amount, "Transfer");
+                    (result.isCompleted() ? completed : rejected).incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        Counter conflicts = meterRegistry.find("banking.account.write.conflicts").counter();
+        System.out.printf("threads=%d transfers=%d completed=%d conflicts=%.0f transfers/sec=%.0f%n", THREADS,
+                THREADS * TRANSFERS_PER_THREAD, completed.get(), conflicts != null ? conflicts.count() : 0,
+                THREADS * TRANSFERS_PER_THREAD / (elapsed / 1_000_000_000.0));
+
+        Money total = Money.ZERO;
+        for (String accountNumber : accountNumbers) {
+            Money balance = accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance();
+            assertThat(balance.isNegative()).isFalse();
+            total = total.plus(balance);
+        }
+        assertThat(total).isEqualTo(Money.of("8000.00"));
+        assertThat(completed.get() + rejected.get()).isEqualTo(THREADS * TRANSFERS_PER_THREAD);
+        assertThat(completed.get()).isPositive();
+    }
+
+    // Deposits and withdrawals bypass OptimisticRetry. Their UPDATEs bump the version under the
+    // transfers mixed in on the same accounts, which makes the transfers retry, but must never fail
+    // a version check of their own.
+    @Test
+    void testDepositsAndWithdrawalsNeverConflict() throws Exception {
+        List<String> accountNumbers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Account account = new Account();
+            account.setAccountNumber(String.format("88810000%02d", i));
+            account.setAccountHolderName("Mixed Test");
+            account.setEmail("mixed" + i + "@test.com");
+            account.setBalance(Money.of("1000.00"));
+            account.setAccountType("CHECKING");
+            account.setStatus("ACTIVE");
+            accountNumbers.add(accountRepository.save(account).getAccountNumber());
+        }
+
+        AtomicLong net = new AtomicLong();
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean transfers = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD / 2; i++) {
+                    int from = random.nextInt(accountNumbers.size());
+                    Money amount = Money.ofUnits(random.nextLong(1, 50_0000));
+                    if (transfers) {
+                        int to = (from + 1 + random.nextInt(accountNumbers.size() - 1)) % accountNumbers.size();
+                        accountTransactionService.transfer(
+                                accountNumbers.get(from), accountNumbers.get(to), amount, "Transfer");
+                        continue;
+                    }
+                    try {
+                        if (random.nextBoolean()) {
+                            accountTransactionService.deposit(accountNumbers.get(from), amount, "Deposit");
+                            net.addAndGet(amount.getUnits());
+                        } else if (accountTransactionService.withdraw(accountNumbers.get(from), amount,
+                                "Withdrawal", "Failed").isCompleted()) {
+                            net.addAndGet(-amount.getUnits());
+                        }
+                    } catch (OptimisticLockingFailureException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(conflicts.get()).isZero();
+        Money total = Money.ZERO;
+        for (String accountNumber : accountNumbers) {
+            total = total.plus(accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance());
+        }
+        assertThat(total).isEqualTo(Money.of("4000.00").plus(Money.ofUnits(net.get())));
+    }
+}
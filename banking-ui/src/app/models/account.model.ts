@@ -16,4 +16,10 @@ export interface AccountDTO {
   email: string;
   balance: number;
   accountType: string;
-}
\ No newline at end of file
+}
+export interface BalanceChange {
+  accountNumber: string;
+  balance: number;
+  reference: string;
+  timestamp: Date;
+}
@@ -2,4 +2,9 @@ export interface ApiResponse<T> {
   success: boolean;
   message: string;
   data: T;
+}
+
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor?: string;
 }
\ No newline at end of file
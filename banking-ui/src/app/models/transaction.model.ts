@@ -1,3 +1,5 @@
+import { BalanceChange } from './account.model';
+
 export interface Transaction {
   id?: string;
   accountNumber: string;
@@ -22,4 +24,10 @@ export interface TransactionSummary {
   totalWithdrawals: number;
   netBalance: number;
   totalTransactions: number;
-}
\ No newline at end of file
+  completedTransactions: number;
+  failedTransactions: number;
+}
+// Pushed by the account event streams as changes commit
+export type AccountEvent =
+  | { type: 'balance'; data: BalanceChange }
+  | { type: 'transaction'; data: Transaction };
@@ -3,8 +3,8 @@ import { HttpClient, HttpErrorResponse } from '@angular/common/http';
 import { Observable, catchError, map, of, tap, timeout } from 'rxjs';
 import { environment } from '../../environments/environment';
 import { Account, AccountDTO } from '../models/account.model';
-import { ApiResponse } from '../models/api-response.model';
-import { Transaction, TransactionRequest, TransactionSummary } from '../models/transaction.model';
+import { ApiResponse, CursorPage } from '../models/api-response.model';
+import { AccountEvent, Transaction, TransactionRequest, TransactionSummary } from '../models/transaction.model';
 import { NotificationService } from './notification.service';
 
 @Injectable({
@@ -120,10 +120,10 @@ export class AccountService {
   }
 
   getAccountTransactions(accountNumber: string): Observable<Transaction[]> {
-    return this.http.get<ApiResponse<Transaction[]>>(`${this.apiUrl}/transactions/account/${accountNumber}`)
+    return this.http.get<ApiResponse<CursorPage<Transaction>>>(`${this.apiUrl}/transactions/account/${accountNumber}`)
       .pipe(
         timeout(this.timeoutMs),
-        map(response => response.success ? response.data || [] : []),
+        map(response => response.success ? response.data?.items || [] : []),
         catchError(this.handleError<Transaction[]>('getAccountTransactions', []))
       );
   }
@@ -137,6 +137,26 @@ export class AccountService {
       );
   }
 
+  // Live balance changes and transactions, of one account or of all of them.
+  // The server closes streams that fall behind, so a completed stream means reload before resubscribing.
+  accountEvents(accountNumber?: string): Observable<AccountEvent> {
+    const url = accountNumber
+      ? `${this.apiUrl}/accounts/${accountNumber}/events`
+      : `${this.apiUrl}/accounts/events`;
+    return new Observable<AccountEvent>(subscriber => {
+      const source = new EventSource(url);
+      source.addEventListener('balance', event =>
+        subscriber.next({ type: 'balance', data: JSON.parse((event as MessageEvent).data) }));
+      source.addEventListener('transaction', event =>
+        subscriber.next({ type: 'transaction', data: JSON.parse((event as MessageEvent).data) }));
+      source.onerror = () => {
+        source.close();
+        subscriber.complete();
+      };
+      return () => source.close();
+    });
+  }
+
   // Error handler
   private handleError<T>(operation = 'operation', result?: T) {
     return (error: any): Observable<T> => {